@@ -0,0 +1,100 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+/**
+ * Plans whole days end to end, the way @App does: 'newDay' loads the day's orders and chooses
+ * the route (the @App constructor), 'flightPlanner' flies it and writes it to Derby, and
+ * 'gsonDocGenerator' exports a planned day to its .geojson file. It runs in local mode (see
+ * @App.localRoot): embedded Derby on a copy of database/derbyDB and the 'website' folder read
+ * in-process, so only the repository is needed and no loopback networking is measured.
+ *
+ * The @PlanningContext limits the route search to 'optimizerIterations' rounds, since the route search
+ * otherwise takes most of 'newDay' and hides everything else in it. The lines @App prints are discarded.
+ * Run it with '-prof gc' to see the memory allocated per day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DayPlanningBenchmark {
+
+    @Param({"2022-12-12", "2023-12-12"})
+    public String day;
+
+    @Param({"50"})
+    public int optimizerIterations;
+
+    private PrintStream console;
+    private PlanningContext context;
+    private ApacheDB apacheData;
+    private LocalDate date;
+    private App planned;
+    private Path directory;
+
+    @Setup
+    public void setup() throws Exception {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        PlanningContext loaded = PlanningContext.load(Fixtures.website());
+        context = new PlanningContext(loaded.getWebsite(), loaded.getMap(), 1, optimizerIterations, RouteOptimizer.timeBudget);
+        apacheData = new ApacheDB(Fixtures.embeddedDatabase(), true, false);
+        date = LocalDate.parse(day);
+        planned = new App(context, apacheData, date);
+        planned.flightPlanner();
+        directory = Files.createTempDirectory("ilp-days");
+    }
+
+    /**
+     * A day whose route has been chosen but not flown yet, built again before every call.
+     */
+    @State(Scope.Thread)
+    public static class NextDay {
+        private App app;
+
+        @Setup(Level.Invocation)
+        public void setup(DayPlanningBenchmark benchmark) {
+            app = new App(benchmark.context, benchmark.apacheData, benchmark.date);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        apacheData.close();
+        ApacheDB.shutdownEmbedded();
+        System.setOut(console);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator){
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public App newDay(){
+        return new App(context, apacheData, date);
+    }
+
+    @Benchmark
+    public int flightPlanner(NextDay next){
+        next.app.flightPlanner();
+        return next.app.getState().getMovesLeft();
+    }
+
+    @Benchmark
+    public void gsonDocGenerator() {
+        planned.gsonDocGenerator(directory);
+    }
+}
@@ -0,0 +1,96 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares the @Directions table against the trigonometry it replaced: taking a step in a
+ * direction, and finding the direction between two points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectionsBenchmark {
+
+    private static final int size = 1024;
+
+    private double[] xs;
+    private double[] ys;
+    private int[] angles;
+
+    @Setup
+    public void setup(){
+        Random random = new Random(3);
+        xs = new double[size];
+        ys = new double[size];
+        angles = new int[size];
+        for (int i = 0; i < size; i++){
+            LongLat point = Fixtures.randomPoint(random);
+            xs[i] = point.longitude;
+            ys[i] = point.latitude;
+            angles[i] = 10 * (random.nextInt(72) - 18);
+        }
+    }
+
+    /**
+     * The way @LongLat.getAngle found the direction before the @Directions table.
+     */
+    private static int trigonometricAngle(double x1, double y1, double x2, double y2){
+        double distance = Math.sqrt(Geometry.distanceSq(x1, y1, x2, y2));
+        double angle;
+        if ((x2 - x1) < 0) {
+            angle = (180 - Math.toDegrees(Math.asin((y2 - y1)/distance))) / 100;
+        } else {
+            angle = Math.toDegrees(Math.asin((y2 - y1)/distance)) / 100;
+        }
+        int scale = (int) Math.pow(10, 1);
+        return (int)(((double) Math.round(angle * scale) / scale)*100);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(size)
+    public double stepTrigonometric(){
+        double total = 0;
+        for (int i = 0; i < size; i++){
+            double radians = Math.toRadians(angles[i]);
+            total += Math.cos(radians) * LongLat.step + xs[i] + Math.sin(radians) * LongLat.step + ys[i];
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(size)
+    public double stepTable(){
+        double total = 0;
+        for (int i = 0; i < size; i++){
+            total += Geometry.nextX(xs[i], angles[i]) + Geometry.nextY(ys[i], angles[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(size)
+    public int angleTrigonometric(){
+        int total = 0;
+        for (int i = 1; i < size; i++){
+            total += trigonometricAngle(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(size)
+    public int angleTable(){
+        int total = 0;
+        for (int i = 1; i < size; i++){
+            total += Directions.nearest(xs[i] - xs[i - 1], ys[i] - ys[i - 1]);
+        }
+        return total;
+    }
+}
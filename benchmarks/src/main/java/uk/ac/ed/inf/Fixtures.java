@@ -0,0 +1,342 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import org.apache.derby.drda.NetworkServerControl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+
+/**
+ * The Fixtures class. It builds the inputs of the benchmarks from the data checked into the
+ * repository (the 'website' and 'testing' folders), so that no web server or database is needed.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Finds the root of the repository. It can be given with the 'ilp.root' system property,
+     * otherwise the working directory and its parent are tried.
+     *
+     * @return the path of the repository root
+     */
+    static Path root(){
+        String property = System.getProperty("ilp.root");
+        if (property != null){
+            return Paths.get(property);
+        }
+        for (Path candidate : new Path[]{Paths.get("."), Paths.get("..")}){
+            if (Files.isDirectory(candidate.resolve("website"))){
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("Cannot find the 'website' folder, set -Dilp.root");
+    }
+
+    /**
+     * Reads a file of the repository.
+     *
+     * @param relative the path of the file, relative to the repository root
+     * @return the contents of the file
+     */
+    static String read(String relative){
+        try {
+            return Files.readString(root().resolve(relative));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies the checked-in database/derbyDB into a temporary folder, so benchmarks that write
+     * to the database never change the repository's copy.
+     *
+     * @return the temporary folder, which contains 'derbyDB'
+     */
+    static Path copyDatabase(){
+        try {
+            Path source = root().resolve("database/derbyDB");
+            Path home = Files.createTempDirectory("ilp-derby");
+            try (Stream<Path> files = Files.walk(source)) {
+                for (Path file : (Iterable<Path>) files::iterator){
+                    Files.copy(file, home.resolve("derbyDB").resolve(source.relativize(file).toString()));
+                }
+            }
+            return home;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts a Derby network server in this JVM on a copy of the checked-in database.
+     *
+     * @param port the port to listen on
+     * @return the running server
+     * @throws Exception if the server doesn't start
+     */
+    static NetworkServerControl startDatabase(int port) throws Exception {
+        Path home = copyDatabase();
+        System.setProperty("derby.system.home", home.toString());
+        System.setProperty("derby.stream.error.file", home.resolve("derby.log").toString());
+        NetworkServerControl server = new NetworkServerControl(InetAddress.getByName("localhost"), port);
+        server.start(null);
+        for (int i = 0; ; i++){
+            try {
+                server.ping();
+                return server;
+            } catch (Exception e) {
+                if (i == 50){
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    /**
+     * Opens a copy of the checked-in database with embedded Derby (see @ApacheDB.embeddedUrl),
+     * so no network server is involved.
+     *
+     * @return the JDBC url of the copy
+     */
+    static String embeddedDatabase(){
+        Path home = copyDatabase();
+        System.setProperty("derby.stream.error.file", home.resolve("derby.log").toString());
+        return ApacheDB.embeddedUrl(home);
+    }
+
+    /**
+     * The website in local mode, reading the checked-in 'website' folder in this JVM.
+     *
+     * @return the website
+     */
+    static Website website(){
+        return new Website(root().resolve("website"), null);
+    }
+
+    /**
+     * The no-fly zones served by the website.
+     *
+     * @return the polygons of the no-fly zones
+     */
+    static ArrayList<ArrayList<LongLat>> noFlyZones(){
+        return Website.parseNoFlyZones(read("website/buildings/no-fly-zones.geojson"));
+    }
+
+    /**
+     * The landmarks served by the website.
+     *
+     * @return the location of every landmark
+     */
+    static ArrayList<LongLat> landmarks(){
+        return Website.parseLandmarks(read("website/buildings/landmarks.geojson"));
+    }
+
+    /**
+     * Every place the drone flies to in the test data: Appleton Tower, the shops and the
+     * delivery locations.
+     *
+     * @return the locations
+     */
+    static ArrayList<LongLat> locations(){
+        ArrayList<LongLat> locations = new ArrayList<>();
+        locations.addAll(Website.parseLandmarks(read("testing/appleton-tower.geojson")));
+        locations.addAll(Website.parseLandmarks(read("testing/pickup-locations.geojson")));
+        locations.addAll(Website.parseLandmarks(read("testing/delivery-locations.geojson")));
+        return locations;
+    }
+
+    /**
+     * Builds synthetic no-fly zones: small regular polygons scattered over the confinement area,
+     * with about @edges lines in total.
+     *
+     * @param edges the total number of lines
+     * @param seed  the random seed
+     * @return the polygons of the synthetic no-fly zones
+     */
+    static ArrayList<ArrayList<LongLat>> syntheticZones(int edges, long seed){
+        Random random = new Random(seed);
+        int sides = 8;
+        ArrayList<ArrayList<LongLat>> zones = new ArrayList<>();
+        for (int z = 0; z < edges / sides; z++){
+            double radius = LongLat.step * (0.5 + random.nextDouble());
+            double lng = LongLat.minLongitude + radius + random.nextDouble() * (LongLat.maxLongitude - LongLat.minLongitude - 2 * radius);
+            double lat = LongLat.minLatitude + radius + random.nextDouble() * (LongLat.maxLatitude - LongLat.minLatitude - 2 * radius);
+            ArrayList<LongLat> zone = new ArrayList<>();
+            for (int s = 0; s <= sides; s++){
+                double angle = 2 * Math.PI * (s % sides) / sides;
+                zone.add(new LongLat(lng + radius * Math.cos(angle), lat + radius * Math.sin(angle)));
+            }
+            zones.add(zone);
+        }
+        return zones;
+    }
+
+    /**
+     * Builds random drone moves: a confined start point and the position after a step in a
+     * random multiple of 10 degrees.
+     *
+     * @param count the number of moves
+     * @param seed  the random seed
+     * @return the moves, as pairs of start and end points one after the other
+     */
+    static LongLat[] probes(int count, long seed){
+        Random random = new Random(seed);
+        LongLat[] probes = new LongLat[2 * count];
+        for (int i = 0; i < count; i++){
+            LongLat start = randomPoint(random);
+            probes[2 * i] = start;
+            probes[2 * i + 1] = start.nextPosition(10 * random.nextInt(36));
+        }
+        return probes;
+    }
+
+    /**
+     * Builds a random point inside the confinement area.
+     *
+     * @param random the random generator
+     * @return the point
+     */
+    static LongLat randomPoint(Random random){
+        return new LongLat(LongLat.minLongitude + random.nextDouble() * (LongLat.maxLongitude - LongLat.minLongitude),
+                LongLat.minLatitude + random.nextDouble() * (LongLat.maxLatitude - LongLat.minLatitude));
+    }
+
+    /**
+     * The number of no-fly zones of the campus map, which @syntheticMap keeps for every area of
+     * the size of the campus.
+     */
+    static final int campusZones = 5;
+
+    /**
+     * Builds a synthetic map, @scale times wider and taller than the campus (so its area is
+     * scale^2 times larger), with @campusZones buildings for every area of the size of the
+     * campus. The buildings are octagons of 1 to 4 steps of radius that don't overlap, and the
+     * home, the two intermediate points and a landmark in every campus-sized area are kept out
+     * of them. The map is written as the three GeoJSON documents and read back with
+     * @MapConfig.parse, like a map loaded from a folder.
+     *
+     * @param scale how many times wider and taller than the campus the map is
+     * @param seed  the random seed
+     * @return the map
+     */
+    static MapConfig syntheticMap(int scale, long seed){
+        Random random = new Random(seed);
+        double width = (LongLat.maxLongitude - LongLat.minLongitude) * scale;
+        double height = (LongLat.maxLatitude - LongLat.minLatitude) * scale;
+        double minLng = LongLat.minLongitude;
+        double minLat = LongLat.minLatitude;
+        ArrayList<LongLat> free = new ArrayList<>();
+        LongLat home = new LongLat(minLng + width / 2, minLat + height / 2);
+        LongLat southWest = new LongLat(minLng + width / 4, minLat + height / 4);
+        LongLat northEast = new LongLat(minLng + 3 * width / 4, minLat + 3 * height / 4);
+        free.add(home);
+        free.add(southWest);
+        free.add(northEast);
+        ArrayList<LongLat> landmarks = new ArrayList<>();
+        for (int i = 0; i < scale * scale; i++){
+            LongLat landmark = new LongLat(minLng + random.nextDouble() * width, minLat + random.nextDouble() * height);
+            landmarks.add(landmark);
+            free.add(landmark);
+        }
+
+        ArrayList<double[]> buildings = new ArrayList<>();
+        int wanted = campusZones * scale * scale;
+        while (buildings.size() < wanted){
+            double radius = LongLat.step * (1 + 3 * random.nextDouble());
+            double lng = minLng + 2 * radius + random.nextDouble() * (width - 4 * radius);
+            double lat = minLat + 2 * radius + random.nextDouble() * (height - 4 * radius);
+            boolean clear = true;
+            for (double[] other : buildings){
+                clear &= Math.hypot(lng - other[0], lat - other[1]) > radius + other[2] + 2 * LongLat.step;
+            }
+            for (LongLat point : free){
+                clear &= Math.hypot(lng - point.longitude, lat - point.latitude) > radius + LongLat.step;
+            }
+            if (clear){
+                buildings.add(new double[]{lng, lat, radius});
+            }
+        }
+
+        ArrayList<Feature> zones = new ArrayList<>();
+        for (double[] building : buildings){
+            ArrayList<Point> corners = new ArrayList<>();
+            for (int s = 0; s <= 8; s++){
+                double angle = 2 * Math.PI * (s % 8) / 8 + Math.PI / 8;
+                corners.add(Point.fromLngLat(building[0] + building[2] * Math.cos(angle),
+                        building[1] + building[2] * Math.sin(angle)));
+            }
+            zones.add(Feature.fromGeometry(Polygon.fromLngLats(Collections.singletonList(corners))));
+        }
+        ArrayList<Feature> points = new ArrayList<>();
+        for (LongLat landmark : landmarks){
+            points.add(Feature.fromGeometry(Point.fromLngLat(landmark.longitude, landmark.latitude)));
+        }
+        List<Point> box = List.of(Point.fromLngLat(minLng, minLat + height), Point.fromLngLat(minLng + width, minLat + height),
+                Point.fromLngLat(minLng + width, minLat), Point.fromLngLat(minLng, minLat), Point.fromLngLat(minLng, minLat + height));
+        JsonObject properties = new JsonObject();
+        properties.add("home", coordinates(home));
+        properties.addProperty("maxMoves", PlanningContext.maxMoves * scale);
+        JsonArray detours = new JsonArray();
+        detours.add(coordinates(southWest));
+        detours.add(coordinates(northEast));
+        properties.add("detours", detours);
+        Feature confinement = Feature.fromGeometry(Polygon.fromLngLats(Collections.singletonList(box)), properties);
+        return MapConfig.parse(FeatureCollection.fromFeature(confinement).toJson(),
+                FeatureCollection.fromFeatures(zones).toJson(), FeatureCollection.fromFeatures(points).toJson());
+    }
+
+    /**
+     * Writes a position as [longitude, latitude].
+     *
+     * @param position the position
+     * @return the coordinates
+     */
+    private static JsonArray coordinates(LongLat position){
+        JsonArray pair = new JsonArray();
+        pair.add(position.longitude);
+        pair.add(position.latitude);
+        return pair;
+    }
+
+    /**
+     * Builds random points of a map that aren't inside any of its no-fly zones.
+     *
+     * @param map    the map
+     * @param count  the number of points
+     * @param random the random generator
+     * @return the points
+     */
+    static ArrayList<LongLat> freePoints(MapConfig map, int count, Random random){
+        ArrayList<LongLat> points = new ArrayList<>();
+        while (points.size() < count){
+            LongLat point = new LongLat(map.getMinLongitude() + random.nextDouble() * (map.getMaxLongitude() - map.getMinLongitude()),
+                    map.getMinLatitude() + random.nextDouble() * (map.getMaxLatitude() - map.getMinLatitude()));
+            boolean inside = false;
+            for (List<LongLat> zone : map.getNoFlyZones()){
+                inside |= VisibilityGraphPlanner.isInside(point, new ArrayList<>(zone));
+            }
+            if (!inside){
+                points.add(point);
+            }
+        }
+        return points;
+    }
+}
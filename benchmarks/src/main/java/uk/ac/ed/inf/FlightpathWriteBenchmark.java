@@ -0,0 +1,100 @@
+package uk.ac.ed.inf;
+
+import org.apache.derby.drda.NetworkServerControl;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Writes a busy day's flightpath (15 orders, 1500 moves) to Derby. 'perRow' is the old write
+ * path, which prepared a statement per order and executed every move on its own with autocommit
+ * on; 'batched' is @ApacheDB.beginDay, @ApacheDB.addFlightpath and @ApacheDB.commit with
+ * batches of 'batchSize' rows (1 shows the effect of the single transaction alone).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlightpathWriteBenchmark {
+
+    private static final int port = 1529;
+    private static final int orders = 15;
+    private static final int movesPerOrder = 100;
+
+    @Param({"1", "50", "500"})
+    public int batchSize;
+
+    private NetworkServerControl server;
+    private ApacheDB database;
+    private final ArrayList<ArrayList<LongLat>> day = new ArrayList<>();
+    private final ArrayList<FlightPath> paths = new ArrayList<>();
+    private LongLat start;
+
+    @Setup
+    public void setup() throws Exception {
+        server = Fixtures.startDatabase(port);
+        database = new ApacheDB(ApacheDB.networkUrl("localhost", String.valueOf(port)), true, false, batchSize);
+        Random random = new Random(9);
+        start = new LongLat(-3.186874, 55.944494);
+        LongLat position = start;
+        for (int o = 0; o < orders; o++){
+            ArrayList<LongLat> moves = new ArrayList<>();
+            for (int m = 0; m < movesPerOrder; m++){
+                position = position.nextPosition(10 * random.nextInt(36));
+                moves.add(position);
+            }
+            day.add(moves);
+            paths.add(new FlightPath(moves));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTable() throws SQLException {
+        database.statement.execute("delete from flightpath");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        database.conn.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    public void perRow() throws SQLException {
+        LongLat previous = start;
+        for (int o = 0; o < orders; o++){
+            PreparedStatement psFlightpath = database.conn.prepareStatement("insert into flightpath values (?, ?, ?, ?, ?, ?)");
+            String orderNo = String.format("%08x", o);
+            for (LongLat move : day.get(o)){
+                psFlightpath.setString(1, orderNo);
+                psFlightpath.setDouble(2, previous.longitude);
+                psFlightpath.setDouble(3, previous.latitude);
+                psFlightpath.setInt(4, previous.getAngle(move));
+                psFlightpath.setDouble(5, move.longitude);
+                psFlightpath.setDouble(6, move.latitude);
+                previous = move;
+                psFlightpath.execute();
+            }
+            psFlightpath.close();
+        }
+    }
+
+    @Benchmark
+    public void batched() throws SQLException {
+        LongLat previous = start;
+        database.beginDay();
+        for (int o = 0; o < orders; o++){
+            FlightPath moves = paths.get(o);
+            database.addFlightpath(String.format("%08x", o), moves, previous, 1);
+            previous = moves.getLast();
+        }
+        database.commit();
+    }
+}
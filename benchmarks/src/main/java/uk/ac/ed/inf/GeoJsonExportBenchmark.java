@@ -0,0 +1,80 @@
+package uk.ac.ed.inf;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Exports a flightpath to a .geojson file the way @App used to (a mapbox FeatureCollection
+ * serialized to a String and written with a FileWriter) and with the streaming @GeoJsonWriter,
+ * for a day of moves and for much longer paths. Run it with '-prof gc' to compare the memory
+ * allocated per export.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoJsonExportBenchmark {
+
+    @Param({"1500", "150000"})
+    public int positions;
+
+    private FlightPath path;
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(15);
+        path = new FlightPath();
+        LongLat position = new LongLat(-3.186874, 55.944494);
+        path.add(position);
+        while (path.size() < positions){
+            if (random.nextInt(50) == 0){
+                position = new LongLat(-3.192473 + random.nextDouble() * 0.008, 55.942617 + random.nextDouble() * 0.004);
+            } else {
+                position = position.nextPosition(10 * random.nextInt(36));
+            }
+            path.add(position);
+        }
+        file = Files.createTempFile("ilp-export", ".geojson");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void mapbox() throws IOException {
+        ArrayList<Point> pointsList = new ArrayList<>(path.size());
+        for (FlightPath.cursor point = path.cursor(); point.next(); ){
+            pointsList.add(Point.fromLngLat(point.longitude, point.latitude));
+        }
+        FeatureCollection collection = FeatureCollection.fromFeature(Feature.fromGeometry(LineString.fromLngLats(pointsList)));
+        FileWriter writer = new FileWriter(file.toFile());
+        writer.write(collection.toJson());
+        writer.close();
+    }
+
+    @Benchmark
+    public void streaming() throws IOException {
+        try (GeoJsonWriter writer = new GeoJsonWriter(file)) {
+            writer.beginFeature();
+            writer.points(path);
+            writer.endFeature();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures the throughput of the small operations every planned day repeats thousands of
+ * times: the segment intersection test (@LongLat.doesIntersect), checking a move and choosing
+ * the direction of a step (@GreedyPlanner.isMoveGood and @GreedyPlanner.goodAngle), planning a
+ * leg through a @LegCache that already has it (what @App.movementsCalculator does for the legs
+ * of the @LegCostMatrix), and reading the menus and the items of an order (@Website.parseMenus
+ * and @Website.getInfo). The website is read from the 'website' folder in local mode.
+ *
+ * Run it with '-prof gc' to see the bytes allocated per operation (gc.alloc.rate.norm), so an
+ * allocation that creeps into one of these loops shows up as well as a slower one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+
+    private static final int probeCount = 4096;
+
+    private Website website;
+    private String menus;
+    private ArrayList<ArrayList<String>> orders;
+    private LongLat.line[] perimeter;
+    private GreedyPlanner greedy;
+    private LegCache legCache;
+    private LongLat[] probes;
+    private LongLat[] legs;
+    private int nextProbe;
+    private int nextLeg;
+    private int nextOrder;
+
+    @Setup
+    public void setup() {
+        website = Fixtures.website();
+        menus = Fixtures.read("website/menus/menus.json");
+        HashMap<String, Website.menuItem> index = website.getMenuIndex();
+
+        Random random = new Random(19);
+        ArrayList<String> items = new ArrayList<>(index.keySet());
+        orders = new ArrayList<>();
+        for (int i = 0; i < 64; i++){
+            ArrayList<String> order = new ArrayList<>();
+            for (int item = 1 + random.nextInt(4); item > 0; item--){
+                order.add(items.get(random.nextInt(items.size())));
+            }
+            orders.add(order);
+        }
+
+        ArrayList<ArrayList<LongLat>> zones = Fixtures.noFlyZones();
+        ArrayList<LongLat.line> lines = Website.getNoFlyPerimeter(zones);
+        perimeter = lines.toArray(new LongLat.line[0]);
+        greedy = new GreedyPlanner(lines);
+        probes = Fixtures.probes(probeCount, 19);
+
+        PlanningContext context = new PlanningContext(website, zones, Fixtures.landmarks());
+        ArrayList<LongLat> locations = Fixtures.locations();
+        legCache = new LegCache(context.getPlanner());
+        ArrayList<LongLat> pairs = new ArrayList<>();
+        for (LongLat from : locations){
+            for (LongLat to : locations){
+                if (from != to){
+                    legCache.plan(from, to);
+                    pairs.add(from);
+                    pairs.add(to);
+                }
+            }
+        }
+        legs = pairs.toArray(new LongLat[0]);
+    }
+
+    @Benchmark
+    public boolean doesIntersect(){
+        int i = nextProbe;
+        nextProbe = (nextProbe + 2) % probes.length;
+        boolean crosses = false;
+        for (LongLat.line line : perimeter){
+            crosses |= LongLat.doesIntersect(probes[i], probes[i + 1], line.getStartPoint(), line.getEndPoint());
+        }
+        return crosses;
+    }
+
+    @Benchmark
+    public boolean isMoveGood(){
+        int i = nextProbe;
+        nextProbe = (nextProbe + 2) % probes.length;
+        return greedy.isMoveGood(probes[i], probes[i + 1]);
+    }
+
+    @Benchmark
+    public int goodAngle(){
+        int i = nextProbe;
+        nextProbe = (nextProbe + 2) % probes.length;
+        return greedy.goodAngle(probes[i], probes[(i + 3) % probes.length]);
+    }
+
+    @Benchmark
+    public int cachedLeg(){
+        int i = nextLeg;
+        nextLeg = (nextLeg + 2) % legs.length;
+        return legCache.plan(legs[i], legs[i + 1]).size();
+    }
+
+    @Benchmark
+    public HashMap<String, Website.menuItem> parseMenus(){
+        return Website.parseMenus(menus);
+    }
+
+    @Benchmark
+    public int getInfo(){
+        nextOrder = (nextOrder + 1) % orders.size();
+        return website.getInfo(orders.get(nextOrder)).cost;
+    }
+}
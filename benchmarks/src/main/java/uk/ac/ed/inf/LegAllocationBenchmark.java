@@ -0,0 +1,111 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures the cost of planning legs between every pair of test locations, and of choosing
+ * the direction of a single step with the allocation-free @Geometry kernel compared with
+ * creating a @LongLat for every probed direction.
+ *
+ * Run it with '-prof gc' to see the bytes allocated per planned leg (gc.alloc.rate.norm).
+ * Escape analysis can hide the probe allocations once the JIT inlines everything, adding
+ * '-jvmArgsAppend -XX:-DoEscapeAnalysis' shows them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegAllocationBenchmark {
+
+    @Param({"greedy", "visibility"})
+    public String planner;
+
+    private PathPlanner pathPlanner;
+    private GreedyPlanner greedy;
+    private LongLat[] legs;
+    private LongLat[] steps;
+    private int next;
+
+    @Setup
+    public void setup(){
+        ArrayList<ArrayList<LongLat>> zones = Fixtures.noFlyZones();
+        ArrayList<LongLat.line> perimeter = Website.getNoFlyPerimeter(zones);
+        greedy = new GreedyPlanner(perimeter);
+        pathPlanner = planner.equals("greedy") ? greedy
+                : new VisibilityGraphPlanner(zones, Fixtures.landmarks());
+
+        ArrayList<LongLat> locations = Fixtures.locations();
+        ArrayList<LongLat> pairs = new ArrayList<>();
+        ArrayList<LongLat> stepPairs = new ArrayList<>();
+        for (LongLat from : locations){
+            for (LongLat to : locations){
+                if (from == to){
+                    continue;
+                }
+                ArrayList<LongLat> leg;
+                try {
+                    leg = pathPlanner.plan(from, to);
+                } catch (IllegalStateException e) {
+                    //the greedy planner can go round in circles on some legs, those are left out
+                    continue;
+                }
+                pairs.add(from);
+                pairs.add(to);
+                for (LongLat step : leg){
+                    stepPairs.add(step);
+                    stepPairs.add(to);
+                }
+            }
+        }
+        legs = pairs.toArray(new LongLat[0]);
+        steps = stepPairs.toArray(new LongLat[0]);
+    }
+
+    /**
+     * The way @GreedyPlanner.goodAngle probed directions before the @Geometry kernel, creating
+     * a new @LongLat for every candidate move.
+     */
+    private int allocatingGoodAngle(LongLat initialPos, LongLat finalPos){
+        int angleInt = initialPos.getAngle(finalPos);
+        for (int i=0; i<18;i++){
+            if (greedy.isMoveGood(initialPos, initialPos.nextPosition(angleInt + i*10))){
+                return angleInt+(i*10);
+            }
+            if (greedy.isMoveGood(initialPos, initialPos.nextPosition(angleInt - i*10))){
+                return angleInt-(i*10);
+            }
+        }
+        return angleInt;
+    }
+
+    @Benchmark
+    public int planLeg(){
+        int i = next;
+        next = (next + 2) % legs.length;
+        return pathPlanner.plan(legs[i], legs[i + 1]).size();
+    }
+
+    @Benchmark
+    public int goodAngleKernel(){
+        int total = 0;
+        for (int i = 0; i < steps.length; i += 2){
+            total += greedy.goodAngle(steps[i], steps[i + 1]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int goodAngleAllocating(){
+        int total = 0;
+        for (int i = 0; i < steps.length; i += 2){
+            total += allocatingGoodAngle(steps[i], steps[i + 1]);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,64 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Builds the @LegCostMatrix of every test location (Appleton Tower, the shops and the delivery
+ * locations) with the visibility-graph planner, on fork/join pools of different sizes, and
+ * compares it with planning the same legs one after the other. The speed-up is bounded by the
+ * number of cores of the machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegCostMatrixBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private PathPlanner planner;
+    private ArrayList<LongLat> locations;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup(){
+        ArrayList<ArrayList<LongLat>> zones = Fixtures.noFlyZones();
+        planner = new VisibilityGraphPlanner(zones, Fixtures.landmarks());
+        locations = Fixtures.locations();
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown(){
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int sequential(){
+        int total = 0;
+        for (LongLat from : locations){
+            for (LongLat to : locations){
+                total += planner.plan(from, to).size();
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public LegCostMatrix forkJoin(){
+        return new LegCostMatrix(planner, locations, pool, false, false);
+    }
+
+    @Benchmark
+    public LegCostMatrix forkJoinSymmetric(){
+        return new LegCostMatrix(planner, locations, pool, false, true);
+    }
+}
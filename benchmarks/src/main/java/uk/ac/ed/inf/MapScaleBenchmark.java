@@ -0,0 +1,70 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Plans on synthetic maps (see @Fixtures.syntheticMap) of the size of the campus and 100 times
+ * larger (10 times wider and taller, with 500 no-fly zones and 4100 nodes in the visibility
+ * graph): building the visibility graph, planning a leg between random free points, and checking
+ * a single move. The legs between random points of the large map are about 10 times longer (224
+ * steps on average, against 25 on the small one).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapScaleBenchmark {
+
+    @Param({"1", "10"})
+    public int scale;
+
+    private MapConfig map;
+    private VisibilityGraphPlanner planner;
+    private LongLat[] legs;
+    private LongLat[] probes;
+    private int nextLeg;
+    private int nextProbe;
+
+    @Setup
+    public void setup(){
+        map = Fixtures.syntheticMap(scale, 1);
+        planner = new VisibilityGraphPlanner(map);
+        Random random = new Random(2);
+        ArrayList<LongLat> points = Fixtures.freePoints(map, 256, random);
+        legs = points.toArray(new LongLat[0]);
+        probes = new LongLat[2048];
+        for (int i = 0; i < probes.length; i += 2){
+            probes[i] = points.get(random.nextInt(points.size()));
+            probes[i + 1] = probes[i].nextPosition(10 * random.nextInt(36));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public VisibilityGraphPlanner buildPlanner(){
+        return new VisibilityGraphPlanner(map);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int planLeg(){
+        LongLat from = legs[nextLeg];
+        LongLat to = legs[(nextLeg + 1) % legs.length];
+        nextLeg = (nextLeg + 1) % legs.length;
+        return planner.plan(from, to).size();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean isMoveGood(){
+        int i = nextProbe;
+        nextProbe = (nextProbe + 2) % probes.length;
+        return planner.isMoveGood(probes[i], probes[i + 1]);
+    }
+}
@@ -0,0 +1,85 @@
+package uk.ac.ed.inf;
+
+import org.apache.derby.drda.NetworkServerControl;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares loading a day's orders with one query per order (the way @ApacheDB.getDayOrders used
+ * to do it) against the single joined query of @ApacheDB.readDayOrders. It runs a Derby network
+ * server in the benchmark JVM on a copy of database/derbyDB, so every query is a real round trip.
+ * The 'queries' counter shows the round trips per load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderLoadBenchmark {
+
+    private static final int port = 1528;
+
+    @Param({"2022-01-01", "2022-12-12"})
+    public String day;
+
+    private NetworkServerControl server;
+    private ApacheDB database;
+    private Date date;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long queries;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        server = Fixtures.startDatabase(port);
+        database = new ApacheDB("localhost", String.valueOf(port));
+        date = Date.valueOf(day);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        database.conn.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    public int queryPerOrder(RoundTrips roundTrips) throws SQLException {
+        PreparedStatement psDataQuery = database.conn.prepareStatement("select * from orders where deliveryDate=(?)");
+        PreparedStatement psItemsQuery = database.conn.prepareStatement("select * from orderDetails where orderNo=(?)");
+        psDataQuery.setDate(1, date);
+        ArrayList<Database.order> orders = new ArrayList<>();
+        ResultSet rs = psDataQuery.executeQuery();
+        roundTrips.queries++;
+        while (rs.next()) {
+            String num = rs.getString("orderNo");
+            ArrayList<String> foodItems = new ArrayList<>();
+            psItemsQuery.setString(1, num);
+            ResultSet itms = psItemsQuery.executeQuery();
+            roundTrips.queries++;
+            while (itms.next()) {
+                foodItems.add(itms.getString("item"));
+            }
+            orders.add(new Database.order(num, rs.getString("deliverTo"), foodItems));
+        }
+        psDataQuery.close();
+        psItemsQuery.close();
+        return orders.size();
+    }
+
+    @Benchmark
+    public int singleQuery(RoundTrips roundTrips) throws SQLException {
+        roundTrips.queries++;
+        return database.readDayOrders(date).size();
+    }
+}
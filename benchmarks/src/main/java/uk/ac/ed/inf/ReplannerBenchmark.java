@@ -0,0 +1,125 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures how long the @Replanner takes to change a day that has been planned: 'addOrder' adds
+ * an order of the next day to it and 'cancelOrder' cancels an order that was added to it, each
+ * followed by the route search and the flightpath of the rest of the day. The order added by
+ * 'addOrder' is cancelled, and the order cancelled by 'cancelOrder' added, outside of the
+ * measurement, so every call changes the same day.
+ *
+ * Every added order has a new number, and the drone never leaves Appleton Tower. The route
+ * search runs for 'iterations' rounds (see @Replanner.iterationBudget), within
+ * @Replanner.timeBudget. It runs in local mode (see @App.localRoot), like @DayPlanningBenchmark,
+ * and the lines @App prints are discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplannerBenchmark {
+
+    @Param({"2022-12-12", "2023-12-12"})
+    public String day;
+
+    @Param({"20"})
+    public int iterations;
+
+    private PrintStream console;
+    private ApacheDB apacheData;
+    private Database theDatabase;
+    private Replanner replanner;
+    private final ArrayList<Database.order> extras = new ArrayList<>();
+    private int nextExtra;
+    private int nextNumber;
+
+    @Setup
+    public void setup() throws Exception {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        PlanningContext context = PlanningContext.load(Fixtures.website());
+        apacheData = new ApacheDB(Fixtures.embeddedDatabase(), true, false);
+        LocalDate date = LocalDate.parse(day);
+        App app = new App(context, apacheData, date);
+        theDatabase = app.getState().getDatabase();
+        ArrayList<Database.row> orders = new ArrayList<>();
+        for (int i = 0; i < theDatabase.getSize(); i++){
+            orders.add(theDatabase.getDataTableRow(i));
+        }
+        replanner = new Replanner(app.getState().getDrone(0), orders, iterations, Replanner.timeBudget);
+        extras.addAll(apacheData.readDayOrders(Date.valueOf(date.plusDays(1))));
+    }
+
+    /**
+     * Builds an order of the next day with a number that hasn't been given yet.
+     *
+     * @return the order
+     */
+    Database.row nextOrder(){
+        Database.order order = extras.get(nextExtra);
+        nextExtra = (nextExtra + 1) % extras.size();
+        return theDatabase.new row(String.format("r%07d", nextNumber++), order.DeliverTo, order.foodItems);
+    }
+
+    /**
+     * An order that hasn't been given to the replanner, and is cancelled after 'addOrder'.
+     */
+    @State(Scope.Thread)
+    public static class NewOrder {
+        private Database.row row;
+        private Replanner replanner;
+
+        @Setup(Level.Invocation)
+        public void setup(ReplannerBenchmark benchmark) {
+            replanner = benchmark.replanner;
+            row = benchmark.nextOrder();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            replanner.cancelOrder(row.getNo());
+        }
+    }
+
+    /**
+     * An order that has just been added to the replanner, for 'cancelOrder'.
+     */
+    @State(Scope.Thread)
+    public static class AddedOrder {
+        private Database.row row;
+
+        @Setup(Level.Invocation)
+        public void setup(ReplannerBenchmark benchmark) {
+            row = benchmark.nextOrder();
+            benchmark.replanner.addOrder(row);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        apacheData.close();
+        ApacheDB.shutdownEmbedded();
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public FlightPath addOrder(NewOrder order){
+        return replanner.addOrder(order.row);
+    }
+
+    @Benchmark
+    public FlightPath cancelOrder(AddedOrder order){
+        return replanner.cancelOrder(order.row.getNo());
+    }
+}
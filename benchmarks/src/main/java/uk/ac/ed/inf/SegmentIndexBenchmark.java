@@ -0,0 +1,68 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares checking drone moves against the no-fly zone's perimeter with a linear scan over
+ * every line and with the @SegmentIndex grid, on the real no-fly zones and on synthetic maps
+ * with thousands of lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentIndexBenchmark {
+
+    /**
+     * The no-fly zones: "real" uses website/buildings/no-fly-zones.geojson, a number builds
+     * synthetic zones with about that many lines.
+     */
+    @Param({"real", "2000", "8000"})
+    public String zones;
+
+    private ArrayList<LongLat.line> perimeter;
+    private SegmentIndex index;
+    private LongLat[] probes;
+
+    @Setup
+    public void setup(){
+        ArrayList<ArrayList<LongLat>> polygons = zones.equals("real")
+                ? Fixtures.noFlyZones() : Fixtures.syntheticZones(Integer.parseInt(zones), 42);
+        perimeter = Website.getNoFlyPerimeter(polygons);
+        index = new SegmentIndex(perimeter);
+        probes = Fixtures.probes(1024, 7);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public int linearScan(){
+        int hits = 0;
+        for (int i = 0; i < probes.length; i += 2){
+            for (LongLat.line l : perimeter){
+                if (LongLat.doesIntersect(probes[i], probes[i + 1], l.getStartPoint(), l.getEndPoint())){
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public int segmentIndex(){
+        int hits = 0;
+        for (int i = 0; i < probes.length; i += 2){
+            if (index.intersects(probes[i], probes[i + 1])){
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -1,23 +1,53 @@
 package uk.ac.ed.inf;
 
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.ArrayList;
 
 
 /**
  * The class Apache db, which is created to access and store SQl content in the Apache
- * database server.
+ * database server, or in an embedded Derby database opened by this JVM (see @embeddedUrl).
  */
 public class ApacheDB {
     /**
-     * The constant conn.
+     * The connection to the apache server. Every instance has its own, so several days can read
+     * and write the database at the same time.
      */
 //class variables
-    public static Connection conn;
+    public Connection conn;
     /**
-     * The constant statement.
+     * The statement used to create the tables.
      */
-    public static Statement statement;
+    public Statement statement;
+    /**
+     * The number of rows sent together to the apache server in a single batch by the connections
+     * that aren't given another one. It can be changed with the 'ilp.db.batchSize' system
+     * property.
+     */
+    public static final int batchSize = Integer.getInteger("ilp.db.batchSize", 500);
+
+    /**
+     * The table the batch runs write their deliveries to, with the date of every delivery.
+     */
+    public static final String datedDeliveries = "batchDeliveries";
+    /**
+     * The table the batch runs write their moves to, with the date of every move.
+     */
+    public static final String datedFlightpath = "batchFlightpath";
+
+    //statements kept for the lifetime of the connection (prepared by @prepareInserts for the
+    //tables being written to), and the rows waiting in their batches
+    private PreparedStatement psDeliveries;
+    private PreparedStatement psFlightpath;
+    private int pendingDeliveries;
+    private int pendingMoves;
+    //the number of rows sent together in a single batch by this connection
+    private final int rowsPerBatch;
+    //the day written to the dated tables, or null when writing to 'deliveries' and 'flightpath'
+    private java.sql.Date outputDate;
+    //true if the flightpath table has the 'droneId' column
+    private boolean droneColumn;
 
     /**
      * The class constructor, which generates anew the tables 'deliveries' and 'flightpath'
@@ -29,39 +59,255 @@ public class ApacheDB {
      */
 //class constructor
     public ApacheDB(String name, String por) {
+        this(name, por, true);
+    }
+
+    /**
+     * The class constructor, which only generates anew the tables 'deliveries' and 'flightpath'
+     * if @createTables is true. Otherwise it connects to the tables created by another instance,
+     * so that several days can be written to them at the same time.
+     * It will throw an SQL exception if the apache server is inaccessible.
+     *
+     * @param name         the Machine name.
+     * @param por          the database's port.
+     * @param createTables true to erase and create the tables
+     */
+    public ApacheDB(String name, String por, boolean createTables) {
+        this(name, por, createTables, false);
+    }
+
+    /**
+     * The class constructor, which only generates anew the tables 'deliveries' and 'flightpath'
+     * if @createTables is true. If @droneColumn is true the 'flightpath' table has one more column,
+     * 'droneId', with the number of the drone that made every move (see @App.fleetSize).
+     * It will throw an SQL exception if the apache server is inaccessible.
+     *
+     * @param name         the Machine name.
+     * @param por          the database's port.
+     * @param createTables true to erase and create the tables
+     * @param droneColumn  true if the 'flightpath' table has the 'droneId' column
+     */
+    public ApacheDB(String name, String por, boolean createTables, boolean droneColumn) {
+        this(networkUrl(name, por), createTables, droneColumn);
+    }
+
+    /**
+     * The class constructor for any Derby database, given its JDBC url (see @networkUrl and
+     * @embeddedUrl). It only generates anew the tables 'deliveries' and 'flightpath' if
+     * @createTables is true, and the 'flightpath' table has the 'droneId' column if @droneColumn
+     * is true.
+     * It will throw an SQL exception if the database is inaccessible.
+     *
+     * @param url          the JDBC url of the database
+     * @param createTables true to erase and create the tables
+     * @param droneColumn  true if the 'flightpath' table has the 'droneId' column
+     */
+    public ApacheDB(String url, boolean createTables, boolean droneColumn) {
+        this(url, createTables, droneColumn, batchSize);
+    }
+
+    /**
+     * Same as the constructor above, with the number of rows this connection sends together in a
+     * single batch instead of @batchSize.
+     *
+     * @param url          the JDBC url of the database
+     * @param createTables true to erase and create the tables
+     * @param droneColumn  true if the 'flightpath' table has the 'droneId' column
+     * @param rowsPerBatch the number of rows sent together in a single batch
+     * @throws IllegalArgumentException if the number of rows isn't positive
+     * @throws IllegalStateException if the database can't be opened or the tables created, with
+     * the SQL exception as its cause
+     */
+    public ApacheDB(String url, boolean createTables, boolean droneColumn, int rowsPerBatch) {
+        if (rowsPerBatch < 1){
+            throw new IllegalArgumentException("Batches must hold at least one row: " + rowsPerBatch);
+        }
+        this.rowsPerBatch = rowsPerBatch;
+        this.droneColumn = droneColumn;
         try {
-            conn = DriverManager.getConnection("jdbc:derby://"+name+":"+por+"/derbyDB");
+            conn = DriverManager.getConnection(url);
             statement = conn.createStatement();
+            if (createTables) {
+                createTables();
+                prepareInserts();
+            }
+        }catch(SQLException e){
+            if (conn != null) {
+                try {
+                    conn.close();
+                }catch(SQLException c){
+                    e.addSuppressed(c);
+                }
+            }
+            throw new IllegalStateException("Can't open the database " + url, e);
+        }
+    }
+
+    /**
+     * Prepares the inserts into the tables the day is written to, 'deliveries' and 'flightpath'
+     * or the dated tables (see @useDatedTables), unless they are already prepared. A connection
+     * that doesn't create the tables only prepares them when the first row is written, so it
+     * can be opened on a database that doesn't have 'deliveries' and 'flightpath' (for instance
+     * to only write the dated tables).
+     *
+     * @throws SQLException if the tables don't exist or the apache server is inaccessible
+     */
+    private void prepareInserts() throws SQLException {
+        if (psDeliveries != null) {
+            return;
+        }
+        if (outputDate != null) {
+            psDeliveries = conn.prepareStatement("insert into " + datedDeliveries + " values (?, ?, ?, ?)");
+            psFlightpath = conn.prepareStatement("insert into " + datedFlightpath + " values (?, ?, ?, ?, ?, ?, ?, ?)");
+        } else {
+            psDeliveries = conn.prepareStatement("insert into deliveries values (?, ?, ?)");
+            //the columns are named, so a connection that doesn't create the tables can write to a
+            //'flightpath' table with or without the 'droneId' column
+            psFlightpath = conn.prepareStatement("insert into flightpath (orderNo, fromLongitude, fromLatitude, " +
+                    "angle, toLongitude, toLatitude" + (droneColumn ? ", droneId) " : ") ") +
+                    "values (?, ?, ?, ?, ?, ?" + (droneColumn ? ", ?)" : ")"));
+        }
+    }
+
+    /**
+     * Builds the JDBC url of the database served by the apache server.
+     *
+     * @param name the Machine name.
+     * @param por  the database's port.
+     * @return the url
+     */
+    public static String networkUrl(String name, String por) {
+        return "jdbc:derby://"+name+":"+por+"/derbyDB";
+    }
+
+    /**
+     * Builds the JDBC url of the database in a folder (a copy of the 'database' folder), opened
+     * by this JVM with embedded Derby instead of through the apache server. Only one JVM can open
+     * it at a time, and the output tables are written into it, so it should be a copy.
+     *
+     * @param directory the folder that contains 'derbyDB'
+     * @return the url
+     */
+    public static String embeddedUrl(Path directory) {
+        return "jdbc:derby:" + directory.resolve("derbyDB").toAbsolutePath();
+    }
+
+    /**
+     * Shuts down embedded Derby, so the databases opened by this JVM are closed cleanly. It does
+     * nothing if no embedded database was opened.
+     */
+    public static void shutdownEmbedded() {
+        try {
+            DriverManager.getConnection("jdbc:derby:;shutdown=true");
+        }catch(SQLException e){
+            //Derby reports a successful shutdown with the state XJ015
+            if (!"XJ015".equals(e.getSQLState()) && !"08001".equals(e.getSQLState())){
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Erases the tables 'deliveries' and 'flightpath' if they exist and creates them empty.
+     *
+     * @throws SQLException if the apache server is inaccessible
+     */
+    private void createTables() throws SQLException {
+        DatabaseMetaData databaseMetadata = conn.getMetaData();
+        ResultSet resultSet =
+                databaseMetadata.getTables(null, null, "DELIVERIES", null);
+        if (resultSet.next()) {
+            statement.execute("drop table deliveries");
+        }
+        statement.execute(
+                "create table deliveries(" +
+                        "orderNo char(8), " + "deliveredTo varchar(19), " + "costInPence int)");
 
+        //creates flightpath table
+        ResultSet resultSet1 =
+                databaseMetadata.getTables(null, null, "FLIGHTPATH", null);
+        if (resultSet1.next()) {
+            statement.execute("drop table flightpath");
+        }
+        statement.execute(
+                "create table flightpath(" +
+                        "orderNo char(8), " + "fromLongitude double, " +
+                        "fromLatitude double, " + "angle integer, " + "toLongitude double, " + "toLatitude double" +
+                        (droneColumn ? ", droneId int)" : ")"));
+    }
+
+    /**
+     * Creates the tables @datedDeliveries and @datedFlightpath if they don't exist yet. They have
+     * the same columns as 'deliveries' and 'flightpath' (with the 'droneId' column, see the
+     * constructor) plus the date of the day, so the output
+     * of many days can be kept side by side, and an index on the date, so a day's rows are found
+     * without reading the other days. They are never erased.
+     * It will throw an SQL exception if the apache server is inaccessible.
+     */
+    public void createDatedTables() {
+        try {
             DatabaseMetaData databaseMetadata = conn.getMetaData();
-            ResultSet resultSet =
-                    databaseMetadata.getTables(null, null, "DELIVERIES", null);
-            if (resultSet.next()) {
-                statement.execute("drop table deliveries");
+            if (!databaseMetadata.getTables(null, null, datedDeliveries.toUpperCase(), null).next()) {
+                statement.execute(
+                        "create table " + datedDeliveries + "(" +
+                                "orderNo char(8), " + "deliveredTo varchar(19), " + "costInPence int, " +
+                                "deliveryDate date)");
+                statement.execute("create index " + datedDeliveries + "Date on " + datedDeliveries + "(deliveryDate)");
             }
-            statement.execute(
-                    "create table deliveries(" +
-                            "orderNo char(8), " + "deliveredTo varchar(19), " + "costInPence int)");
-
-            //creates flightpath table
-            ResultSet resultSet1 =
-                    databaseMetadata.getTables(null, null, "FLIGHTPATH", null);
-            if (resultSet1.next()) {
-                statement.execute("drop table flightpath");
+            if (!databaseMetadata.getTables(null, null, datedFlightpath.toUpperCase(), null).next()) {
+                statement.execute(
+                        "create table " + datedFlightpath + "(" +
+                                "orderNo char(8), " + "fromLongitude double, " +
+                                "fromLatitude double, " + "angle integer, " + "toLongitude double, " + "toLatitude double, " +
+                                "droneId int, " + "deliveryDate date)");
+                statement.execute("create index " + datedFlightpath + "Date on " + datedFlightpath + "(deliveryDate)");
             }
-            statement.execute(
-                    "create table flightpath(" +
-                            "orderNo char(8), " + "fromLongitude double, " +
-                            "fromLatitude double, " + "angle integer, " + "toLongitude double, " + "toLatitude double)");
         }catch(SQLException e){
             e.printStackTrace();
         }
     }
 
     /**
-     * This method searches in the apache database all the orders for a given day.
-     * It then adds the order's details into the @Database data table using a @row
-     * object.
+     * This method makes the day's output go to the tables @datedDeliveries and @datedFlightpath
+     * (see @createDatedTables), with the given date, instead of 'deliveries' and 'flightpath'.
+     * Every time the day is written (see @beginDay) the rows written for the same date before are
+     * replaced, so planning a day again doesn't touch the other days.
+     * It will throw an SQL exception if the apache server is inaccessible.
+     *
+     * @param date the date of the day
+     */
+    public void useDatedTables(java.sql.Date date) {
+        try {
+            if (psDeliveries != null) {
+                psDeliveries.close();
+                psFlightpath.close();
+                psDeliveries = null;
+                psFlightpath = null;
+            }
+            outputDate = date;
+            droneColumn = true;
+            prepareInserts();
+        }catch(SQLException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the connection to the apache server.
+     * It will throw an SQL exception if the apache server is inaccessible.
+     */
+    public void close() {
+        try {
+            conn.close();
+        }catch(SQLException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method searches in the apache database all the orders for a given day (using
+     * @readDayOrders). It then adds all the order's details at once into the @Database data
+     * table (see @Database.addAllToDataTable), so their locations are requested concurrently.
      * It will throw an SQL exception if the apache server is inaccessible.
      *
      * @param date        the date of the day we want all the orders
@@ -69,84 +315,252 @@ public class ApacheDB {
      */
     public void getDayOrders(java.sql.Date date, Database newDatabase) {
         try {
-            final String dataQuery = "select * from orders where deliveryDate=(?)";
-            final String itemsQuery = "select * from orderDetails where orderNo=(?)";
-            PreparedStatement psDataQuery = conn.prepareStatement(dataQuery);
-            PreparedStatement psItemsQuery = conn.prepareStatement(itemsQuery);
-            psDataQuery.setDate(1, date);
+            newDatabase.addAllToDataTable(readDayOrders(date));
+        }catch(SQLException e){
+            e.printStackTrace();
+        }
+    }
 
-            ResultSet rs = psDataQuery.executeQuery();
+    /**
+     * This method reads all the orders for a given day, with their items, in a single query.
+     * The orders and their items are joined and sorted by order number in the database, so the
+     * result set is grouped into orders in one pass: a new order starts every time the order
+     * number changes. Only the columns that are used are read. Neither table has an index, so
+     * 'orderDetails' is listed first: Derby then scans it once as the outer table of the join
+     * (an order with no items has nothing to deliver, so the inner join doesn't lose anything).
+     *
+     * @param date the date of the day we want all the orders
+     * @return the day's orders, sorted by order number
+     * @throws SQLException if the apache server is inaccessible
+     */
+    public ArrayList<Database.order> readDayOrders(java.sql.Date date) throws SQLException {
+        final String ordersQuery = "select d.orderNo, o.deliverTo, d.item from orderDetails d, orders o "
+                + "where d.orderNo = o.orderNo and o.deliveryDate=(?) order by d.orderNo";
+        ArrayList<Database.order> orders = new ArrayList<>();
+        try (PreparedStatement psOrdersQuery = conn.prepareStatement(ordersQuery)) {
+            psOrdersQuery.setDate(1, date);
+            ResultSet rs = psOrdersQuery.executeQuery();
+            Database.order current = null;
             while (rs.next()) {
-                String num = rs.getString("orderNo");
-                String To = rs.getString("deliverTo");
-                ArrayList<String> foodItems = new ArrayList<>();
-
-                psItemsQuery.setString(1, num);
-                ResultSet itms = psItemsQuery.executeQuery();
-                while (itms.next()) {
-                    String itm = itms.getString("item");
-                    foodItems.add(itm);
+                String num = rs.getString(1);
+                if (current == null || !current.No.equals(num)) {
+                    current = new Database.order(num, rs.getString(2), new ArrayList<>());
+                    orders.add(current);
                 }
+                current.foodItems.add(rs.getString(3));
+            }
+        }
+        return orders;
+    }
 
-                newDatabase.addToDataTable(num, To, foodItems);
+    /**
+     * This method starts the transaction in which all of the day's output is written. Until
+     * @commitDay is called, the rows given to @writeDeliveries and @writeFlightpath are sent to
+     * the apache server in batches of @rowsPerBatch rows, but none of them is committed.
+     * When writing to the dated tables (see @useDatedTables), the rows of the same date are
+     * deleted first, in the same transaction.
+     * It will throw an SQL exception if the apache server is inaccessible.
+     */
+    public void beginDay() {
+        try {
+            conn.setAutoCommit(false);
+            if (outputDate != null) {
+                for (String table : new String[]{datedDeliveries, datedFlightpath}) {
+                    try (PreparedStatement psDelete = conn.prepareStatement("delete from " + table + " where deliveryDate = (?)")) {
+                        psDelete.setDate(1, outputDate);
+                        psDelete.executeUpdate();
+                    }
+                }
             }
         }catch(SQLException e){
             e.printStackTrace();
         }
     }
 
+    /**
+     * This method sends the rows still waiting in the batches and commits the day's transaction,
+     * so writing the whole day costs a handful of round trips instead of one for every row.
+     * If anything fails the transaction is rolled back, so the tables never hold half a day.
+     * It will throw an SQL exception if the apache server is inaccessible.
+     */
+    public void commitDay() {
+        try {
+            commit();
+        }catch(SQLException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Same as @commitDay, but it throws the exception that made the transaction roll back.
+     *
+     * @throws SQLException if the rows couldn't be written, after rolling the day back
+     */
+    void commit() throws SQLException {
+        try {
+            flushDeliveries();
+            flushFlightpath();
+            long start = Metrics.start();
+            conn.commit();
+            Metrics.jdbcCommitNanos.recordSince(start);
+            conn.setAutoCommit(true);
+        }catch(SQLException e){
+            try {
+                rollback();
+            }catch(SQLException r){
+                e.addSuppressed(r);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Discards the rows waiting in the batches and rolls the day's transaction back, so none of
+     * the day's rows are written.
+     *
+     * @throws SQLException if the apache server is inaccessible
+     */
+    void rollback() throws SQLException {
+        if (psDeliveries != null) {
+            psDeliveries.clearBatch();
+            psFlightpath.clearBatch();
+        }
+        pendingDeliveries = 0;
+        pendingMoves = 0;
+        try {
+            conn.rollback();
+        }finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
     /**
      * This is the method which inserts, into the 'deliveries' table we've created on the apache db, the necessary
      * information (order number, the "ThreeWords" location and the order's cost) of all the orders
      * undergone in the day.
+     * The row is added to a batch, which is sent once it holds @rowsPerBatch rows (or by @commitDay).
      * It will throw an SQL exception if the apache server is inaccessible.
      *
      * @param row , a row from the @Database's data table.
      */
     public void writeDeliveries(Database.row row) {
         try {
-            PreparedStatement psDeliveries = conn.prepareStatement("insert into deliveries values (?, ?, ?)");
-
-            psDeliveries.setString(1, row.getNo());
-            psDeliveries.setString(2, row.getThreeWords());
-            psDeliveries.setInt(3, row.getDeliveryCost());
-            psDeliveries.execute();
+            addDelivery(row.getNo(), row.getThreeWords(), row.getDeliveryCost());
         }catch(SQLException e){
             e.printStackTrace();
         }
     }
 
+    /**
+     * Same as @writeDeliveries, given the order's details instead of the @Database row, and
+     * throwing the exception instead of printing it.
+     *
+     * @param orderNo      the order number
+     * @param threeWords   the "ThreeWords" location the order was delivered to
+     * @param costInPence  the order's cost
+     * @throws SQLException if the apache server is inaccessible
+     */
+    void addDelivery(String orderNo, String threeWords, int costInPence) throws SQLException {
+        prepareInserts();
+        psDeliveries.setString(1, orderNo);
+        psDeliveries.setString(2, threeWords);
+        psDeliveries.setInt(3, costInPence);
+        if (outputDate != null) {
+            psDeliveries.setDate(4, outputDate);
+        }
+        psDeliveries.addBatch();
+        if (++pendingDeliveries >= rowsPerBatch) {
+            flushDeliveries();
+        }
+    }
+
     /**
      This is the method which inserts, into the 'flightpath' table we've created on the apache db, all the different
      moves the drone has made to deliver the orders of the day.
      It does so by, after completing a given order, updating the apache table with the coordinates
      of all the steps taken during the process.
+     The angle of every move is read from the @FlightPath, which keeps it for every step, so
+     hovering moves are stored with the angle -999.
+     The moves are added to a batch, which is sent every @rowsPerBatch rows (and by @commitDay).
      * It will throw an SQL exception if the apache server is inaccessible.
      *
      * @param row     , a row from the @Database's data table.
-     * @param moves   , the array list of @LongLat coordinates which describe the drone's movement that day
+     * @param moves   , the @FlightPath which describes the drone's movement to deliver the order
      * @param initPos , the init position at the beginning of delivering the order.
      */
-    public void writeFlightpath(Database.row row, ArrayList<LongLat> moves, LongLat initPos) {
+    public void writeFlightpath(Database.row row, FlightPath moves, LongLat initPos) {
         try {
-            PreparedStatement psFlightpath = conn.prepareStatement("insert into flightpath values (?, ?, ?, ?, ?, ?)");
-
-            String orderNo = row.getNo();
-            LongLat previousCoordinate = initPos;
-            for (LongLat move : moves) {
-                int angle = previousCoordinate.getAngle(move);
-                psFlightpath.setString(1, orderNo);
-                psFlightpath.setDouble(2, previousCoordinate.longitude);
-                psFlightpath.setDouble(3, previousCoordinate.latitude);
-                psFlightpath.setInt(4, angle);
-                psFlightpath.setDouble(5, move.longitude);
-                psFlightpath.setDouble(6, move.latitude);
-                previousCoordinate = move;
-                psFlightpath.execute();
-            }
+            addFlightpath(row.getNo(), moves, initPos, 1);
         }catch(SQLException e){
             e.printStackTrace();
         }
     }
 
+    /**
+     * Same as @writeFlightpath, given the order number instead of the @Database row, and
+     * throwing the exception instead of printing it.
+     *
+     * @param orderNo the order number
+     * @param moves   the positions the drone moved through to deliver the order
+     * @param initPos the position of the drone before delivering the order
+     * @param droneId the number of the drone, written if the table has the 'droneId' column
+     * @throws SQLException if the apache server is inaccessible
+     */
+    void addFlightpath(String orderNo, FlightPath moves, LongLat initPos, int droneId) throws SQLException {
+        prepareInserts();
+        double previousLongitude = initPos.longitude;
+        double previousLatitude = initPos.latitude;
+        for (FlightPath.cursor move = moves.cursor(); move.next(); ) {
+            int angle = move.getIndex() == 0
+                    ? initPos.getAngle(new LongLat(move.longitude, move.latitude)) : move.angle;
+            psFlightpath.setString(1, orderNo);
+            psFlightpath.setDouble(2, previousLongitude);
+            psFlightpath.setDouble(3, previousLatitude);
+            psFlightpath.setInt(4, angle);
+            psFlightpath.setDouble(5, move.longitude);
+            psFlightpath.setDouble(6, move.latitude);
+            int column = 7;
+            if (droneColumn) {
+                psFlightpath.setInt(column++, droneId);
+            }
+            if (outputDate != null) {
+                psFlightpath.setDate(column, outputDate);
+            }
+            previousLongitude = move.longitude;
+            previousLatitude = move.latitude;
+            psFlightpath.addBatch();
+            if (++pendingMoves >= rowsPerBatch) {
+                flushFlightpath();
+            }
+        }
+    }
+
+    /**
+     * Sends the 'deliveries' rows waiting in the batch to the apache server.
+     *
+     * @throws SQLException if the apache server is inaccessible
+     */
+    private void flushDeliveries() throws SQLException {
+        if (pendingDeliveries > 0) {
+            pendingDeliveries = 0;
+            long start = Metrics.start();
+            psDeliveries.executeBatch();
+            Metrics.jdbcBatchNanos.recordSince(start);
+        }
+    }
+
+    /**
+     * Sends the 'flightpath' rows waiting in the batch to the apache server.
+     *
+     * @throws SQLException if the apache server is inaccessible
+     */
+    private void flushFlightpath() throws SQLException {
+        if (pendingMoves > 0) {
+            pendingMoves = 0;
+            long start = Metrics.start();
+            psFlightpath.executeBatch();
+            Metrics.jdbcBatchNanos.recordSince(start);
+        }
+    }
+
 }
@@ -1,11 +1,18 @@
 package uk.ac.ed.inf;
 
-import com.mapbox.geojson.*;
-
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
@@ -18,179 +25,261 @@ public class App {
      */
     private final ApacheDB apacheData;
     /**
-     * This is a database containing all the orders, coordinates of pick-up and drop-off locations,
-     * and the price of all the  deliveries for the day.
-     * The database's orders will be ordered from most expensive to least expensive in order to
-     * increase the "sampled average percentage monetary value" by following a greedy-like algorithm.
+     * Everything the drone needs to plan any day: the website, the no-fly zones, the landmarks
+     * and the path-planning engine. It can be shared with other runs.
      */
-    public Database theDatabase;
+    private final PlanningContext context;
     /**
-     * Coordinates of a location where the drone is directed to optimise the flightpath.
+     * Everything that changes while the day is planned: the day's orders and, for every drone,
+     * its moves left, its position and its flightpath. The orders every drone delivers are chosen,
+     * and put first in the data table in the order they are delivered, by the @RouteOptimizer (or
+     * the @FleetOptimizer) in order to increase the "sampled average percentage monetary value".
      */
-    public static LongLat northEast = new LongLat(-3.1879, 55.9452);
+    private final PlanState state;
     /**
-     * Coordinates of a location where the drone is directed to optimise the flightpath.
+     * Where the figures of the day are printed: the sampled percentage monetary value, the pence
+     * collected for every order, the orders completed and the moves left.
      */
-    public static LongLat southWest = new LongLat(-3.1916, 55.9437);
+    private final PrintStream console;
     /**
-     * Array list of coordinates that stores the calculated flightpath.
+     * The name of the machine the webserver and the database run on.
      */
-    public static ArrayList<LongLat> finalCoordinates = new ArrayList<>();
+    static final String machineName = "localhost"; //Change this parameter to mach your machine name
     /**
-     * Counter that keeps track of the moves left.
+     * The file where the "ThreeWords" locations are kept between runs.
      */
-    public static int movesLeft = 1500;
+    public static final String geocodeFile = "geocodes.bin";
     /**
-     * The Return address (AppletonTower).
+     * If true, the .geojson file has a feature for every order delivered (with its number and
+     * cost) and one for the return to Appleton Tower, instead of a single feature for the whole
+     * day. It can be set with the 'ilp.geojson.perOrder' system property.
      */
-    public final LongLat returnAddress = new LongLat(-3.186874,55.944494);
+    public static final boolean featurePerOrder = Boolean.getBoolean("ilp.geojson.perOrder");
     /**
-     * The Current position of the drone.
+     * The number of drones that deliver the orders, each with a battery of
+     * @MapConfig.getMaxMoves moves, unless the @PlanningContext is given another number. It can
+     * be set with the 'ilp.fleet.drones' system property.
      */
-    public LongLat currentPosition;
+    public static final int fleetSize = Integer.getInteger("ilp.fleet.drones", 1);
     /**
-     * All the lines that form the no-fly zone's perimeter are stored here
+     * If set, the app runs in local mode: the website's files are read from the 'website' folder
+     * of this directory (see @LocalSite), and the database is opened with embedded Derby from its
+     * 'database' folder (see @ApacheDB.embeddedUrl), so neither the webserver nor the apache
+     * server is needed and the ports are ignored. The output tables are written into that
+     * database, so it should be a copy of the repository. It can be set with the 'ilp.local'
+     * system property.
      */
-    public static ArrayList<LongLat.line> noFlyPerimeter = new ArrayList<>();
+    public static final String localRoot = System.getProperty("ilp.local");
     /**
-     * The date of the delivery day is stored here.
+     * If set, the drone flies over the map in this folder (see @MapConfig.load) instead of the
+     * campus with the website's no-fly zones and landmarks. It can be set with the 'ilp.map'
+     * system property.
      */
-    public static String fileDate;
+    public static final String mapFolder = System.getProperty("ilp.map");
+
     /**
-     * This helps access the webpage, which is initialized using the web port.
+     * Instantiates the app for a new day, keeping the "ThreeWords" locations in the
+     * @GeocodeStore in @geocodeFile, which stays open until the JVM exits.
+     *
+     * @param day          the day
+     * @param month        the month
+     * @param year         the year
+     * @param webPort      the web port
+     * @param databasePort the database port
      */
-    public static Website actualWeb;
+    public App(String day, String month, String year, int webPort, int databasePort) {
+        this(day, month, year, webPort, databasePort, openGeocodeStore());
+    }
 
     /**
-     * Instantiates the app for a new day.
+     * Instantiates the app for a new day, keeping the "ThreeWords" locations in the given
+     * @GeocodeStore, which the caller closes.
      *
      * @param day          the day
      * @param month        the month
      * @param year         the year
      * @param webPort      the web port
      * @param databasePort the database port
+     * @param geocodeStore the store of "ThreeWords" locations, or null to always use the webserver
      */
-    public App(String day, String month, String year, int webPort, int databasePort) {
-        String machineName = "localhost"; //Change this parameter to mach your machine name
-        this.apacheData = new ApacheDB(machineName, String.valueOf(databasePort));
-        actualWeb = new Website(machineName, String.valueOf(webPort));
-        noFlyPerimeter = actualWeb.getNoFlyPerimeter();
-        this.currentPosition = returnAddress;
-        this.theDatabase = new Database(actualWeb);
-        fileDate = day+"-"+month+"-"+year;
-        apacheData.getDayOrders(Date.valueOf(year+"-"+month+"-"+day), theDatabase);
-        theDatabase.greedyTable();
+    public App(String day, String month, String year, int webPort, int databasePort, GeocodeStore geocodeStore) {
+        this(PlanningContext.load(localRoot != null ? new Website(Paths.get(localRoot, "website"), geocodeStore)
+                        : new Website(machineName, String.valueOf(webPort), geocodeStore)),
+                new ApacheDB(localRoot != null ? ApacheDB.embeddedUrl(Paths.get(localRoot, "database"))
+                        : ApacheDB.networkUrl(machineName, String.valueOf(databasePort)), true, fleetSize > 1),
+                Date.valueOf(year+"-"+month+"-"+day).toLocalDate());
     }
 
     /**
-     * Checks if the move is allowed, i.e. if the move makes the drone enter
-     * a no-fly zone or if it makes the drone get outside the allowed area it
-     * will return false.
+     * Instantiates the app for a new day, planned with a context that can be shared with other
+     * days. The day's orders are read from the database and the orders to deliver are chosen.
      *
-     * It checks if the drone is getting into the no-fly area by checking if the drone
-     * move will cross any of the lines that compose the perimeter in @noFlyPerimeter
+     * @param context    the context shared by every day
+     * @param apacheData the database the day's orders are read from and its output is written to
+     * @param date       the day
+     */
+    public App(PlanningContext context, ApacheDB apacheData, LocalDate date) {
+        this(context, apacheData, date, System.out);
+    }
+
+    /**
+     * Instantiates the app for a new day, like @App(PlanningContext, ApacheDB, LocalDate), but
+     * prints the figures of the day to the given stream. The @BatchPlanner gives a stream that
+     * discards them, since the days it plans at the same time would mix up their lines.
      *
-     * @param initialPos the input arguments
-     * @param nextPos the input arguments
-     * @return true if the move is legal and false if it is illegal
+     * @param context    the context shared by every day
+     * @param apacheData the database the day's orders are read from and its output is written to
+     * @param date       the day
+     * @param console    the stream the figures of the day are printed to
      */
-    private static boolean isMoveGood(LongLat initialPos, LongLat nextPos){
-        if (!nextPos.isConfined()){
-            return false;
-        }
-        for (LongLat.line l : noFlyPerimeter){
-            if (LongLat.doesIntersect(initialPos, nextPos,l.getStartPoint(),l.getEndPoint())){
-                return false;
-            }
-        }
-        return true;
+    public App(PlanningContext context, ApacheDB apacheData, LocalDate date, PrintStream console) {
+        this.context = context;
+        this.apacheData = apacheData;
+        this.console = console;
+        int[] budgets = new int[context.getFleetSize()];
+        Arrays.fill(budgets, context.getMap().getMaxMoves());
+        this.state = new PlanState(context, date, budgets);
+        Database theDatabase = state.getDatabase();
+        apacheData.getDayOrders(Date.valueOf(date), theDatabase);
+        theDatabase.greedyTable();
+        optimizeTable();
     }
 
     /**
-     * It calculates the desired step direction to reach the destination (finalPos).
-     * If the desired angle makes the move not legal it will select the next best angle
-     * until the move is legal.
+     * Getter that returns the context the day is planned with.
      *
-     * @param initialPos the input arguments
-     * @param finalPos the input arguments
-     * @return the most appropriate angle value
+     * @return the context
+     */
+    public PlanningContext getContext() {
+        return context;
+    }
+
+    /**
+     * Getter that returns the state of the day.
+     *
+     * @return the state
      */
-    private static int goodAngle(LongLat initialPos, LongLat finalPos){
-        int angleInt = initialPos.getAngle(finalPos);
+    public PlanState getState() {
+        return state;
+    }
 
-        for (int i=0; i<18;i++){
-            if (isMoveGood(initialPos, initialPos.nextPosition(angleInt + i*10))){
-                return angleInt+(i*10);
+    /**
+     * Chooses which orders the drone delivers, and in which order, with the @RouteOptimizer over
+     * the @LegCostMatrix of the day, and puts them first in the data table. It prints the
+     * "sampled percentage monetary value" of the chosen route and of the greedy one (the orders
+     * tried from the most to the least expensive).
+     *
+     * With a fleet of drones the orders are shared between them by the @FleetOptimizer, and the
+     * routes are put in the data table one after the other, in the order of the drones.
+     *
+     * The matrix is planned in parallel by the context's planner, and then its legs are added to
+     * every drone's @LegCache, so the cache (and the day's flightpath) doesn't depend on the order
+     * in which the legs were planned.
+     */
+    private void optimizeTable(){
+        long start = Metrics.start();
+        Database theDatabase = state.getDatabase();
+        int orders = theDatabase.getSize();
+        LongLat home = context.getMap().getHome();
+        LegCostMatrix legs = LegCostMatrix.forDay(context.getPlanner(), home, theDatabase, true);
+        for (DroneState drone : state.getDrones()){
+            drone.getLegCache().addAll(legs);
+        }
+        ArrayList<ArrayList<LongLat>> stops = new ArrayList<>();
+        int[] prize = new int[orders];
+        int total = 0;
+        for (int i=0;i<orders;i++){
+            Database.row row = theDatabase.getDataTableRow(i);
+            ArrayList<LongLat> places = distanceOrder(row.getPickups(), row.getDeliverTo());
+            places.add(row.getDeliverTo());
+            stops.add(places);
+            prize[i] = row.getDeliveryCost();
+            total += prize[i];
+        }
+        int drones = state.getDrones().size();
+        RouteOptimizer optimizer = RouteOptimizer.forDay(legs, home, stops, prize,
+                state.getDrone(0).getBudget());
+        int[][] routes;
+        if (drones == 1){
+            routes = new int[][]{optimizer.solve(context.getIterationBudget(), context.getTimeBudget())};
+            if (total > 0){
+                console.printf("Sampled percentage monetary value: %.2f%% (greedy %.2f%%)%n",
+                        100.0 * optimizer.value(routes[0]) / total, 100.0 * optimizer.value(optimizer.greedy()) / total);
+            }
+        } else {
+            int[] budgets = new int[drones];
+            for (int d = 0; d < drones; d++){
+                budgets[d] = state.getDrone(d).getBudget();
+            }
+            FleetOptimizer fleet = new FleetOptimizer(optimizer, budgets);
+            routes = fleet.solve(context.getIterationBudget(), context.getTimeBudget());
+            if (total > 0){
+                console.printf("Sampled percentage monetary value: %.2f%% with %d drones (drone 1 %.2f%%)%n",
+                        100.0 * fleet.value(routes) / total, drones, 100.0 * optimizer.value(routes[0]) / total);
             }
-            if (isMoveGood(initialPos, initialPos.nextPosition(angleInt - i*10))){
-                return angleInt-(i*10);
+        }
+        int[] sequence = new int[0];
+        for (int[] route : routes){
+            int length = sequence.length;
+            sequence = Arrays.copyOf(sequence, length + route.length);
+            System.arraycopy(route, 0, sequence, length, route.length);
+        }
+        theDatabase.sequenceTable(sequence);
+        int offset = 0;
+        for (int d = 0; d < drones; d++){
+            ArrayList<Database.row> route = new ArrayList<>();
+            for (int i = offset; i < offset + routes[d].length; i++){
+                route.add(theDatabase.getDataTableRow(i));
             }
+            state.getDrone(d).setRoute(route);
+            offset += routes[d].length;
         }
-        return angleInt;
+        Metrics.routeNanos.recordSince(start);
     }
 
     /**
-     * If we detect that the drone will take a non-optimum path (i.e. if the drone
-     * starts making moves that will make him take longer to get to the destination or
-     * even start looping), this function will provide the drone with a more appropriate
-     * guideline for the path using the intermediate points @southwest or @northeast
+     * Opens the @GeocodeStore in @geocodeFile. If it can't be opened the app carries on
+     * requesting every location from the webserver.
      *
-     * @param initialPos the input arguments
-     * @param finalPos the input arguments
-     * @return the most appropriate optimal path to the destination.
+     * @return the store, or null if it can't be opened
      */
-    private static ArrayList<LongLat> willDetour(LongLat initialPos, LongLat finalPos){
-        if (initialPos.distanceTo(southWest) < initialPos.distanceTo(northEast)){
-            ArrayList<LongLat> total = movementsCalculator(initialPos, southWest);
-            total.addAll(movementsCalculator(southWest, finalPos));
-            return total;
-        }else{
-            ArrayList<LongLat> total = movementsCalculator(initialPos, northEast);
-            total.addAll(movementsCalculator(northEast, finalPos));
-            return total;
+    static GeocodeStore openGeocodeStore(){
+        try {
+            return new GeocodeStore(Paths.get(geocodeFile));
+        } catch (IOException e) {
+            System.err.println("Geocode store IO Exception Error: \n" + e);
+            return null;
         }
     }
 
     /**
-     * This function recursively finds the steps for the flightpath of the drone by using the
-     * function @goodAngle. It will detect if the drone is taking too long to get to the desired location,
-     * and if so, it will select another path using willDetour.
-     * When the drone arrives to @finalPos (it's 'close') it will add the hovering step and conclude the
-     * flightpath.
+     * Closes a @GeocodeStore opened by @openGeocodeStore, so every location written to it is
+     * kept for the next run.
      *
-     * @param initialPos the input arguments
-     * @param finalPos the input arguments
-     * @param movements empty list where the movements will be stored
-     * @return the flightpath that takes the drone to @finalPos
+     * @param geocodeStore the store, or null if it couldn't be opened
      */
-    private static ArrayList<LongLat> movementRecursion(LongLat initialPos,
-                                                        LongLat finalPos, ArrayList<LongLat> movements){
-        if (movements.size()>100){
-            return willDetour(movements.get(0),finalPos);
+    static void closeGeocodeStore(GeocodeStore geocodeStore){
+        if (geocodeStore == null){
+            return;
         }
-        if(!initialPos.closeTo(finalPos)) {
-            int Angle = goodAngle(initialPos,finalPos);
-            LongLat nextPosition = initialPos.nextPosition(Angle);
-            movements.add(nextPosition);
-            return movementRecursion(nextPosition, finalPos, movements);
-        }else{
-            movements.add(movements.get(movements.size()-1));
-            return movements;
+        try {
+            geocodeStore.close();
+        } catch (IOException e) {
+            System.err.println("Geocode store IO Exception Error: \n" + e);
         }
     }
 
     /**
-     * Method needed to initiate the @movementRecursion function, it
-     * provides the empty list where the movements are stored.
+     * Method that calculates the flightpath of a single leg using the context's planner, through
+     * the drone's @LegCache.
      *
+     * @param drone the drone that flies the leg
      * @param initialPos the input arguments
      * @param finalPos the input arguments
-     * @return the flightpath plotted by movementRecursion
+     * @return the flightpath plotted by the planner
      */
-    private static ArrayList<LongLat> movementsCalculator(LongLat initialPos, LongLat finalPos){
-        ArrayList<LongLat> movements = new ArrayList<>();
-        movements.add(initialPos);
-        return movementRecursion(initialPos, finalPos, movements);
+    private static ArrayList<LongLat> movementsCalculator(DroneState drone, LongLat initialPos, LongLat finalPos){
+        return drone.getLegCache().plan(initialPos, finalPos);
     }
 
     /**
@@ -202,7 +291,7 @@ public class App {
      * @param deliveryPlace the place where the drone has to drop-of
      * @return list of ordered location where the drone has to go
      */
-    private static ArrayList<LongLat> distanceOrder(ArrayList<LongLat> pickups, LongLat deliveryPlace){
+    static ArrayList<LongLat> distanceOrder(ArrayList<LongLat> pickups, LongLat deliveryPlace){
         ArrayList<LongLat> orderedDistances = new ArrayList<>();
         if (pickups.size() == 2){
             if (deliveryPlace.distanceTo(pickups.get(0))< deliveryPlace.distanceTo(pickups.get(1))){
@@ -223,79 +312,176 @@ public class App {
      * places the drone should go for each order. It decides the order of the pick-up
      * places using @distanceOrder
      *
+     * @param drone the drone that delivers the order
+     * @param currentPosition where the drone starts the order from, which is where it is unless
+     *                        the order is planned ahead (see @Replanner)
      * @param row the input arguments
-     * @return the places the drone must go to pick-up and drop-off in optimal order.
+     * @return the flightpath that takes the drone to the pick-up and drop-off places in optimal order.
      */
-    private ArrayList<LongLat> orderFlight(Database.row row){
+    static FlightPath orderFlight(DroneState drone, LongLat currentPosition, Database.row row){
         ArrayList<LongLat> orderedPickups = distanceOrder(row.getPickups(), row.getDeliverTo());
-        ArrayList<LongLat> movements = new ArrayList<>();
+        FlightPath movements = new FlightPath();
         if (orderedPickups.size() == 2){
-            movements.addAll(movementsCalculator(currentPosition,orderedPickups.get(0)));
-            movements.addAll(movementsCalculator(orderedPickups.get(0),orderedPickups.get(1)));
-            movements.addAll(movementsCalculator(orderedPickups.get(1),row.getDeliverTo()));
+            movements.addAll(movementsCalculator(drone, currentPosition,orderedPickups.get(0)));
+            movements.addAll(movementsCalculator(drone, orderedPickups.get(0),orderedPickups.get(1)));
+            movements.addAll(movementsCalculator(drone, orderedPickups.get(1),row.getDeliverTo()));
         }else{
-            movements.addAll(movementsCalculator(currentPosition, orderedPickups.get(0)));
-            movements.addAll(movementsCalculator(orderedPickups.get(0),row.getDeliverTo()));
+            movements.addAll(movementsCalculator(drone, currentPosition, orderedPickups.get(0)));
+            movements.addAll(movementsCalculator(drone, orderedPickups.get(0),row.getDeliverTo()));
         }
         return movements;
     }
 
     /**
-     * This method will use all the previous methods in this class to store into @finalCoordinates
-     * the flightpath for each order, and it will update the @movesLeft.
-     * Before completing each order it will check if the drone will have enough moves left to go
-     * back to Appleton Tower. When there aren't any more orders that can be delivered with the
-     * moves left, or after completing all the orders, it sends the drone back to @returnAddress.
+     * This method will use all the previous methods in this class to store into the day's
+     * @PlanState the flightpath for each order, and it will update the moves left.
+     * Every drone delivers the orders chosen for it by @optimizeTable, in their order (see @fly).
+     * With a fleet, the drones are planned at the same time, each on its own thread.
      *
      * This function also updates the apache database with the new orders and moves the drone undertakes.
+     * They are handed to a @DeliveryWriter, which writes them on its own thread while the next
+     * orders are planned, and commits the whole day once planning is over.
      *
      */
     public void flightPlanner() {
-        int orders = theDatabase.getSize();
-        ArrayList<LongLat> moves;
+        long start = Metrics.start();
+        Database theDatabase = state.getDatabase();
+        try (DeliveryWriter writer = new DeliveryWriter(apacheData)) {
+            if (state.getDrones().size() == 1){
+                fly(state.getDrone(0), writer, console);
+            } else {
+                ExecutorService pool = Executors.newFixedThreadPool(state.getDrones().size());
+                try {
+                    ArrayList<Future<?>> flights = new ArrayList<>();
+                    for (DroneState drone : state.getDrones()){
+                        flights.add(pool.submit(() -> {
+                            fly(drone, writer, console);
+                            return null;
+                        }));
+                    }
+                    for (Future<?> flight : flights){
+                        flight.get();
+                    }
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof SQLException){
+                        throw (SQLException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }catch(SQLException e){
+            e.printStackTrace();
+        }
+        Metrics.flightNanos.recordSince(start);
+        console.println(theDatabase.getSize() + " orders completed");
+        console.println(state.getMovesLeft() + " moves left");
+        if (state.getDrones().size() > 1){
+            for (DroneState drone : state.getDrones()){
+                console.println("Drone " + drone.getDroneId() + ": " + drone.getDelivered() +
+                        " orders delivered, " + drone.getMovesLeft() + " moves left");
+            }
+        }
+    }
+
+    /**
+     * Flies a drone along its route. Before completing each order it will check if the drone will
+     * have enough moves left to go back to Appleton Tower. An order with a leg the planner can't
+     * fly is skipped the same way (see @LegCostMatrix.unreachable). After completing all the
+     * orders, it sends the drone back to Appleton Tower.
+     *
+     * @param drone   the drone
+     * @param writer  the writer its orders and moves are handed to
+     * @param console the stream the pence collected for every order are printed to
+     * @throws SQLException if writing an earlier order failed
+     */
+    private static void fly(DroneState drone, DeliveryWriter writer, PrintStream console) throws SQLException {
+        FlightPath moves;
         int movesSpent;
         LongLat finalPosition;
-        LongLat previousFinalPosition = returnAddress;
+        LongLat previousFinalPosition = drone.getHome();
         ArrayList<LongLat> movesNeededToReturn = new ArrayList<>();
-        for (int i=0;i<orders;i++){
-            moves = orderFlight(theDatabase.getDataTableRow(i));
-            movesSpent = moves.size();
-            finalPosition = moves.get(movesSpent - 1);
-            movesNeededToReturn = movementsCalculator(finalPosition,returnAddress);
-            int remainingMoves = movesLeft - movesSpent;
-            if (movesNeededToReturn.size() < remainingMoves){
-                finalCoordinates.addAll(moves);
-                currentPosition = finalPosition;
-                movesLeft = movesLeft - movesSpent;
-                apacheData.writeDeliveries(theDatabase.getDataTableRow(i));
-                apacheData.writeFlightpath(theDatabase.getDataTableRow(i), moves, previousFinalPosition);
-                previousFinalPosition = finalPosition;
-                System.out.println(theDatabase.getDataTableRow(i).getDeliveryCost() + " pence collected");
+        try {
+            for (Database.row row : drone.getRoute()){
+                ArrayList<LongLat> returning;
+                try {
+                    moves = orderFlight(drone, drone.getCurrentPosition(), row);
+                    returning = movementsCalculator(drone, moves.getLast(), drone.getHome());
+                } catch (IllegalStateException e) {
+                    Metrics.unreachableLegs.increment();
+                    System.err.println("Order " + row.getNo() + " skipped: " + e.getMessage());
+                    continue;
+                }
+                movesSpent = moves.size();
+                finalPosition = moves.getLast();
+                int remainingMoves = drone.getMovesLeft() - movesSpent;
+                if (returning.size() < remainingMoves){
+                    //the way back starts where the last order delivered ends, not a skipped one
+                    movesNeededToReturn = returning;
+                    drone.deliver(row, moves);
+                    writer.write(row, moves, previousFinalPosition, drone.getDroneId());
+                    previousFinalPosition = finalPosition;
+                    console.println(row.getDeliveryCost() + " pence collected");
+                }
             }
+        } finally {
+            drone.returnHome(movesNeededToReturn);
         }
-        finalCoordinates.addAll(movesNeededToReturn);
-        System.out.println(theDatabase.getSize() + " orders completed");
-        System.out.println(movesLeft + " moves left");
     }
 
     /**
-     * This method generates the .geojson file which helps visualize the flightpath of the drone
+     * This method generates the .geojson file which helps visualize the flightpath of the drone.
+     * The positions are streamed from the day's flightpath to the file by a @GeoJsonWriter, as a
+     * single feature or, if @featurePerOrder is set, as a feature for every order. With a fleet,
+     * every drone has its own feature (or features), with its number in the properties.
      *
      * It will catch the IO exception.
      */
     public void gsonDocGenerator() {
-        try {
-            ArrayList<Point> pointsList = new ArrayList<>();
-            for (LongLat point : finalCoordinates) {
-                pointsList.add(Point.fromLngLat(point.longitude, point.latitude));
+        gsonDocGenerator(Paths.get(""));
+    }
+
+    /**
+     * Same as @gsonDocGenerator, but the file is generated in the given directory.
+     *
+     * @param directory the directory
+     */
+    public void gsonDocGenerator(Path directory) {
+        gsonDocGenerator(directory, featurePerOrder);
+    }
+
+    /**
+     * Same as @gsonDocGenerator, but the file is generated in the given directory, with a feature
+     * for every order if @perOrder is true instead of as set by @featurePerOrder.
+     *
+     * @param directory the directory
+     * @param perOrder  true to have a feature for every order
+     */
+    public void gsonDocGenerator(Path directory, boolean perOrder) {
+        try (GeoJsonWriter writer = new GeoJsonWriter(directory.resolve("drone-" + state.getFileDate() + ".geojson"))) {
+            boolean fleet = state.getDrones().size() > 1;
+            for (DroneState drone : state.getDrones()) {
+                int droneId = fleet ? drone.getDroneId() : 0;
+                int order = 0;
+                writer.beginFeature();
+                for (FlightPath.cursor point = drone.getFlightpath().cursor(); point.next(); ) {
+                    writer.point(point.longitude, point.latitude);
+                    if (perOrder && order < drone.getDelivered()
+                            && point.getIndex() + 1 == drone.getDeliveredEnd(order)) {
+                        Database.row row = drone.getDeliveredOrder(order++);
+                        writer.endFeature(row.getNo(), row.getDeliveryCost(), droneId);
+                        writer.beginFeature();
+                    }
+                }
+                if (fleet) {
+                    writer.endFeature(droneId);
+                } else {
+                    writer.endFeature();
+                }
             }
-            LineString line = LineString.fromLngLats(pointsList);
-            Feature feature = Feature.fromGeometry(line);
-            FeatureCollection collection = FeatureCollection.fromFeature(feature);
-            String flightPath = collection.toJson();
-            FileWriter file = new FileWriter("drone-" + fileDate + ".geojson");
-            file.write(flightPath);
-            file.close();
         } catch (IOException e) {
             System.err.println("Fatal IO Exception Error: \n" + e);
             System.exit(1);
@@ -303,14 +489,30 @@ public class App {
     }
 
     /**
-     * The entry point of the application.
+     * The entry point of the application. It plans a single day, given as: day month year
+     * webPort databasePort. If the first argument is '--batch', the rest are passed to
+     * @BatchPlanner.main to plan a range of days instead. See @localRoot to run it without the
+     * webserver and the apache server, and @Metrics to keep metrics of the run.
      *
      * @param args the input arguments
      */
     public static void main(String[] args) {
-        App trial = new App(args[0],args[1], args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]));
-        trial.flightPlanner();
-        trial.gsonDocGenerator();
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchPlanner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        GeocodeStore geocodeStore = openGeocodeStore();
+        try {
+            App trial = new App(args[0],args[1], args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]), geocodeStore);
+            trial.flightPlanner();
+            trial.gsonDocGenerator();
+        } finally {
+            closeGeocodeStore(geocodeStore);
+        }
+        if (localRoot != null){
+            ApacheDB.shutdownEmbedded();
+        }
+        Metrics.dumpAtExit();
     }
 
 }
@@ -0,0 +1,221 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * The BatchPlanner class, which plans several days at the same time in one JVM, for instance to
+ * plan the whole history again after the no-fly zones or the menus change.
+ *
+ * Every day is planned by its own @App on a thread of a fixed pool, with its own @PlanState and
+ * its own connection to the apache database, while the @PlanningContext (the website with its
+ * caches, the no-fly zones and the visibility graph) is loaded once and shared by all of them.
+ * The days are planned exactly as they would be one at a time, so the .geojson files are the same.
+ *
+ * The days are written to the dated tables of @ApacheDB (see @ApacheDB.useDatedTables), so
+ * every day replaces its own rows and leaves the other days alone. The lines every @App prints
+ * while its day is planned are discarded, as the days would mix them up, and the figures of every
+ * day are printed by the @BatchReport instead.
+ */
+public class BatchPlanner {
+    /**
+     * The default number of days planned at the same time. It can be changed with the
+     * 'ilp.batch.threads' system property.
+     */
+    public static final int defaultThreads = Integer.getInteger("ilp.batch.threads", Runtime.getRuntime().availableProcessors());
+
+    //class variables
+    private final PlanningContext context;
+    private final String databaseUrl;
+    private final Path outputDirectory;
+
+    /**
+     * Class constructor, the .geojson files are generated in the working directory.
+     *
+     * @param context      the context shared by every day
+     * @param machineName  the machine the database runs on
+     * @param databasePort the database's port
+     */
+    public BatchPlanner(PlanningContext context, String machineName, String databasePort) {
+        this(context, machineName, databasePort, Paths.get(""));
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param context         the context shared by every day
+     * @param machineName     the machine the database runs on
+     * @param databasePort    the database's port
+     * @param outputDirectory the directory the .geojson files are generated in
+     */
+    public BatchPlanner(PlanningContext context, String machineName, String databasePort, Path outputDirectory) {
+        this(context, ApacheDB.networkUrl(machineName, databasePort), outputDirectory);
+    }
+
+    /**
+     * Class constructor, for a database given by its JDBC url (see @ApacheDB.networkUrl and
+     * @ApacheDB.embeddedUrl).
+     *
+     * @param context         the context shared by every day
+     * @param databaseUrl     the JDBC url of the database
+     * @param outputDirectory the directory the .geojson files are generated in
+     */
+    public BatchPlanner(PlanningContext context, String databaseUrl, Path outputDirectory) {
+        this.context = context;
+        this.databaseUrl = databaseUrl;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Plans the days, @defaultThreads at a time.
+     *
+     * @param dates the days
+     * @return the state of every day, in the same order as @dates
+     */
+    public List<PlanState> planDays(List<LocalDate> dates) {
+        return planDays(dates, defaultThreads);
+    }
+
+    /**
+     * Plans the days at the same time on a pool of threads (see @run).
+     *
+     * @param dates   the days
+     * @param threads the number of days planned at the same time
+     * @return the state of every day, in the same order as @dates (null for a day that failed,
+     * whose error is printed)
+     */
+    public List<PlanState> planDays(List<LocalDate> dates, int threads) {
+        return run(dates, threads).getStates();
+    }
+
+    /**
+     * Plans the days at the same time on a pool of threads. The dated tables are created if they
+     * don't exist, and then every day writes its orders and moves to them in its own transaction,
+     * and generates its own .geojson file.
+     *
+     * @param dates   the days
+     * @param threads the number of days planned at the same time
+     * @return the report of the batch, with the days in the same order as @dates
+     */
+    public BatchReport run(List<LocalDate> dates, int threads) {
+        threads = Math.max(1, threads);
+        long start = System.nanoTime();
+        ApacheDB tables = new ApacheDB(databaseUrl, false, false);
+        tables.createDatedTables();
+        tables.close();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<PlanState>> days = new ArrayList<>();
+        ArrayList<long[]> times = new ArrayList<>();
+        for (LocalDate date : dates){
+            long[] time = new long[1];
+            times.add(time);
+            days.add(pool.submit(() -> {
+                long dayStart = System.nanoTime();
+                try {
+                    return planDay(date);
+                } finally {
+                    time[0] = System.nanoTime() - dayStart;
+                }
+            }));
+        }
+        ArrayList<PlanState> states = new ArrayList<>();
+        try {
+            for (Future<PlanState> day : days){
+                try {
+                    states.add(day.get());
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    states.add(null);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+        pool.shutdown();
+        BatchReport report = new BatchReport(threads, System.nanoTime() - start);
+        for (int i = 0; i < states.size(); i++){
+            report.add(dates.get(i), states.get(i), times.get(i)[0]);
+        }
+        return report;
+    }
+
+    /**
+     * Plans a single day with its own connection to the database.
+     *
+     * @param date the day
+     * @return the state of the day once it has been planned
+     */
+    private PlanState planDay(LocalDate date) {
+        ApacheDB apacheData = new ApacheDB(databaseUrl, false, false);
+        try {
+            apacheData.useDatedTables(java.sql.Date.valueOf(date));
+            App day = new App(context, apacheData, date, new PrintStream(OutputStream.nullOutputStream()));
+            day.flightPlanner();
+            day.gsonDocGenerator(outputDirectory);
+            return day.getState();
+        } finally {
+            apacheData.close();
+        }
+    }
+
+    /**
+     * The entry point of the batch mode. The arguments are: the first and the last day, as
+     * year-month-day, the web port, the database port, and optionally the number of days planned
+     * at the same time and the directory the .geojson files are generated in. The menus, the
+     * no-fly zones and the landmarks are loaded once, before the first day, and the report of the
+     * batch is printed at the end. In local mode (see @App.localRoot) the ports are ignored.
+     *
+     * @param args the input arguments
+     */
+    public static void main(String[] args) {
+        LocalDate first = LocalDate.parse(args[0]);
+        LocalDate last = LocalDate.parse(args[1]);
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : defaultThreads;
+        Path outputDirectory = Paths.get(args.length > 5 ? args[5] : "");
+        try {
+            Files.createDirectories(outputDirectory.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Fatal IO Exception Error: \n" + e);
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        GeocodeStore geocodeStore = App.openGeocodeStore();
+        try {
+            Website website = App.localRoot != null
+                    ? new Website(Paths.get(App.localRoot, "website"), geocodeStore)
+                    : new Website(App.machineName, args[2], geocodeStore);
+            PlanningContext context = PlanningContext.load(website);
+            website.getMenuIndex();
+            System.out.printf("Static data loaded in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+            ArrayList<LocalDate> dates = new ArrayList<>();
+            for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)){
+                dates.add(date);
+            }
+            String databaseUrl = App.localRoot != null ? ApacheDB.embeddedUrl(Paths.get(App.localRoot, "database"))
+                    : ApacheDB.networkUrl(App.machineName, args[3]);
+            BatchReport report = new BatchPlanner(context, databaseUrl, outputDirectory).run(dates, threads);
+            report.print(System.out);
+        } finally {
+            App.closeGeocodeStore(geocodeStore);
+        }
+        if (App.localRoot != null){
+            ApacheDB.shutdownEmbedded();
+        }
+        Metrics.dumpAtExit();
+    }
+}
@@ -0,0 +1,187 @@
+package uk.ac.ed.inf;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The BatchReport class, which keeps the outcome of every day planned by a @BatchPlanner and
+ * how long it took, and prints them with the throughput of the whole batch.
+ */
+public class BatchReport {
+    /**
+     * A day of the batch.
+     */
+    private static class day {
+        private final LocalDate date;
+        private final PlanState state;
+        private final long nanos;
+
+        private day(LocalDate date, PlanState state, long nanos) {
+            this.date = date;
+            this.state = state;
+            this.nanos = nanos;
+        }
+    }
+
+    //class variables
+    private final ArrayList<day> days = new ArrayList<>();
+    private final int threads;
+    private final long wallNanos;
+
+    /**
+     * Class constructor.
+     *
+     * @param threads   the number of days planned at the same time
+     * @param wallNanos the time it took to plan the whole batch, in nanoseconds
+     */
+    BatchReport(int threads, long wallNanos) {
+        this.threads = threads;
+        this.wallNanos = wallNanos;
+    }
+
+    /**
+     * Adds a day to the report.
+     *
+     * @param date  the day
+     * @param state the state of the day once it was planned, or null if it failed
+     * @param nanos the time it took to plan it, in nanoseconds
+     */
+    void add(LocalDate date, PlanState state, long nanos) {
+        days.add(new day(date, state, nanos));
+    }
+
+    /**
+     * Getter that returns the state of every day, in the order they were added.
+     *
+     * @return the states (null for the days that failed)
+     */
+    public List<PlanState> getStates() {
+        ArrayList<PlanState> states = new ArrayList<>();
+        for (day d : days){
+            states.add(d.state);
+        }
+        return states;
+    }
+
+    /**
+     * Getter that returns the number of days in the batch.
+     *
+     * @return the number of days
+     */
+    public int getDays() {
+        return days.size();
+    }
+
+    /**
+     * Getter that returns the number of days that couldn't be planned.
+     *
+     * @return the number of days
+     */
+    public int getFailures() {
+        int failures = 0;
+        for (day d : days){
+            if (d.state == null){
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Getter that returns the number of orders of all the days that were planned.
+     *
+     * @return the number of orders
+     */
+    public int getOrders() {
+        int orders = 0;
+        for (day d : days){
+            if (d.state != null){
+                orders += d.state.getDatabase().getSize();
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Getter that returns the number of orders delivered on all the days.
+     *
+     * @return the number of orders
+     */
+    public int getDelivered() {
+        int delivered = 0;
+        for (day d : days){
+            if (d.state != null){
+                delivered += d.state.getDelivered();
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Getter that returns the money collected on all the days.
+     *
+     * @return the money collected, in pence
+     */
+    public long getCollected() {
+        long pence = 0;
+        for (day d : days){
+            if (d.state != null){
+                pence += d.state.getCollected();
+            }
+        }
+        return pence;
+    }
+
+    /**
+     * Getter that returns the time it took to plan the whole batch.
+     *
+     * @return the time, in milliseconds
+     */
+    public long getWallMillis() {
+        return wallNanos / 1_000_000;
+    }
+
+    /**
+     * Getter that returns the number of days planned per second.
+     *
+     * @return the days per second
+     */
+    public double getDaysPerSecond() {
+        return wallNanos == 0 ? 0 : days.size() * 1e9 / wallNanos;
+    }
+
+    /**
+     * Getter that returns the number of orders planned per second.
+     *
+     * @return the orders per second
+     */
+    public double getOrdersPerSecond() {
+        return wallNanos == 0 ? 0 : getOrders() * 1e9 / wallNanos;
+    }
+
+    /**
+     * Prints a line for every day and the totals and throughput of the batch.
+     *
+     * @param out the stream it is printed to
+     */
+    public void print(PrintStream out) {
+        out.println("date       orders delivered  pence movesLeft     ms");
+        long planningNanos = 0;
+        for (day d : days){
+            planningNanos += d.nanos;
+            if (d.state == null){
+                out.printf("%s failed %38d%n", d.date, d.nanos / 1_000_000);
+            } else {
+                out.printf("%s %6d %9d %6d %9d %6d%n", d.date, d.state.getDatabase().getSize(),
+                        d.state.getDelivered(), d.state.getCollected(), d.state.getMovesLeft(), d.nanos / 1_000_000);
+            }
+        }
+        out.printf("%d days (%d failed) in %d ms on %d threads: %.2f days/s, %.1f orders/s%n",
+                days.size(), getFailures(), getWallMillis(), threads, getDaysPerSecond(), getOrdersPerSecond());
+        out.printf("%d of %d orders delivered, %d pence collected, %d ms spent planning the days%n",
+                getDelivered(), getOrders(), getCollected(), planningNanos / 1_000_000);
+    }
+}
@@ -52,6 +52,26 @@ public class Database{
         DataTable.add(newRow);
     }
 
+    /**
+     * Setter that adds the information of all the day's orders to the data table. Before building
+     * the rows it asks the @Website to load every location the orders need at once (see
+     * @Website.prefetch), so building each row only needs lookups in memory.
+     *
+     * @param orders the day's orders
+     */
+    public void addAllToDataTable(ArrayList<order> orders) {
+        ArrayList<String> deliveries = new ArrayList<>();
+        ArrayList<String> items = new ArrayList<>();
+        for (order o : orders){
+            deliveries.add(o.DeliverTo);
+            items.addAll(o.foodItems);
+        }
+        ActualWeb.prefetch(deliveries, items);
+        for (order o : orders){
+            addToDataTable(o.No, o.DeliverTo, o.foodItems);
+        }
+    }
+
     /**
      * Method that returns the number of rows (number of deliveries), stored in the data table
      *
@@ -61,6 +81,38 @@ public class Database{
         return DataTable.size();
     }
 
+    /**
+     * The inner class order, which stores an order as it is read from the apache database,
+     * before its locations and price are known.
+     */
+    public static class order{
+        /**
+         * The order number.
+         */
+        public final String No;
+        /**
+         * The drop-off "ThreeWords" location.
+         */
+        public final String DeliverTo;
+        /**
+         * The order's food items.
+         */
+        public final ArrayList<String> foodItems;
+
+        /**
+         * Class constructor for order.
+         *
+         * @param No        the order number
+         * @param DeliverTo the drop-off "ThreeWords" location
+         * @param foodItems the order's food items
+         */
+        public order(String No, String DeliverTo, ArrayList<String> foodItems) {
+            this.No = No;
+            this.DeliverTo = DeliverTo;
+            this.foodItems = foodItems;
+        }
+    }
+
     /**
      * Inner class which is used to compare @row based on the cost of the order stored in each row.
      */
@@ -80,6 +132,28 @@ public class Database{
         Collections.reverse(list);
     }
 
+    /**
+     * Method that puts the given rows first in the data table, in the given order. The rest of
+     * the rows go after them, in the order they were.
+     *
+     * @param sequence the numbers of the rows that go first
+     */
+    public void sequenceTable(int[] sequence){
+        ArrayList<row> list = new ArrayList<>();
+        boolean[] chosen = new boolean[DataTable.size()];
+        for (int i : sequence){
+            list.add(DataTable.get(i));
+            chosen[i] = true;
+        }
+        for (int i = 0; i < DataTable.size(); i++){
+            if (!chosen[i]){
+                list.add(DataTable.get(i));
+            }
+        }
+        DataTable.clear();
+        DataTable.addAll(list);
+    }
+
     /**
      * The inner class Row, which generates a row of the data table for each delivery.
      */
@@ -116,8 +190,9 @@ public class Database{
         public row(String No, String DeliverTo, ArrayList<String> foodItems) {
             this.No = No;
             this.DeliverTo = ActualWeb.getPosition(DeliverTo);
-            this.pickups = getPositionFromAll(ActualWeb.getInfo(foodItems).locations);
-            this.deliveryCost = ActualWeb.getInfo(foodItems).cost;
+            Website.info orderInfo = ActualWeb.getInfo(foodItems);
+            this.pickups = getPositionFromAll(orderInfo.locations);
+            this.deliveryCost = orderInfo.cost;
             this.threeWords = DeliverTo;
         }
 
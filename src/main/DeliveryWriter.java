@@ -0,0 +1,252 @@
+package uk.ac.ed.inf;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The DeliveryWriter class, which writes the day's deliveries and flightpath to the apache
+ * database (see @ApacheDB) on its own thread, so planning doesn't wait for the database after
+ * every order.
+ *
+ * The accepted orders are put in a bounded queue, and the writer thread adds them to the
+ * @ApacheDB batches. When the queue is full, @write waits for the writer to catch up
+ * (backpressure). The whole day is one transaction: @close waits until every queued order has
+ * been written and commits it, or rolls it back if anything failed. The first error is reported
+ * to the caller by the next @write or by @close, as an SQLException (any other exception thrown
+ * while writing an order is its cause). If the writer thread stops anyway, @write and @close
+ * find it when the queue doesn't take their entry, so they never wait for it forever.
+ */
+public class DeliveryWriter implements AutoCloseable {
+    /**
+     * The maximum number of orders waiting to be written. It can be changed with the
+     * 'ilp.db.queueSize' system property.
+     */
+    public static final int queueSize = Integer.getInteger("ilp.db.queueSize", 16);
+
+    /**
+     * An order waiting to be written.
+     */
+    private static class delivery {
+        private final String orderNo;
+        private final String threeWords;
+        private final int costInPence;
+        private final FlightPath moves;
+        private final LongLat initPos;
+        private final int droneId;
+
+        private delivery(String orderNo, String threeWords, int costInPence,
+                         FlightPath moves, LongLat initPos, int droneId) {
+            this.orderNo = orderNo;
+            this.threeWords = threeWords;
+            this.costInPence = costInPence;
+            this.moves = moves;
+            this.initPos = initPos;
+            this.droneId = droneId;
+        }
+    }
+
+    /**
+     * The entry that tells the writer thread there are no more orders.
+     */
+    private static final delivery endOfDay = new delivery(null, null, 0, null, null, 0);
+    /**
+     * How long (in milliseconds) @enqueue waits for room in the queue before it checks that the
+     * writer thread is still running.
+     */
+    private static final long aliveCheckMillis = 100;
+
+    //class variables
+    private final ApacheDB apacheData;
+    private final BlockingQueue<delivery> queue;
+    private final Thread writer;
+    private volatile SQLException failure;
+    private boolean closed;
+
+    /**
+     * Class constructor, it starts the day's transaction and the writer thread.
+     *
+     * @param apacheData the database the orders are written to
+     */
+    public DeliveryWriter(ApacheDB apacheData) {
+        this(apacheData, queueSize);
+    }
+
+    /**
+     * Class constructor, it starts the day's transaction and the writer thread.
+     *
+     * @param apacheData the database the orders are written to
+     * @param capacity   the maximum number of orders waiting to be written
+     */
+    public DeliveryWriter(ApacheDB apacheData, int capacity) {
+        this.apacheData = apacheData;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        apacheData.beginDay();
+        this.writer = new Thread(this::drain, "delivery-writer");
+        writer.start();
+    }
+
+    /**
+     * Queues an accepted order and the moves the drone made to deliver it. If the queue is full
+     * it waits until the writer thread takes an order from it.
+     *
+     * @param row     the order, a row from the @Database's data table
+     * @param moves   the positions the drone moved through to deliver the order, which must not
+     *                change afterwards
+     * @param initPos the position of the drone before delivering the order
+     * @throws SQLException if writing an earlier order failed
+     */
+    public void write(Database.row row, FlightPath moves, LongLat initPos) throws SQLException {
+        write(row, moves, initPos, 1);
+    }
+
+    /**
+     * Same as @write, for an order delivered by one of the drones of a fleet. The drones can write
+     * their orders from different threads.
+     *
+     * @param row     the order, a row from the @Database's data table
+     * @param moves   the positions the drone moved through to deliver the order, which must not
+     *                change afterwards
+     * @param initPos the position of the drone before delivering the order
+     * @param droneId the number of the drone
+     * @throws SQLException if writing an earlier order failed
+     */
+    public void write(Database.row row, FlightPath moves, LongLat initPos, int droneId) throws SQLException {
+        if (closed){
+            throw new IllegalStateException("The day has already been written");
+        }
+        throwFailure();
+        try {
+            if (!enqueue(new delivery(row.getNo(), row.getThreeWords(), row.getDeliveryCost(), moves, initPos, droneId))){
+                throwFailure();
+                throw new SQLException("The writer thread stopped before order " + row.getNo() + " was written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to write order " + row.getNo(), e);
+        }
+    }
+
+    /**
+     * Waits until every queued order has been written and commits the day, or rolls it back if
+     * anything failed. Calling it again does nothing.
+     *
+     * @throws SQLException the first error found while writing the day
+     */
+    @Override
+    public void close() throws SQLException {
+        if (!closed){
+            closed = true;
+            boolean interrupted = false;
+            boolean queued = false;
+            while (true){
+                try {
+                    if (!queued && !enqueue(endOfDay)){
+                        break;
+                    }
+                    queued = true;
+                    writer.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted){
+                Thread.currentThread().interrupt();
+            }
+        }
+        throwFailure();
+    }
+
+    /**
+     * Puts an entry in the queue, waiting for room while the writer thread is running.
+     *
+     * @param entry the entry
+     * @return true if the entry was queued, false if the writer thread has stopped
+     * @throws InterruptedException if the thread is interrupted while it waits
+     */
+    private boolean enqueue(delivery entry) throws InterruptedException {
+        while (!queue.offer(entry, aliveCheckMillis, TimeUnit.MILLISECONDS)){
+            if (!writer.isAlive()){
+                if (failure == null){
+                    failure = new SQLException("The writer thread stopped before the day was written");
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records an error found by the writer thread: the first one is reported, and the rest are
+     * added to it as suppressed. An error that isn't an SQLException becomes the cause of one.
+     *
+     * @param error the error
+     * @param what  what was being done, for the message of the SQLException
+     */
+    private void fail(Throwable error, String what) {
+        SQLException e = error instanceof SQLException ? (SQLException) error
+                : new SQLException("Failed while " + what + ": " + error, error);
+        if (failure == null){
+            failure = e;
+        } else if (failure != e){
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Throws the first error found by the writer thread, if there was one.
+     *
+     * @throws SQLException the error
+     */
+    private void throwFailure() throws SQLException {
+        SQLException e = failure;
+        if (e != null){
+            throw e;
+        }
+    }
+
+    /**
+     * The writer thread: it adds every queued order to the @ApacheDB batches until the end of the
+     * day, and then commits. After an error (of any kind) it keeps emptying the queue, so @write
+     * never waits forever, and rolls the day back. An interrupt doesn't stop it before the end of
+     * the day, since the day must still be committed or rolled back; it is kept for afterwards.
+     */
+    private void drain() {
+        boolean interrupted = false;
+        while (true){
+            delivery next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                continue;
+            }
+            if (next == endOfDay){
+                break;
+            }
+            if (failure == null){
+                try {
+                    apacheData.addDelivery(next.orderNo, next.threeWords, next.costInPence);
+                    apacheData.addFlightpath(next.orderNo, next.moves, next.initPos, next.droneId);
+                } catch (Throwable e) {
+                    fail(e, "writing order " + next.orderNo);
+                }
+            }
+        }
+        try {
+            if (failure == null){
+                apacheData.commit();
+            } else {
+                apacheData.rollback();
+            }
+        } catch (Throwable e) {
+            fail(e, failure == null ? "committing the day" : "rolling the day back");
+        }
+        if (interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
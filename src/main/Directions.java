@@ -0,0 +1,105 @@
+package uk.ac.ed.inf;
+
+
+/**
+ * The Directions class. The drone only moves in multiples of 10 degrees, so the change in
+ * longitude and latitude of a step in each of the 36 directions is calculated once, and the
+ * direction closest to any vector is found by comparing it against precomputed tangents
+ * instead of calling the trigonometric functions.
+ */
+public final class Directions {
+    /**
+     * The number of directions the drone can move in.
+     */
+    static final int count = 36;
+    /**
+     * The angle used to indicate that the drone hovers instead of moving.
+     */
+    static final int hover = -999;
+    /**
+     * The change in longitude of a step in every direction (direction i is the angle 10*i).
+     */
+    private static final double[] stepX = new double[count];
+    /**
+     * The change in latitude of a step in every direction (direction i is the angle 10*i).
+     */
+    private static final double[] stepY = new double[count];
+    /**
+     * The tangents of 5, 15, ..., 85 degrees: the limits between the directions of one quadrant.
+     */
+    private static final double[] limits = new double[9];
+
+    static {
+        for (int i = 0; i < count; i++){
+            double radians = Math.toRadians(10 * i);
+            stepX[i] = Math.cos(radians) * LongLat.step;
+            stepY[i] = Math.sin(radians) * LongLat.step;
+        }
+        for (int i = 0; i < limits.length; i++){
+            limits[i] = Math.tan(Math.toRadians(10 * i + 5));
+        }
+    }
+
+    private Directions() {
+    }
+
+    /**
+     * Checks if an angle is one of the directions in the table.
+     *
+     * @param angle the angle in degrees
+     * @return true if the angle is a multiple of 10
+     */
+    static boolean isTabulated(int angle){
+        return angle % 10 == 0;
+    }
+
+    /**
+     * Calculates the change in longitude of a step in a direction.
+     *
+     * @param angle the angle in degrees, a multiple of 10 (any number of turns)
+     * @return the change in longitude
+     */
+    static double dx(int angle){
+        return stepX[Math.floorMod(angle, 360) / 10];
+    }
+
+    /**
+     * Calculates the change in latitude of a step in a direction.
+     *
+     * @param angle the angle in degrees, a multiple of 10 (any number of turns)
+     * @return the change in latitude
+     */
+    static double dy(int angle){
+        return stepY[Math.floorMod(angle, 360) / 10];
+    }
+
+    /**
+     * Finds the direction (between 0 and 350 degrees) that is closest to a vector.
+     *
+     * The vector is folded into the first quadrant, where the number of limits its slope is
+     * above gives the direction, and then unfolded back into its own quadrant.
+     *
+     * @param dx the change in longitude
+     * @param dy the change in latitude
+     * @return the angle of the closest direction, or @hover if the vector is zero
+     */
+    static int nearest(double dx, double dy){
+        if (dx == 0 && dy == 0){
+            return hover;
+        }
+        double x = Math.abs(dx);
+        double y = Math.abs(dy);
+        int k = 0;
+        while (k < limits.length && y > limits[k] * x){
+            k++;
+        }
+        int angle = 10 * k;
+        if (dx < 0){
+            angle = 180 - angle;
+        }
+        if (dy < 0){
+            angle = 360 - angle;
+        }
+        return angle % 360;
+    }
+}
@@ -0,0 +1,204 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The DroneState class, which keeps what changes while a drone flies its route of the day: the
+ * moves it has left, where it is, the flightpath it has flown and the orders it has delivered.
+ *
+ * Every drone plans its legs through its own @LegCache, so the drones of a day can be planned at
+ * the same time on different threads and each of them still gets the same flightpath it would
+ * get on its own.
+ */
+public class DroneState {
+    //class variables
+    private final int droneId;
+    private final int budget;
+    private final LongLat home;
+    private final LegCache legCache;
+    private final ArrayList<Database.row> route = new ArrayList<>();
+    private final FlightPath flightpath = new FlightPath();
+    private final ArrayList<Database.row> deliveredOrders = new ArrayList<>();
+    private final ArrayList<Integer> deliveredEnds = new ArrayList<>();
+    private int movesLeft;
+    private LongLat currentPosition;
+
+    /**
+     * Class constructor, for a drone at Appleton Tower with a full battery.
+     *
+     * @param droneId  the number of the drone, from 1
+     * @param budget   the moves of its battery
+     * @param legCache the cache its legs are planned through
+     */
+    public DroneState(int droneId, int budget, LegCache legCache) {
+        this(droneId, budget, PlanningContext.appletonTower, legCache);
+    }
+
+    /**
+     * Class constructor, for a drone at its home with a full battery.
+     *
+     * @param droneId  the number of the drone, from 1
+     * @param budget   the moves of its battery
+     * @param home     where the drone starts and ends its day
+     * @param legCache the cache its legs are planned through
+     */
+    public DroneState(int droneId, int budget, LongLat home, LegCache legCache) {
+        this.droneId = droneId;
+        this.budget = budget;
+        this.home = home;
+        this.movesLeft = budget;
+        this.currentPosition = home;
+        this.legCache = legCache;
+    }
+
+    /**
+     * Getter that returns the number of the drone.
+     *
+     * @return the number, from 1
+     */
+    public int getDroneId() {
+        return droneId;
+    }
+
+    /**
+     * Getter that returns the moves of the drone's battery.
+     *
+     * @return the moves
+     */
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Getter that returns where the drone starts and ends its day.
+     *
+     * @return the position
+     */
+    public LongLat getHome() {
+        return home;
+    }
+
+    /**
+     * Getter that returns the cache the drone's legs are planned through.
+     *
+     * @return the cache
+     */
+    public LegCache getLegCache() {
+        return legCache;
+    }
+
+    /**
+     * Getter that returns the orders the drone has to deliver, in the order it delivers them.
+     *
+     * @return the orders
+     */
+    public List<Database.row> getRoute() {
+        return route;
+    }
+
+    /**
+     * Setter for the orders the drone has to deliver.
+     *
+     * @param orders the orders, in the order it delivers them
+     */
+    public void setRoute(List<Database.row> orders) {
+        route.clear();
+        route.addAll(orders);
+    }
+
+    /**
+     * Getter that returns the moves the drone has left.
+     *
+     * @return the moves left
+     */
+    public int getMovesLeft() {
+        return movesLeft;
+    }
+
+    /**
+     * Getter that returns where the drone is.
+     *
+     * @return the position of the drone
+     */
+    public LongLat getCurrentPosition() {
+        return currentPosition;
+    }
+
+    /**
+     * Getter that returns the flightpath flown so far.
+     *
+     * @return the flightpath
+     */
+    public FlightPath getFlightpath() {
+        return flightpath;
+    }
+
+    /**
+     * Records that the drone delivered an order: the moves are added to the flightpath and taken
+     * off the moves left, and the drone is left where they end.
+     *
+     * @param row   the order
+     * @param moves the positions the drone moved through to deliver it
+     */
+    public void deliver(Database.row row, FlightPath moves) {
+        flightpath.addAll(moves);
+        movesLeft -= moves.size();
+        currentPosition = moves.getLast();
+        deliveredOrders.add(row);
+        deliveredEnds.add(flightpath.size());
+    }
+
+    /**
+     * Records the moves that take the drone back home at the end of the day.
+     *
+     * @param moves the positions the drone moves through
+     */
+    public void returnHome(ArrayList<LongLat> moves) {
+        flightpath.addAll(moves);
+    }
+
+    /**
+     * Getter that returns the number of orders delivered.
+     *
+     * @return the number of orders
+     */
+    public int getDelivered() {
+        return deliveredOrders.size();
+    }
+
+    /**
+     * Getter that returns the money collected for the orders delivered.
+     *
+     * @return the cost of the orders delivered, in pence
+     */
+    public int getCollected() {
+        int pence = 0;
+        for (Database.row row : deliveredOrders){
+            pence += row.getDeliveryCost();
+        }
+        return pence;
+    }
+
+    /**
+     * Getter that returns an order delivered.
+     *
+     * @param i the index of the order, in the order they were delivered
+     * @return the order
+     */
+    public Database.row getDeliveredOrder(int i) {
+        return deliveredOrders.get(i);
+    }
+
+    /**
+     * Getter that returns the number of positions of the flightpath right after an order was
+     * delivered.
+     *
+     * @param i the index of the order, in the order they were delivered
+     * @return the number of positions
+     */
+    public int getDeliveredEnd(int i) {
+        return deliveredEnds.get(i);
+    }
+}
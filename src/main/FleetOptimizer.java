@@ -0,0 +1,156 @@
+package uk.ac.ed.inf;
+
+import java.util.Arrays;
+
+
+/**
+ * The FleetOptimizer class, which shares the day's orders between several drones, each with its
+ * own battery, and chooses the route of every drone to collect as much money as possible in
+ * total. Every order is delivered by one drone at most.
+ *
+ * The drones are given their routes one after the other: each drone takes the best route the
+ * @RouteOptimizer finds among the orders the previous drones didn't take. Then every pair of
+ * drones puts its orders back together with the orders nobody took, and the two routes are
+ * chosen again (trying both drones first). The new routes are kept if they collect more money,
+ * until no pair improves or @maxRounds rounds have been made.
+ */
+public class FleetOptimizer {
+    /**
+     * The maximum number of times every pair of drones is improved.
+     */
+    static final int maxRounds = 3;
+
+    //class variables
+    private final RouteOptimizer problem;
+    private final int[] budgets;
+
+    /**
+     * Class constructor.
+     *
+     * @param problem the day's problem, with all the orders (its battery isn't used)
+     * @param budgets the moves of the battery of every drone
+     */
+    public FleetOptimizer(RouteOptimizer problem, int[] budgets) {
+        this.problem = problem;
+        this.budgets = budgets;
+    }
+
+    /**
+     * Finds the route of every drone.
+     *
+     * @param iterations the most perturbation rounds of every search of a single route (see
+     *                   @RouteOptimizer.solve)
+     * @param millis     the time budget of every search of a single route, in milliseconds, a
+     *                   safety cap
+     * @return the orders of every drone's route, in the order they should be delivered
+     */
+    public int[][] solve(int iterations, long millis) {
+        int drones = budgets.length;
+        int[][] routes = new int[drones][];
+        boolean[] taken = new boolean[problem.getSize()];
+        for (int drone = 0; drone < drones; drone++){
+            routes[drone] = solveDrone(drone, free(taken), iterations, millis);
+            mark(taken, routes[drone], true);
+        }
+        boolean improved = true;
+        for (int round = 0; round < maxRounds && improved; round++){
+            improved = false;
+            for (int a = 0; a < drones; a++){
+                for (int b = a + 1; b < drones; b++){
+                    mark(taken, routes[a], false);
+                    mark(taken, routes[b], false);
+                    int[][] first = solvePair(a, b, taken, iterations, millis);
+                    int[][] second = solvePair(b, a, taken, iterations, millis);
+                    int[][] best = value(first) >= value(second) ? first : second;
+                    if (value(best) > problem.value(routes[a]) + problem.value(routes[b])){
+                        routes[a] = best[0];
+                        routes[b] = best[1];
+                        improved = true;
+                    }
+                    mark(taken, routes[a], true);
+                    mark(taken, routes[b], true);
+                }
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * Chooses the routes of two drones among the orders that aren't taken, the first drone first.
+     *
+     * @param first  the drone that chooses first
+     * @param second the other drone
+     * @param taken      the orders taken by the other drones
+     * @param iterations the most perturbation rounds of every search
+     * @param millis     the time budget of every search
+     * @return the routes of both drones, the drone with the lower number first
+     */
+    private int[][] solvePair(int first, int second, boolean[] taken, int iterations, long millis) {
+        boolean[] pool = taken.clone();
+        int[] firstRoute = solveDrone(first, free(pool), iterations, millis);
+        mark(pool, firstRoute, true);
+        int[] secondRoute = solveDrone(second, free(pool), iterations, millis);
+        return first < second ? new int[][]{firstRoute, secondRoute} : new int[][]{secondRoute, firstRoute};
+    }
+
+    /**
+     * Finds the best route of a drone among some orders.
+     *
+     * @param drone      the drone
+     * @param orders     the orders it can deliver
+     * @param iterations the most perturbation rounds of the search
+     * @param millis     the time budget of the search
+     * @return the orders of the route, numbered as in the day's problem
+     */
+    private int[] solveDrone(int drone, int[] orders, int iterations, long millis) {
+        int[] route = problem.subset(orders, budgets[drone]).solve(iterations, millis);
+        for (int k = 0; k < route.length; k++){
+            route[k] = orders[route[k]];
+        }
+        return route;
+    }
+
+    /**
+     * Calculates the money some routes collect.
+     *
+     * @param routes the routes
+     * @return the money
+     */
+    public int value(int[][] routes) {
+        int value = 0;
+        for (int[] route : routes){
+            value += problem.value(route);
+        }
+        return value;
+    }
+
+    /**
+     * Finds the orders that aren't taken.
+     *
+     * @param taken true for every order taken
+     * @return the orders that aren't taken, in order
+     */
+    private static int[] free(boolean[] taken) {
+        int[] orders = new int[taken.length];
+        int length = 0;
+        for (int order = 0; order < taken.length; order++){
+            if (!taken[order]){
+                orders[length++] = order;
+            }
+        }
+        return Arrays.copyOf(orders, length);
+    }
+
+    /**
+     * Marks the orders of a route as taken or not.
+     *
+     * @param taken  true for every order taken
+     * @param route  the route
+     * @param status true to mark them as taken
+     */
+    private static void mark(boolean[] taken, int[] route, boolean status) {
+        for (int order : route){
+            taken[order] = status;
+        }
+    }
+}
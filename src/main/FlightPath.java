@@ -0,0 +1,318 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * The FlightPath class, a compact list of the positions the drone flies through.
+ *
+ * Every move of the drone is a step in one of the 36 directions of @Directions, or a hover, so
+ * instead of keeping a @LongLat for every position it keeps a byte per position: the direction
+ * of the move that reached it divided by 10, or @hoverCode if the drone hovered. Only the first
+ * position, and any position that can't be reached from the previous one with a single move
+ * (where a leg starts again from an exact landmark, for instance), are kept as coordinates; each
+ * of them starts a new segment of the path and has the code @jumpCode.
+ *
+ * The positions are decoded when they are read, by replaying the moves from the start of their
+ * segment with @Geometry, which gives exactly the same coordinates the planner calculated.
+ * Reading the positions in order with the iterator costs a step per position, @get costs a step
+ * per position since the start of the segment.
+ */
+public class FlightPath implements Iterable<LongLat> {
+    /**
+     * The code of a hovering move (stored as the angle -999 in the 'flightpath' table).
+     */
+    static final byte hoverCode = -1;
+    /**
+     * The code of a position that starts a new segment.
+     */
+    static final byte jumpCode = -2;
+
+    //the code of every position
+    private byte[] codes = new byte[64];
+    private int size;
+    //the segments: the index and coordinates of their first position
+    private int[] segmentIndex = new int[4];
+    private double[] segmentLongitude = new double[4];
+    private double[] segmentLatitude = new double[4];
+    private int segments;
+    //the last position, to encode the next one
+    private double lastLongitude;
+    private double lastLatitude;
+
+    /**
+     * Class constructor, for an empty flightpath.
+     */
+    public FlightPath() {
+    }
+
+    /**
+     * Class constructor, for a flightpath with the given positions.
+     *
+     * @param positions the positions
+     */
+    public FlightPath(List<LongLat> positions) {
+        addAll(positions);
+    }
+
+    /**
+     * Adds a position at the end of the flightpath.
+     *
+     * @param position the position
+     */
+    public void add(LongLat position) {
+        add(position.longitude, position.latitude);
+    }
+
+    /**
+     * Adds a position at the end of the flightpath.
+     *
+     * @param longitude the longitude of the position
+     * @param latitude  the latitude of the position
+     */
+    public void add(double longitude, double latitude) {
+        byte code = jumpCode;
+        if (size > 0){
+            if (longitude == lastLongitude && latitude == lastLatitude){
+                code = hoverCode;
+            } else {
+                int angle = Directions.nearest(longitude - lastLongitude, latitude - lastLatitude);
+                if (Geometry.nextX(lastLongitude, angle) == longitude
+                        && Geometry.nextY(lastLatitude, angle) == latitude){
+                    code = (byte) (angle / 10);
+                }
+            }
+        }
+        if (code == jumpCode){
+            if (segments == segmentIndex.length){
+                segmentIndex = Arrays.copyOf(segmentIndex, segments * 2);
+                segmentLongitude = Arrays.copyOf(segmentLongitude, segments * 2);
+                segmentLatitude = Arrays.copyOf(segmentLatitude, segments * 2);
+            }
+            segmentIndex[segments] = size;
+            segmentLongitude[segments] = longitude;
+            segmentLatitude[segments] = latitude;
+            segments++;
+        }
+        if (size == codes.length){
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        codes[size++] = code;
+        lastLongitude = longitude;
+        lastLatitude = latitude;
+    }
+
+    /**
+     * Adds some positions at the end of the flightpath.
+     *
+     * @param positions the positions
+     */
+    public void addAll(List<LongLat> positions) {
+        for (LongLat position : positions){
+            add(position.longitude, position.latitude);
+        }
+    }
+
+    /**
+     * Adds all the positions of another flightpath at the end of this one.
+     *
+     * @param other the other flightpath
+     */
+    public void addAll(FlightPath other) {
+        for (cursor c = other.cursor(); c.next(); ){
+            add(c.longitude, c.latitude);
+        }
+    }
+
+    /**
+     * Getter that returns the number of positions.
+     *
+     * @return the number of positions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter that returns the number of segments (see the class description).
+     *
+     * @return the number of segments
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * Decodes a position of the flightpath.
+     *
+     * @param i the index of the position
+     * @return the position
+     */
+    public LongLat get(int i) {
+        if (i < 0 || i >= size){
+            throw new IndexOutOfBoundsException("Position " + i + " of a flightpath of " + size);
+        }
+        if (i == size - 1){
+            return getLast();
+        }
+        int segment = Arrays.binarySearch(segmentIndex, 0, segments, i);
+        if (segment < 0){
+            segment = -segment - 2;
+        }
+        double x = segmentLongitude[segment];
+        double y = segmentLatitude[segment];
+        for (int k = segmentIndex[segment] + 1; k <= i; k++){
+            int angle = angleOf(codes[k]);
+            x = Geometry.nextX(x, angle);
+            y = Geometry.nextY(y, angle);
+        }
+        return new LongLat(x, y);
+    }
+
+    /**
+     * Getter that returns the last position.
+     *
+     * @return the position
+     */
+    public LongLat getLast() {
+        if (size == 0){
+            throw new NoSuchElementException("The flightpath is empty");
+        }
+        return new LongLat(lastLongitude, lastLatitude);
+    }
+
+    /**
+     * Getter that returns the angle of the move that reached a position: its direction, -999 if
+     * the drone hovered, or the nearest direction if the position starts a new segment.
+     *
+     * @param i the index of the position, which can't be the first one
+     * @return the angle
+     */
+    public int getAngle(int i) {
+        if (codes[i] == jumpCode){
+            return get(i - 1).getAngle(get(i));
+        }
+        return angleOf(codes[i]);
+    }
+
+    /**
+     * Turns a code that isn't @jumpCode into an angle.
+     *
+     * @param code the code
+     * @return the angle
+     */
+    private static int angleOf(byte code) {
+        return code == hoverCode ? Directions.hover : code * 10;
+    }
+
+    /**
+     * Decodes every position of the flightpath.
+     *
+     * @return the positions
+     */
+    public ArrayList<LongLat> toList() {
+        ArrayList<LongLat> positions = new ArrayList<>(size);
+        for (LongLat position : this){
+            positions.add(position);
+        }
+        return positions;
+    }
+
+    /**
+     * Returns a @cursor that decodes the positions in order without creating objects.
+     *
+     * @return the cursor, before the first position
+     */
+    public cursor cursor() {
+        return new cursor();
+    }
+
+    @Override
+    public Iterator<LongLat> iterator() {
+        cursor c = cursor();
+        return new Iterator<>() {
+            private boolean ready;
+            private boolean more;
+
+            @Override
+            public boolean hasNext() {
+                if (!ready){
+                    more = c.next();
+                    ready = true;
+                }
+                return more;
+            }
+
+            @Override
+            public LongLat next() {
+                if (!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                return new LongLat(c.longitude, c.latitude);
+            }
+        };
+    }
+
+    /**
+     * The inner class cursor, which decodes the positions of the flightpath one after the other.
+     * After every call to @next that returns true, @longitude, @latitude and @angle describe the
+     * next position and the move that reached it.
+     */
+    public class cursor {
+        private int index = -1;
+        private int segment = -1;
+        /**
+         * The longitude of the position.
+         */
+        public double longitude;
+        /**
+         * The latitude of the position.
+         */
+        public double latitude;
+        /**
+         * The angle of the move that reached the position (see @FlightPath.getAngle), or -999 for
+         * the first position.
+         */
+        public int angle = Directions.hover;
+
+        /**
+         * Moves the cursor to the next position.
+         *
+         * @return false if there are no more positions
+         */
+        public boolean next() {
+            if (index + 1 >= size){
+                return false;
+            }
+            index++;
+            byte code = codes[index];
+            if (code == jumpCode){
+                segment++;
+                double x = segmentLongitude[segment];
+                double y = segmentLatitude[segment];
+                angle = index == 0 ? Directions.hover : Directions.nearest(x - longitude, y - latitude);
+                longitude = x;
+                latitude = y;
+            } else {
+                angle = angleOf(code);
+                longitude = Geometry.nextX(longitude, angle);
+                latitude = Geometry.nextY(latitude, angle);
+            }
+            return true;
+        }
+
+        /**
+         * Getter that returns the index of the position.
+         *
+         * @return the index
+         */
+        public int getIndex() {
+            return index;
+        }
+    }
+}
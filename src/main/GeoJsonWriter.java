@@ -0,0 +1,244 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+/**
+ * The GeoJsonWriter class, which writes the flightpath of the drone as a GeoJSON
+ * FeatureCollection of LineStrings while it is being read, without building it in memory first.
+ *
+ * The positions are written to a buffered @Writer one after the other, so the memory used
+ * doesn't depend on the length of the flightpath. The coordinates are rounded to 7 decimals and
+ * written without trailing zeros, exactly as the mapbox library writes them, using a small
+ * buffer that is reused for every number.
+ *
+ * A feature is started with @beginFeature, its positions are added with @point, and it is ended
+ * with @endFeature, with or without the order it delivers. @close ends the collection.
+ */
+public class GeoJsonWriter implements AutoCloseable {
+    //the number of decimals of the coordinates, and 10 to that power
+    private static final int decimals = 7;
+    private static final double scale = 1e7;
+    //the largest value that can be scaled into a long (as in the mapbox library)
+    private static final double maxScaled = Long.MAX_VALUE / scale;
+
+    //class variables
+    private final Writer out;
+    private final char[] digits = new char[24];
+    private boolean firstFeature = true;
+    private boolean firstPoint;
+    private boolean inFeature;
+
+    /**
+     * Class constructor, it creates the file (or empties it) and starts the collection.
+     *
+     * @param file the file the GeoJSON is written to
+     * @throws IOException if the file can't be written
+     */
+    public GeoJsonWriter(Path file) throws IOException {
+        this(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Class constructor, it starts the collection. The writer should be buffered, since every
+     * number is written to it separately.
+     *
+     * @param out the writer the GeoJSON is written to, which is closed by @close
+     * @throws IOException if the writer fails
+     */
+    public GeoJsonWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write("{\"type\":\"FeatureCollection\",\"features\":[");
+    }
+
+    /**
+     * Starts a new LineString feature.
+     *
+     * @throws IOException if the writer fails
+     */
+    public void beginFeature() throws IOException {
+        if (inFeature){
+            throw new IllegalStateException("The previous feature hasn't ended");
+        }
+        if (!firstFeature){
+            out.write(',');
+        }
+        out.write("{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[");
+        firstFeature = false;
+        firstPoint = true;
+        inFeature = true;
+    }
+
+    /**
+     * Adds a position at the end of the current feature.
+     *
+     * @param longitude the longitude of the position
+     * @param latitude  the latitude of the position
+     * @throws IOException if the writer fails
+     */
+    public void point(double longitude, double latitude) throws IOException {
+        if (!firstPoint){
+            out.write(',');
+        }
+        out.write('[');
+        number(longitude);
+        out.write(',');
+        number(latitude);
+        out.write(']');
+        firstPoint = false;
+    }
+
+    /**
+     * Adds every position of a flightpath at the end of the current feature.
+     *
+     * @param path the flightpath
+     * @throws IOException if the writer fails
+     */
+    public void points(FlightPath path) throws IOException {
+        for (FlightPath.cursor c = path.cursor(); c.next(); ){
+            point(c.longitude, c.latitude);
+        }
+    }
+
+    /**
+     * Ends the current feature, with empty properties.
+     *
+     * @throws IOException if the writer fails
+     */
+    public void endFeature() throws IOException {
+        checkFeature();
+        out.write("]},\"properties\":{}}");
+        inFeature = false;
+    }
+
+    /**
+     * Ends the current feature, with the drone that flew it as its properties.
+     *
+     * @param droneId the number of the drone
+     * @throws IOException if the writer fails
+     */
+    public void endFeature(int droneId) throws IOException {
+        checkFeature();
+        out.write("]},\"properties\":{\"droneId\":");
+        out.write(Integer.toString(droneId));
+        out.write("}}");
+        inFeature = false;
+    }
+
+    /**
+     * Ends the current feature, with the order it delivers as its properties.
+     *
+     * @param orderNo     the order number
+     * @param costInPence the cost of the order
+     * @throws IOException if the writer fails
+     */
+    public void endFeature(String orderNo, int costInPence) throws IOException {
+        endFeature(orderNo, costInPence, 0);
+    }
+
+    /**
+     * Ends the current feature, with the order it delivers and the drone that delivered it as
+     * its properties.
+     *
+     * @param orderNo     the order number
+     * @param costInPence the cost of the order
+     * @param droneId     the number of the drone, or 0 to leave it out
+     * @throws IOException if the writer fails
+     */
+    public void endFeature(String orderNo, int costInPence, int droneId) throws IOException {
+        checkFeature();
+        out.write("]},\"properties\":{\"orderNo\":\"");
+        for (int i = 0; i < orderNo.length(); i++){
+            char c = orderNo.charAt(i);
+            if (c == '"' || c == '\\'){
+                out.write('\\');
+            }
+            out.write(c);
+        }
+        out.write("\",\"cost\":");
+        out.write(Integer.toString(costInPence));
+        if (droneId > 0){
+            out.write(",\"droneId\":");
+            out.write(Integer.toString(droneId));
+        }
+        out.write("}}");
+        inFeature = false;
+    }
+
+    /**
+     * Checks that a feature was started.
+     */
+    private void checkFeature() {
+        if (!inFeature){
+            throw new IllegalStateException("There is no feature to end");
+        }
+    }
+
+    /**
+     * Ends the collection and closes the writer.
+     *
+     * @throws IOException if the writer fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (inFeature){
+                endFeature();
+            }
+            out.write("]}");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a coordinate rounded to @decimals decimals, with the trailing zeros removed but at
+     * least one decimal, like Double.toString writes the rounded value. The values that
+     * Double.toString would write in scientific notation, which are never coordinates on the map,
+     * are written by it.
+     *
+     * @param value the coordinate, which must be finite
+     * @throws IOException if the writer fails
+     */
+    private void number(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)){
+            throw new IllegalArgumentException("GeoJSON coordinates must be finite numbers: " + value);
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude > maxScaled || magnitude >= 1e7 || (magnitude < 1e-3 && magnitude >= 5e-8)){
+            out.write(Double.toString(magnitude > maxScaled ? value : Math.round(value * scale) / scale));
+            return;
+        }
+        long scaled = Math.round(value * scale);
+        int end = digits.length;
+        int position = end;
+        boolean negative = scaled < 0;
+        long rest = Math.abs(scaled);
+        //the decimals, skipping the trailing zeros
+        boolean significant = false;
+        for (int i = 0; i < decimals; i++){
+            int digit = (int) (rest % 10);
+            rest /= 10;
+            if (digit != 0 || significant){
+                digits[--position] = (char) ('0' + digit);
+                significant = true;
+            }
+        }
+        if (!significant){
+            digits[--position] = '0';
+        }
+        digits[--position] = '.';
+        do {
+            digits[--position] = (char) ('0' + (int) (rest % 10));
+            rest /= 10;
+        } while (rest > 0);
+        if (negative){
+            digits[--position] = '-';
+        }
+        out.write(digits, position, end - position);
+    }
+}
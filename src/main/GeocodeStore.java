@@ -0,0 +1,289 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+
+
+/**
+ * The GeocodeStore class, a file that keeps the @LongLat location of every "ThreeWords" the
+ * webserver has already resolved, so that later runs of the app don't need to request them again.
+ *
+ * The file has an 8 byte header (a magic number and the format version) followed by fixed size
+ * records: a valid flag, the length of the "ThreeWords", the "ThreeWords" in UTF-8 padded to
+ * @maxWordsLength bytes, and the longitude and latitude. The file is read at startup by mapping it
+ * into memory, new locations are appended to it straight away (write-through), and invalidating a
+ * location clears the valid flag of its record in place. The records left invalid are only dropped
+ * when the file is opened: if more than @compactionThreshold of them are invalid, the valid ones
+ * are copied to a new file that replaces the old one (see @compact), so the file doesn't keep
+ * growing from one run to the next.
+ */
+public class GeocodeStore {
+    /**
+     * The number that identifies the file as a geocode store.
+     */
+    private static final int magic = 0x47454F31;
+    /**
+     * The version of the file format.
+     */
+    private static final int version = 1;
+    /**
+     * The size of the file header.
+     */
+    private static final int headerSize = 8;
+    /**
+     * The longest "ThreeWords" (in UTF-8 bytes) that can be stored.
+     */
+    static final int maxWordsLength = 62;
+    /**
+     * The size of every record.
+     */
+    private static final int recordSize = 2 + maxWordsLength + 16;
+    /**
+     * The share of invalid records above which the file is compacted when it is opened.
+     */
+    static final double compactionThreshold = 0.5;
+
+    /**
+     * The path of the file.
+     */
+    private final Path file;
+    /**
+     * The open file.
+     */
+    private FileChannel channel;
+    /**
+     * The valid locations stored in the file.
+     */
+    private final HashMap<String, LongLat> positions = new HashMap<>();
+    /**
+     * The position in the file of the record of every valid location.
+     */
+    private final HashMap<String, Long> offsets = new HashMap<>();
+
+    /**
+     * Class constructor, it opens (or creates) the file and loads every valid location in it,
+     * compacting it first if more than @compactionThreshold of its records are invalid.
+     *
+     * @param file the path of the file
+     * @throws IOException if the file can't be read or written
+     */
+    public GeocodeStore(Path file) throws IOException {
+        this.file = file;
+        this.channel = open(file);
+        long records = load();
+        if (records - positions.size() > compactionThreshold * records){
+            compact();
+        }
+    }
+
+    /**
+     * Opens (or creates) a file for reading and writing.
+     *
+     * @param file the path of the file
+     * @return the open file
+     * @throws IOException if the file can't be opened
+     */
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Loads every valid location in the file, or leaves only the header in it if it isn't a
+     * geocode store.
+     *
+     * @return the number of records in the file, valid or not
+     * @throws IOException if the file can't be read or written
+     */
+    private long load() throws IOException {
+        long size = channel.size();
+        if (size < headerSize || !hasHeader()){
+            clear();
+            return 0;
+        }
+        long records = (size - headerSize) / recordSize;
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, headerSize, records * recordSize);
+        byte[] words = new byte[maxWordsLength];
+        for (long r = 0; r < records; r++){
+            boolean valid = map.get() == 1;
+            int length = map.get();
+            map.get(words);
+            double lng = map.getDouble();
+            double lat = map.getDouble();
+            if (valid && length > 0 && length <= maxWordsLength){
+                String key = new String(words, 0, length, StandardCharsets.UTF_8);
+                positions.put(key, new LongLat(lng, lat));
+                offsets.put(key, headerSize + r * recordSize);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Compacts the file: the valid records are written, in the same order, to a new file that
+     * then replaces it, so the invalid records no longer take any space. If anything fails the
+     * old file is left as it was.
+     *
+     * @throws IOException if the file can't be written or replaced
+     */
+    synchronized void compact() throws IOException {
+        ArrayList<String> kept = new ArrayList<>(offsets.keySet());
+        kept.sort(Comparator.comparing(offsets::get));
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        HashMap<String, Long> moved = new HashMap<>();
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            out.write(header(), 0);
+            long offset = headerSize;
+            for (String words : kept){
+                out.write(record(words.getBytes(StandardCharsets.UTF_8), positions.get(words)), offset);
+                moved.put(words, offset);
+                offset += recordSize;
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(file);
+        offsets.clear();
+        offsets.putAll(moved);
+    }
+
+    /**
+     * Getter that returns the number of records in the file, including the invalid ones.
+     *
+     * @return the number of records
+     * @throws IOException if the file can't be read
+     */
+    synchronized long getRecords() throws IOException {
+        return (channel.size() - headerSize) / recordSize;
+    }
+
+    /**
+     * Checks if the file starts with the header of the current format.
+     *
+     * @return true if the header is right
+     * @throws IOException if the file can't be read
+     */
+    private boolean hasHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        channel.read(header, 0);
+        header.flip();
+        return header.getInt() == magic && header.getInt() == version;
+    }
+
+    /**
+     * Getter that returns the location of a "ThreeWords", if it is stored.
+     *
+     * @param words the "ThreeWords"
+     * @return the location, or null if it isn't stored
+     */
+    public synchronized LongLat get(String words) {
+        return positions.get(words);
+    }
+
+    /**
+     * Getter that returns the number of valid locations stored.
+     *
+     * @return the number of locations
+     */
+    public synchronized int getSize() {
+        return positions.size();
+    }
+
+    /**
+     * Stores the location of a "ThreeWords", appending it to the end of the file. If the
+     * "ThreeWords" was already stored, its old record is invalidated.
+     *
+     * @param words    the "ThreeWords"
+     * @param position the location
+     * @throws IOException if the file can't be written
+     */
+    public synchronized void put(String words, LongLat position) throws IOException {
+        byte[] bytes = words.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxWordsLength){
+            return;
+        }
+        invalidate(words);
+        long offset = headerSize + (channel.size() - headerSize) / recordSize * recordSize;
+        channel.write(record(bytes, position), offset);
+        positions.put(words, position);
+        offsets.put(words, offset);
+    }
+
+    /**
+     * Builds the valid record of a location.
+     *
+     * @param bytes    the "ThreeWords" in UTF-8
+     * @param position the location
+     * @return the record, ready to be written
+     */
+    private static ByteBuffer record(byte[] bytes, LongLat position) {
+        ByteBuffer record = ByteBuffer.allocate(recordSize);
+        record.put((byte) 1);
+        record.put((byte) bytes.length);
+        record.put(bytes);
+        record.position(2 + maxWordsLength);
+        record.putDouble(position.longitude);
+        record.putDouble(position.latitude);
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Builds the header of the file.
+     *
+     * @return the header, ready to be written
+     */
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(magic);
+        header.putInt(version);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Invalidates the location of a "ThreeWords", so it will be requested again from the webserver.
+     *
+     * @param words the "ThreeWords"
+     * @throws IOException if the file can't be written
+     */
+    public synchronized void invalidate(String words) throws IOException {
+        Long offset = offsets.remove(words);
+        positions.remove(words);
+        if (offset != null){
+            channel.write(ByteBuffer.wrap(new byte[]{0}), offset);
+        }
+    }
+
+    /**
+     * Invalidates every location, leaving only the header in the file.
+     *
+     * @throws IOException if the file can't be written
+     */
+    public synchronized void clear() throws IOException {
+        positions.clear();
+        offsets.clear();
+        channel.truncate(0);
+        channel.write(header(), 0);
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,115 @@
+package uk.ac.ed.inf;
+
+
+/**
+ * The Geometry class. It is the allocation-free version of the geometry in @LongLat: every
+ * method works on plain longitude (x) and latitude (y) values, so the planner can test
+ * candidate moves without creating a @LongLat object for each of them.
+ */
+public final class Geometry {
+
+    private Geometry() {
+    }
+
+    /**
+     * Checks if a point is contained inside the 'legal' space.
+     *
+     * @param x the longitude
+     * @param y the latitude
+     * @return the boolean true or false.
+     */
+    static boolean isConfined(double x, double y){
+        return (x >= LongLat.minLongitude) && (x <= LongLat.maxLongitude)
+                && (y >= LongLat.minLatitude) && (y <= LongLat.maxLatitude);
+    }
+
+    /**
+     * Calculates the squared distance between two points.
+     *
+     * @param ax the longitude of the first point
+     * @param ay the latitude of the first point
+     * @param bx the longitude of the second point
+     * @param by the latitude of the second point
+     * @return the squared distance
+     */
+    static double distanceSq(double ax, double ay, double bx, double by){
+        return (ax - bx) * (ax - bx) + (ay - by) * (ay - by);
+    }
+
+    /**
+     * Calculates the longitude after taking a 'step' in a certain direction. Multiples of 10 degrees
+     * are read from the @Directions table.
+     *
+     * @param x     the longitude
+     * @param angle the angle which indicates the direction, -999 means hovering
+     * @return the new longitude
+     */
+    static double nextX(double x, int angle){
+        if (angle == Directions.hover){
+            return x;
+        }
+        if (Directions.isTabulated(angle)){
+            return Directions.dx(angle) + x;
+        }
+        return Math.cos(Math.toRadians(angle)) * LongLat.step + x;
+    }
+
+    /**
+     * Calculates the latitude after taking a 'step' in a certain direction. Multiples of 10 degrees
+     * are read from the @Directions table.
+     *
+     * @param y     the latitude
+     * @param angle the angle which indicates the direction, -999 means hovering
+     * @return the new latitude
+     */
+    static double nextY(double y, int angle){
+        if (angle == Directions.hover){
+            return y;
+        }
+        if (Directions.isTabulated(angle)){
+            return Directions.dy(angle) + y;
+        }
+        return Math.sin(Math.toRadians(angle)) * LongLat.step + y;
+    }
+
+    /**
+     * This is a helper method for the @intersects method below.
+     *
+     * @param ax the longitude of A
+     * @param ay the latitude of A
+     * @param bx the longitude of B
+     * @param by the latitude of B
+     * @param cx the longitude of C
+     * @param cy the latitude of C
+     * @return true if A, B and C are in counter-clockwise order
+     */
+    static boolean ccw(double ax, double ay, double bx, double by, double cx, double cy){
+        return (cy - ay) * (bx - ax) > (by - ay) * (cx - ax);
+    }
+
+    /**
+     * Calculates if the line from A to B and the line from C to D intersect. As in
+     * @LongLat.doesIntersect, lines that share an end point are considered to intersect.
+     *
+     * @param ax the longitude of A
+     * @param ay the latitude of A
+     * @param bx the longitude of B
+     * @param by the latitude of B
+     * @param cx the longitude of C
+     * @param cy the latitude of C
+     * @param dx the longitude of D
+     * @param dy the latitude of D
+     * @return the boolean
+     */
+    static boolean intersects(double ax, double ay, double bx, double by,
+                              double cx, double cy, double dx, double dy){
+        if ((ax == cx && ay == cy) || (ax == dx && ay == dy)){
+            return true;
+        }
+        if ((bx == cx && by == cy) || (bx == dx && by == dy)){
+            return true;
+        }
+        return ccw(ax, ay, cx, cy, dx, dy) != ccw(bx, by, cx, cy, dx, dy)
+                && ccw(ax, ay, bx, by, cx, cy) != ccw(ax, ay, bx, by, dx, dy);
+    }
+}
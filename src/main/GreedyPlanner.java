@@ -0,0 +1,365 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * The greedy path planner. At every step it moves the drone in the legal direction
+ * closest to the destination, and if the drone starts going round in circles it restarts
+ * the leg through one of the intermediate points of its @MapConfig (@southWest or @northEast on
+ * the campus map).
+ *
+ * A leg is planned by a loop over the steps, not by recursion, so the stack doesn't grow with
+ * the length of the leg. The positions are kept in a @stepBuffer of every thread, which is
+ * reused by every leg that thread plans, and the drone is known to be going round in circles
+ * when it gets back to a cell of side @loopCell it has already visited on its way to the
+ * current target.
+ */
+public class GreedyPlanner implements PathPlanner {
+    /**
+     * Coordinates of a location where the drone is directed to optimise the flightpath on the
+     * campus map (see @MapConfig.getNorthEast).
+     */
+    public static final LongLat northEast = new LongLat(-3.1879, 55.9452);
+    /**
+     * Coordinates of a location where the drone is directed to optimise the flightpath on the
+     * campus map (see @MapConfig.getSouthWest).
+     */
+    public static final LongLat southWest = new LongLat(-3.1916, 55.9437);
+    /**
+     * The side of the cells the positions are rounded to in order to find the drone going round
+     * in circles. A drone in a cycle comes back to its earlier positions up to rounding errors,
+     * while a drone that only crosses its own track seldom gets this close to it.
+     */
+    static final double loopCell = LongLat.step / 10;
+    /**
+     * The maximum number of detours through the intermediate points in a single leg.
+     */
+    static final int maxDetours = 4;
+    /**
+     * The map, which gives the confinement area and the intermediate points.
+     */
+    private final MapConfig map;
+    /**
+     * The no-fly zones every move is checked against.
+     */
+    private final NoFlyZones noFlyZones;
+    /**
+     * The positions of the leg being planned, one buffer for every thread.
+     */
+    private final ThreadLocal<stepBuffer> buffers = ThreadLocal.withInitial(stepBuffer::new);
+
+    /**
+     * Class constructor for the greedy planner on the campus map.
+     *
+     * @param noFlyPerimeter the lines that form all the no-fly zone's polygons
+     */
+    public GreedyPlanner(ArrayList<LongLat.line> noFlyPerimeter) {
+        this(new SegmentIndex(noFlyPerimeter));
+    }
+
+    /**
+     * Class constructor for the greedy planner on the campus map that shares an already built index.
+     *
+     * @param noFlyIndex the index of the lines that form all the no-fly zone's polygons
+     */
+    public GreedyPlanner(SegmentIndex noFlyIndex) {
+        this(MapConfig.campus(new ArrayList<>(), new ArrayList<>()), noFlyIndex);
+    }
+
+    /**
+     * Class constructor for the greedy planner on a map, whose no-fly zones are inflated by the
+     * map's margin (see @MapConfig.getNoFlyMargin).
+     *
+     * @param map the map
+     */
+    public GreedyPlanner(MapConfig map) {
+        this(map, new NoFlyZones(map));
+    }
+
+    /**
+     * Class constructor for the greedy planner on a map that shares an already built index.
+     *
+     * @param map        the map, whose no-fly zones are the ones in the index
+     * @param noFlyIndex the index of the lines that form all the no-fly zone's polygons
+     */
+    public GreedyPlanner(MapConfig map, SegmentIndex noFlyIndex) {
+        this(map, new NoFlyZones(noFlyIndex));
+    }
+
+    /**
+     * Class constructor for the greedy planner on a map that shares already prepared no-fly zones.
+     *
+     * @param map        the map, whose no-fly zones were prepared
+     * @param noFlyZones the map's no-fly zones, inflated
+     */
+    public GreedyPlanner(MapConfig map, NoFlyZones noFlyZones) {
+        this.map = map;
+        this.noFlyZones = noFlyZones;
+    }
+
+    /**
+     * Checks if the move is allowed, i.e. if the move makes the drone enter
+     * a no-fly zone or if it makes the drone get outside the allowed area it
+     * will return false.
+     *
+     * It checks if the drone is getting into the no-fly area by checking if the drone
+     * move will cross any of the lines that compose the perimeter of @noFlyZones
+     *
+     * @param initialPos the input arguments
+     * @param nextPos the input arguments
+     * @return true if the move is legal and false if it is illegal
+     */
+    @Override
+    public boolean isMoveGood(LongLat initialPos, LongLat nextPos){
+        return isMoveGood(initialPos.longitude, initialPos.latitude, nextPos.longitude, nextPos.latitude);
+    }
+
+    /**
+     * The allocation-free version of @isMoveGood, which works on the coordinates of the move.
+     *
+     * @param x     the longitude of the initial position
+     * @param y     the latitude of the initial position
+     * @param nextX the longitude of the next position
+     * @param nextY the latitude of the next position
+     * @return true if the move is legal and false if it is illegal
+     */
+    boolean isMoveGood(double x, double y, double nextX, double nextY){
+        if (!map.isConfined(nextX, nextY)){
+            return false;
+        }
+        return !noFlyZones.crosses(x, y, nextX, nextY);
+    }
+
+    /**
+     * Checks, without creating the next position, if taking a step in a certain direction is legal.
+     *
+     * @param x     the longitude of the initial position
+     * @param y     the latitude of the initial position
+     * @param angle the direction of the step
+     * @return true if the move is legal and false if it is illegal
+     */
+    private boolean isStepGood(double x, double y, int angle){
+        return isMoveGood(x, y, Geometry.nextX(x, angle), Geometry.nextY(y, angle));
+    }
+
+    /**
+     * It calculates the desired step direction to reach the destination (finalPos).
+     * If the desired angle makes the move not legal it will select the next best angle
+     * until the move is legal.
+     * Candidate moves are tested with @isStepGood, so no @LongLat is created for them. The
+     * number of directions tried is recorded in @Metrics.probesPerStep.
+     *
+     * @param initialPos the input arguments
+     * @param finalPos the input arguments
+     * @return the most appropriate angle value
+     */
+    int goodAngle(LongLat initialPos, LongLat finalPos){
+        return goodAngle(initialPos.longitude, initialPos.latitude, finalPos.longitude, finalPos.latitude);
+    }
+
+    /**
+     * The allocation-free version of @goodAngle, which works on the coordinates of the positions.
+     *
+     * @param x      the longitude of the initial position
+     * @param y      the latitude of the initial position
+     * @param finalX the longitude of the destination
+     * @param finalY the latitude of the destination
+     * @return the most appropriate angle value
+     */
+    int goodAngle(double x, double y, double finalX, double finalY){
+        int angleInt = Directions.nearest(finalX - x, finalY - y);
+
+        for (int i=0; i<18;i++){
+            if (isStepGood(x, y, angleInt + i*10)){
+                Metrics.probesPerStep.record(2 * i + 1);
+                return angleInt+(i*10);
+            }
+            if (isStepGood(x, y, angleInt - i*10)){
+                Metrics.probesPerStep.record(2 * i + 2);
+                return angleInt-(i*10);
+            }
+        }
+        Metrics.probesPerStep.record(36);
+        return angleInt;
+    }
+
+    /**
+     * Plans the flightpath of the drone from @initialPos until it gets close to @finalPos, and
+     * adds the hovering step at the end.
+     *
+     * The drone flies towards its current target with @goodAngle. If it gets back to a cell it
+     * has already visited on its way to that target it is going round in circles: its moves
+     * towards that target are forgotten, and it flies first to the intermediate point closest
+     * to where they started (see @detourPoint), and then on to the
+     * target.
+     *
+     * @param initialPos the input arguments
+     * @param finalPos the input arguments
+     * @return the flightpath that takes the drone to @finalPos
+     * @throws IllegalStateException if the drone still goes round in circles after
+     * @maxDetours detours, or if no detour can help
+     */
+    @Override
+    public ArrayList<LongLat> plan(LongLat initialPos, LongLat finalPos){
+        stepBuffer steps = buffers.get();
+        steps.clear();
+        steps.add(initialPos.longitude, initialPos.latitude);
+        LongLat[] targets = steps.targets;
+        int pending = 0;
+        targets[pending++] = finalPos;
+        int detours = 0;
+        int segmentStart = 0;
+        double x = initialPos.longitude;
+        double y = initialPos.latitude;
+        while (pending > 0){
+            LongLat target = targets[pending - 1];
+            steps.forgetVisits();
+            steps.visit(x, y);
+            boolean circling = false;
+            while (Math.sqrt(Geometry.distanceSq(x, y, target.longitude, target.latitude)) >= LongLat.step){
+                int angle = goodAngle(x, y, target.longitude, target.latitude);
+                x = Geometry.nextX(x, angle);
+                y = Geometry.nextY(y, angle);
+                if (!steps.visit(x, y)){
+                    circling = true;
+                    break;
+                }
+                steps.add(x, y);
+            }
+            if (!circling){
+                pending--;
+                segmentStart = steps.size - 1;
+                continue;
+            }
+            steps.size = segmentStart + 1;
+            x = steps.xs[segmentStart];
+            y = steps.ys[segmentStart];
+            LongLat point = detourPoint(x, y, target);
+            if (point == null || ++detours > maxDetours){
+                throw new IllegalStateException("No greedy path from " + initialPos.longitude + "," + initialPos.latitude
+                        + " to " + finalPos.longitude + "," + finalPos.latitude);
+            }
+            Metrics.detours.increment();
+            targets[pending++] = point;
+        }
+
+        ArrayList<LongLat> movements = new ArrayList<>(steps.size + 1);
+        movements.add(initialPos);
+        LongLat position = initialPos;
+        for (int i = 1; i < steps.size; i++){
+            position = new LongLat(steps.xs[i], steps.ys[i]);
+            movements.add(position);
+        }
+        movements.add(position);
+        return movements;
+    }
+
+    /**
+     * Chooses the intermediate point a detour goes through: the closest of the map's
+     * @MapConfig.getSouthWest and @MapConfig.getNorthEast that the drone isn't already on its
+     * way to, nor already at (which is how the recursive planner used to detour forever).
+     *
+     * @param x      the longitude where the detour starts
+     * @param y      the latitude where the detour starts
+     * @param target the target the drone couldn't reach
+     * @return the intermediate point, or null if neither of them helps
+     */
+    private LongLat detourPoint(double x, double y, LongLat target){
+        LongLat first = map.getSouthWest();
+        LongLat second = map.getNorthEast();
+        if (Geometry.distanceSq(x, y, second.longitude, second.latitude)
+                <= Geometry.distanceSq(x, y, first.longitude, first.latitude)){
+            first = map.getNorthEast();
+            second = map.getSouthWest();
+        }
+        for (LongLat point : new LongLat[]{first, second}){
+            if (point != target && Math.sqrt(Geometry.distanceSq(x, y, point.longitude, point.latitude)) >= LongLat.step){
+                return point;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The positions of a leg being planned, the targets it still has to reach, and the cells
+     * visited on the way to the current target (an open-addressing hash set, emptied by moving on to a new generation). The arrays
+     * grow when needed and are kept for the next legs.
+     */
+    private static final class stepBuffer {
+        private final LongLat[] targets = new LongLat[maxDetours + 1];
+        private double[] xs = new double[256];
+        private double[] ys = new double[256];
+        private int size;
+        private long[] cells = new long[512];
+        private int[] generations = new int[512];
+        private int generation = 1;
+        private int visited;
+
+        private void clear(){
+            size = 0;
+        }
+
+        private void add(double x, double y){
+            if (size == xs.length){
+                xs = Arrays.copyOf(xs, 2 * size);
+                ys = Arrays.copyOf(ys, 2 * size);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+
+        private void forgetVisits(){
+            generation++;
+            visited = 0;
+            if (generation == Integer.MAX_VALUE){
+                Arrays.fill(generations, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * Marks the cell of a position as visited.
+         *
+         * @return false if it had already been visited
+         */
+        private boolean visit(double x, double y){
+            long cell = (Math.round(x / loopCell) << 32) ^ (Math.round(y / loopCell) & 0xffffffffL);
+            if (2 * (visited + 1) > cells.length){
+                grow();
+            }
+            int mask = cells.length - 1;
+            int i = Long.hashCode(cell * 0x9E3779B97F4A7C15L) & mask;
+            while (generations[i] == generation){
+                if (cells[i] == cell){
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            cells[i] = cell;
+            generations[i] = generation;
+            visited++;
+            return true;
+        }
+
+        private void grow(){
+            long[] oldCells = cells;
+            int[] oldGenerations = generations;
+            cells = new long[2 * oldCells.length];
+            generations = new int[2 * oldCells.length];
+            int mask = cells.length - 1;
+            for (int j = 0; j < oldCells.length; j++){
+                if (oldGenerations[j] == generation){
+                    int i = Long.hashCode(oldCells[j] * 0x9E3779B97F4A7C15L) & mask;
+                    while (generations[i] == generation){
+                        i = (i + 1) & mask;
+                    }
+                    cells[i] = oldCells[j];
+                    generations[i] = generation;
+                }
+            }
+        }
+    }
+}
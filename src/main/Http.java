@@ -6,6 +6,7 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -15,6 +16,11 @@ import java.net.http.HttpResponse;
 public class Http {
     //http client object
     private static final HttpClient client = HttpClient.newHttpClient();
+    /**
+     * The maximum number of asynchronous requests in flight at the same time. It can be changed
+     * with the 'ilp.http.concurrency' system property.
+     */
+    public static final int maxConcurrentRequests = Integer.getInteger("ilp.http.concurrency", 16);
 
     /**
      * Method that gets the .json file from the selected directory (url), throwing
@@ -28,7 +34,9 @@ public class Http {
 //method that gets the .json file from the selected directory(url)
     public static String getResponse(String url) throws IOException, InterruptedException {
         HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).build();
+        long start = Metrics.start();
         HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        latency(url).recordSince(start);
 
         if (response.statusCode()!=200){
             System.exit(1);
@@ -36,6 +44,64 @@ public class Http {
         return response.body();
     }
 
+    /**
+     * Method that gets the .json file from the selected directory (url) without blocking.
+     * Unlike @getResponse, a status other than 200 doesn't stop the app: the returned future
+     * completes exceptionally and the caller decides what to do.
+     *
+     * @param url the url
+     * @return the future response
+     */
+    public static CompletableFuture<String> getResponseAsync(String url) {
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).build();
+        long start = Metrics.start();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            latency(url).recordSince(start);
+            if (response.statusCode()!=200){
+                throw new IllegalStateException("Status " + response.statusCode() + " from " + url);
+            }
+            return response.body();
+        });
+    }
+
+    /**
+     * Finds the histogram where the latency of the requests for a url is recorded.
+     *
+     * @param url the url
+     * @return the histogram of its endpoint
+     */
+    private static Metrics.histogram latency(String url) {
+        if (url.contains("/words/")){
+            return Metrics.httpWordsNanos;
+        }
+        return url.contains("/menus/") ? Metrics.httpMenusNanos : Metrics.httpBuildingsNanos;
+    }
+
+    /**
+     * Builds the url of the menus.json file.
+     *
+     * @param name the name of the machine
+     * @param port the webserver port
+     * @return the url
+     */
+    public static String menusUrl(String name, String port){
+        return "http://"+name+":"+port+"/menus/menus.json";
+    }
+
+    /**
+     * Builds the url of the .json file where the coordinates of a What three words are stored.
+     *
+     * @param name the machine name
+     * @param port the webserver port
+     * @param w1   the first word
+     * @param w2   the second word
+     * @param w3   the third word
+     * @return the url
+     */
+    public static String coordinatesUrl(String name, String port, String w1, String w2, String w3){
+        return "http://"+name+":"+port+"/words/"+w1+"/"+w2+"/"+w3+"/details.json";
+    }
+
     /**
      * Get menus.json file from the webserver.
      *
@@ -45,7 +111,7 @@ public class Http {
      */
 //method that gets the menus.json file from the server
     public static String getMenus(String name, String port){
-        String url = "http://"+name+":"+port+"/menus/menus.json";
+        String url = menusUrl(name, port);
         String menus = null;
 
         //uses try and catches to handle the possible errors
@@ -77,7 +143,7 @@ public class Http {
      * @return a string composed of the contents of the .json document
      */
     public static String getCoordinates(String name, String port, String w1, String w2, String w3){
-        String url = "http://"+name+":"+port+"/words/"+w1+"/"+w2+"/"+w3+"/details.json";
+        String url = coordinatesUrl(name, port, w1, w2, w3);
         String coordinates = null;
 
         //uses try and catches to handle the possible errors
@@ -126,4 +192,33 @@ public class Http {
 
     }
 
+    /**
+     * Method that gets the .json document containing the coordinates of the
+     * landmarks the drone can use to fly around the no-fly zone.
+     *
+     * @param name the machine name
+     * @param port the of the website port
+     * @return a string composed of the contents of .json documents
+     */
+    public static String getLandmarks(String name, String port){
+        String url = "http://"+name+":"+port+"/buildings/landmarks.geojson";
+        String landmarks = null;
+
+        //uses try and catches to handle the possible errors
+        try{
+            landmarks = getResponse(url);
+        } catch (ConnectException e){
+            System.out.println("Fatal error: Unable to connect to "+name+" at port "+port+".");
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Fatal IO Exception Error: \n" + e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.err.println("Fatal Interrupted Exception Error: \n" + e);
+            System.exit(1);
+        }
+        return landmarks;
+
+    }
+
 }
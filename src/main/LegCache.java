@@ -0,0 +1,327 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * The LegCache class, a @PathPlanner that remembers the legs planned by another planner, so the
+ * same leg is only planned once (the return to Appleton Tower after every candidate order, the
+ * legs from a shop to the same customer, the legs of the @LegCostMatrix that are flown later...).
+ *
+ * The legs are kept in an @LruCache keyed by the cells of a grid of side @LongLat.step that
+ * contain their start and end points. Every leg is kept compactly, as a @FlightPath (its exact
+ * start point and a byte per move) and its exact end point.
+ *
+ * A leg is reused as it is if it starts and ends at the same points. If the drone is not exactly
+ * at the start of a known leg to the same end, but closer than @LongLat.step to it, the moves of
+ * the known leg are replayed from where the drone is. The replayed leg is only used if all of its
+ * moves are legal and it gets close to the end point, otherwise the leg is planned.
+ *
+ * It is safe to use from several threads: the cache is locked while it is read or changed, but
+ * not while a leg is planned. Every cache counts its hits, near hits and misses, and they are
+ * also added to @Metrics.legHits, @Metrics.legNearHits and @Metrics.legMisses for the whole run.
+ */
+public class LegCache implements PathPlanner {
+    /**
+     * The default maximum number of legs kept. It can be changed with the 'ilp.legs.cacheSize'
+     * system property.
+     */
+    public static final int defaultCapacity = Integer.getInteger("ilp.legs.cacheSize", 4096);
+
+    /**
+     * The key of a leg: the cells that contain its start and end points.
+     */
+    private static final class key {
+        private final long start;
+        private final long end;
+
+        private key(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof key)){
+                return false;
+            }
+            key other = (key) o;
+            return start == other.start && end == other.end;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end);
+        }
+    }
+
+    /**
+     * A leg kept in the cache.
+     */
+    private static final class leg {
+        private final LongLat start;
+        private final LongLat end;
+        private final FlightPath path;
+
+        private leg(LongLat start, LongLat end, FlightPath path) {
+            this.start = start;
+            this.end = end;
+            this.path = path;
+        }
+    }
+
+    //class variables
+    private final PathPlanner planner;
+    private final LruCache<key, leg> legs;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong nearHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Class constructor, it keeps up to @defaultCapacity legs.
+     *
+     * @param planner the planner that plans the legs that aren't in the cache
+     */
+    public LegCache(PathPlanner planner) {
+        this(planner, defaultCapacity);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param planner  the planner that plans the legs that aren't in the cache
+     * @param capacity the maximum number of legs kept
+     */
+    public LegCache(PathPlanner planner, int capacity) {
+        this.planner = planner;
+        this.legs = new LruCache<>(capacity);
+    }
+
+    /**
+     * Getter that returns the planner that plans the legs that aren't in the cache.
+     *
+     * @return the planner
+     */
+    public PathPlanner getPlanner() {
+        return planner;
+    }
+
+    /**
+     * Keeps every leg of a @LegCostMatrix that kept its flightpaths, row by row. Building the
+     * matrix with @getPlanner and then adding it gives the same cache whatever the order the
+     * legs were planned in.
+     *
+     * @param matrix the matrix
+     */
+    public void addAll(LegCostMatrix matrix) {
+        synchronized (legs){
+            for (int from = 0; from < matrix.getSize(); from++){
+                for (int to = 0; to < matrix.getSize(); to++){
+                    FlightPath path = matrix.getPath(from, to);
+                    if (path != null && path.getSegments() == 1){
+                        LongLat start = matrix.getPoint(from);
+                        LongLat end = matrix.getPoint(to);
+                        legs.put(new key(cell(start), cell(end)), new leg(start, end, path));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the cell of the grid that contains a point.
+     *
+     * @param point the point
+     * @return the column and row of the cell, packed in a long
+     */
+    private static long cell(LongLat point) {
+        return cell((long) Math.floor(point.longitude / LongLat.step), (long) Math.floor(point.latitude / LongLat.step));
+    }
+
+    /**
+     * Packs the column and row of a cell of the grid in a long.
+     *
+     * @param column the column of the cell
+     * @param row    the row of the cell
+     * @return the cell
+     */
+    private static long cell(long column, long row) {
+        return (column << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the leg from @initialPos to @finalPos from the cache if it is there (or if a leg
+     * to @finalPos from a point closer than @LongLat.step can be replayed), and otherwise
+     * plans it and keeps it.
+     *
+     * @param initialPos the position the drone starts from
+     * @param finalPos   the position the drone has to get close to
+     * @return the flightpath that takes the drone to @finalPos
+     */
+    @Override
+    public ArrayList<LongLat> plan(LongLat initialPos, LongLat finalPos) {
+        long startCell = cell(initialPos);
+        long endCell = cell(finalPos);
+        key exact = new key(startCell, endCell);
+        leg known;
+        synchronized (legs){
+            known = legs.get(exact);
+        }
+        if (known != null && isSame(known.start, initialPos) && isSame(known.end, finalPos)){
+            hits.incrementAndGet();
+            Metrics.legHits.increment();
+            ArrayList<LongLat> movements = known.path.toList();
+            movements.set(0, initialPos);
+            return movements;
+        }
+        ArrayList<LongLat> replayed = replayNearby(initialPos, finalPos, startCell, endCell);
+        if (replayed != null){
+            nearHits.incrementAndGet();
+            Metrics.legNearHits.increment();
+            return replayed;
+        }
+        misses.incrementAndGet();
+        Metrics.legMisses.increment();
+        long start = Metrics.start();
+        ArrayList<LongLat> movements = planner.plan(initialPos, finalPos);
+        Metrics.legPlanNanos.recordSince(start);
+        FlightPath path = new FlightPath(movements);
+        if (path.getSegments() == 1){
+            synchronized (legs){
+                legs.put(exact, new leg(initialPos, finalPos, path));
+            }
+        }
+        return movements;
+    }
+
+    /**
+     * Looks for a known leg to @finalPos that starts closer than @LongLat.step to @initialPos,
+     * in the cell of @initialPos and the cells around it, and replays it from @initialPos.
+     *
+     * @param initialPos the position the drone starts from
+     * @param finalPos   the position the drone has to get close to
+     * @param startCell  the cell of @initialPos
+     * @param endCell    the cell of @finalPos
+     * @return the replayed flightpath, or null if there isn't a leg that can be replayed
+     */
+    private ArrayList<LongLat> replayNearby(LongLat initialPos, LongLat finalPos, long startCell, long endCell) {
+        long column = startCell >> 32;
+        long row = (int) startCell;
+        for (long c = column - 1; c <= column + 1; c++){
+            for (long r = row - 1; r <= row + 1; r++){
+                leg known;
+                synchronized (legs){
+                    known = legs.get(new key(cell(c, r), endCell));
+                }
+                if (known == null || !isSame(known.end, finalPos)
+                        || known.start.distanceTo(initialPos) >= LongLat.step){
+                    continue;
+                }
+                ArrayList<LongLat> replayed = replay(initialPos, finalPos, known.path);
+                if (replayed != null){
+                    return replayed;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replays the moves of a leg from another start, until the drone gets close to @finalPos.
+     *
+     * @param initialPos the position the drone starts from
+     * @param finalPos   the position the drone has to get close to
+     * @param path       the known leg
+     * @return the flightpath, or null if a move is illegal or the drone doesn't get close
+     */
+    private ArrayList<LongLat> replay(LongLat initialPos, LongLat finalPos, FlightPath path) {
+        ArrayList<LongLat> movements = new ArrayList<>(path.size());
+        movements.add(initialPos);
+        LongLat position = initialPos;
+        FlightPath.cursor moves = path.cursor();
+        moves.next();
+        while (moves.next()){
+            if (position.closeTo(finalPos)){
+                movements.add(position);
+                return movements;
+            }
+            if (moves.angle == Directions.hover){
+                return null;
+            }
+            LongLat nextPosition = position.nextPosition(moves.angle);
+            if (!planner.isMoveGood(position, nextPosition)){
+                return null;
+            }
+            movements.add(nextPosition);
+            position = nextPosition;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if two points are exactly the same.
+     *
+     * @param a a point
+     * @param b another point
+     * @return true if both coordinates are equal
+     */
+    private static boolean isSame(LongLat a, LongLat b) {
+        return a.longitude == b.longitude && a.latitude == b.latitude;
+    }
+
+    @Override
+    public boolean isMoveGood(LongLat initialPos, LongLat nextPos) {
+        return planner.isMoveGood(initialPos, nextPos);
+    }
+
+    /**
+     * Getter that returns the number of legs returned as they were kept.
+     *
+     * @return the number of exact hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Getter that returns the number of legs replayed from a nearby start.
+     *
+     * @return the number of near hits
+     */
+    public long getNearHits() {
+        return nearHits.get();
+    }
+
+    /**
+     * Getter that returns the number of legs that had to be planned.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Getter that returns the fraction of legs that didn't have to be planned.
+     *
+     * @return the hit rate, between 0 and 1 (0 if no leg was requested)
+     */
+    public double getHitRate() {
+        long found = hits.get() + nearHits.get();
+        long total = found + misses.get();
+        return total == 0 ? 0 : (double) found / total;
+    }
+
+    /**
+     * Getter that returns the number of legs kept.
+     *
+     * @return the number of legs
+     */
+    public int getSize() {
+        synchronized (legs){
+            return legs.size();
+        }
+    }
+}
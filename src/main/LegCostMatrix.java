@@ -0,0 +1,238 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * The LegCostMatrix class, which keeps the number of moves the drone needs to fly between every
+ * pair of points of a day: Appleton Tower, the shops and the delivery locations.
+ *
+ * The moves of a leg are the size of the flightpath the @PathPlanner returns for it, which is
+ * what @App.flightPlanner takes off the moves left in the @PlanState for that leg. The matrix is
+ * stored in a single array, row by row: the leg from point 'from' to point 'to' is at
+ * from * size + to.
+ *
+ * The legs are planned in parallel on a @ForkJoinPool, so the planner must be safe to use from
+ * several threads (the planners in this package only read their own state). The flightpaths
+ * can be kept as well, so they don't need to be planned again.
+ *
+ * A leg the planner can't fly (it throws an @IllegalStateException, like @GreedyPlanner when it
+ * still goes round in circles after its detours) costs @unreachable moves, so no route takes it.
+ */
+public class LegCostMatrix {
+    /**
+     * The number of legs below which a task plans its legs itself instead of splitting them.
+     */
+    static final int legsPerTask = 8;
+    /**
+     * The moves of a leg the planner can't fly. No battery holds that many moves, and the few
+     * legs of an order plus the way back home can still be added up without overflowing.
+     */
+    public static final int unreachable = Integer.MAX_VALUE / 8;
+
+    /**
+     * The distinct points of the day.
+     */
+    private final ArrayList<LongLat> points = new ArrayList<>();
+    /**
+     * The moves of every leg, row by row.
+     */
+    private final int[] moves;
+    /**
+     * The flightpath of every leg, row by row, or null if they aren't kept.
+     */
+    private final FlightPath[] paths;
+    /**
+     * True if only the legs from a point to a later one are planned (see the constructor).
+     */
+    private final boolean symmetric;
+
+    /**
+     * Class constructor, it plans every leg between the given points with the @PathPlanner, in
+     * parallel on the common @ForkJoinPool. Points that are repeated are only kept once.
+     *
+     * @param planner   the planner used to calculate the legs
+     * @param endpoints the points of the day
+     */
+    public LegCostMatrix(PathPlanner planner, List<LongLat> endpoints) {
+        this(planner, endpoints, ForkJoinPool.commonPool(), false, false);
+    }
+
+    /**
+     * Class constructor, it plans every leg between the given points with the @PathPlanner, in
+     * parallel on the given @ForkJoinPool. Points that are repeated are only kept once.
+     *
+     * If @symmetric is true only the legs from a point to itself or to a later point are
+     * planned, and the moves of the way back are taken to be the same. It halves the work, but
+     * the planners in this package are only symmetric to within a move (they stop when they are
+     * close to the end point, which isn't the same going and coming back).
+     *
+     * @param planner   the planner used to calculate the legs
+     * @param endpoints the points of the day
+     * @param pool      the pool the legs are planned in
+     * @param keepPaths true to keep the flightpath of every leg (see @getPath)
+     * @param symmetric true to plan each pair of points only once
+     */
+    public LegCostMatrix(PathPlanner planner, List<LongLat> endpoints, ForkJoinPool pool,
+                         boolean keepPaths, boolean symmetric) {
+        for (LongLat point : endpoints){
+            if (indexOf(point) < 0){
+                points.add(point);
+            }
+        }
+        int size = points.size();
+        this.moves = new int[size * size];
+        this.paths = keepPaths ? new FlightPath[size * size] : null;
+        this.symmetric = symmetric;
+        pool.invoke(new legs(planner, 0, size * size));
+        if (symmetric){
+            for (int from = 1; from < size; from++){
+                for (int to = 0; to < from; to++){
+                    moves[from * size + to] = moves[to * size + from];
+                }
+            }
+        }
+    }
+
+    /**
+     * The task that plans a range of legs of the matrix, splitting it in two halves while it is
+     * longer than @legsPerTask.
+     */
+    private class legs extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient PathPlanner planner;
+        private final int start;
+        private final int end;
+
+        private legs(PathPlanner planner, int start, int end) {
+            this.planner = planner;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > legsPerTask){
+                int middle = (start + end) >>> 1;
+                invokeAll(new legs(planner, start, middle), new legs(planner, middle, end));
+                return;
+            }
+            int size = points.size();
+            for (int leg = start; leg < end; leg++){
+                int from = leg / size;
+                int to = leg % size;
+                if (symmetric && to < from){
+                    continue;
+                }
+                long planStart = Metrics.start();
+                ArrayList<LongLat> path;
+                try {
+                    path = planner.plan(points.get(from), points.get(to));
+                } catch (IllegalStateException e) {
+                    Metrics.unreachableLegs.increment();
+                    moves[leg] = unreachable;
+                    continue;
+                }
+                Metrics.legPlanNanos.recordSince(planStart);
+                moves[leg] = path.size();
+                if (paths != null){
+                    paths[leg] = new FlightPath(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the matrix of a day: Appleton Tower and every pick-up and drop-off location of the
+     * orders in the @Database data table.
+     *
+     * @param planner   the planner used to calculate the legs
+     * @param home      the place the drone starts from and goes back to
+     * @param database  the day's orders
+     * @param keepPaths true to keep the flightpath of every leg (see @getPath)
+     * @return the matrix
+     */
+    public static LegCostMatrix forDay(PathPlanner planner, LongLat home, Database database, boolean keepPaths) {
+        ArrayList<LongLat> endpoints = new ArrayList<>();
+        endpoints.add(home);
+        for (int i = 0; i < database.getSize(); i++){
+            Database.row row = database.getDataTableRow(i);
+            endpoints.addAll(row.getPickups());
+            endpoints.add(row.getDeliverTo());
+        }
+        return new LegCostMatrix(planner, endpoints, ForkJoinPool.commonPool(), keepPaths, false);
+    }
+
+    /**
+     * Getter that returns the number of distinct points.
+     *
+     * @return the number of points
+     */
+    public int getSize() {
+        return points.size();
+    }
+
+    /**
+     * Getter that returns a point of the matrix.
+     *
+     * @param i the index of the point
+     * @return the point
+     */
+    public LongLat getPoint(int i) {
+        return points.get(i);
+    }
+
+    /**
+     * Finds the index of a point in the matrix.
+     *
+     * @param point the point
+     * @return its index, or -1 if it isn't in the matrix
+     */
+    public int indexOf(LongLat point) {
+        for (int i = 0; i < points.size(); i++){
+            LongLat other = points.get(i);
+            if (other.longitude == point.longitude && other.latitude == point.latitude){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Getter that returns the moves of the leg between two points of the matrix.
+     *
+     * @param from the index of the point the leg starts at
+     * @param to   the index of the point the leg ends at
+     * @return the number of moves, or @unreachable if the planner can't fly the leg
+     */
+    public int getMoves(int from, int to) {
+        return moves[from * points.size() + to];
+    }
+
+    /**
+     * Getter that returns the moves of the leg between two points of the matrix.
+     *
+     * @param from the point the leg starts at
+     * @param to   the point the leg ends at
+     * @return the number of moves, or @unreachable if the planner can't fly the leg
+     */
+    public int getMoves(LongLat from, LongLat to) {
+        return getMoves(indexOf(from), indexOf(to));
+    }
+
+    /**
+     * Getter that returns the flightpath of the leg between two points of the matrix. When the
+     * matrix is symmetric the legs from a point to an earlier one aren't planned.
+     *
+     * @param from the index of the point the leg starts at
+     * @param to   the index of the point the leg ends at
+     * @return the flightpath, or null if it wasn't kept or the planner can't fly the leg
+     */
+    public FlightPath getPath(int from, int to) {
+        return paths == null ? null : paths[from * points.size() + to];
+    }
+}
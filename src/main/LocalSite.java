@@ -0,0 +1,137 @@
+package uk.ac.ed.inf;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * The LocalSite class, which gives the files of the webserver (menus.json, the buildings and
+ * the "ThreeWords" details) straight from a copy of the 'website' folder, so the app can run
+ * without WebServerLite. It is the local counterpart of the @Http class: a @Website built with
+ * a site folder reads the files in-process through @read and @readAsync, and @serve serves the
+ * same folder over HTTP from this JVM for anything that needs a real webserver.
+ */
+public final class LocalSite {
+    /**
+     * The path of menus.json, relative to the site folder.
+     */
+    static final String menus = "menus/menus.json";
+    /**
+     * The path of the no-fly zones, relative to the site folder.
+     */
+    static final String buildings = "buildings/no-fly-zones.geojson";
+    /**
+     * The path of the landmarks, relative to the site folder.
+     */
+    static final String landmarks = "buildings/landmarks.geojson";
+
+    private LocalSite() {
+    }
+
+    /**
+     * Builds the path of the .json file where the coordinates of a What three words are stored,
+     * relative to the site folder.
+     *
+     * @param w1 the first word
+     * @param w2 the second word
+     * @param w3 the third word
+     * @return the path
+     */
+    static String coordinates(String w1, String w2, String w3){
+        return "words/"+w1+"/"+w2+"/"+w3+"/details.json";
+    }
+
+    /**
+     * Reads a file of the site. Like a status other than 200 from the webserver, a missing file
+     * stops the app.
+     *
+     * @param site     the site folder
+     * @param relative the path of the file, relative to the site folder
+     * @return the contents of the file
+     */
+    static String read(Path site, String relative){
+        try {
+            return Files.readString(resolve(site, relative));
+        } catch (IOException e) {
+            System.err.println("Fatal IO Exception Error: \n" + e);
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Reads a file of the site the way @Http.getResponseAsync requests it: a missing file
+     * doesn't stop the app, the returned future completes exceptionally instead.
+     *
+     * @param site     the site folder
+     * @param relative the path of the file, relative to the site folder
+     * @return the future contents of the file, which is already complete
+     */
+    static CompletableFuture<String> readAsync(Path site, String relative){
+        try {
+            return CompletableFuture.completedFuture(Files.readString(resolve(site, relative)));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Finds a file of the site, refusing paths that lead outside the site folder.
+     *
+     * @param site     the site folder
+     * @param relative the path of the file, relative to the site folder
+     * @return the path of the file
+     * @throws IOException if the path leads outside the site folder
+     */
+    private static Path resolve(Path site, String relative) throws IOException {
+        Path root = site.toAbsolutePath().normalize();
+        Path file = root.resolve(relative).normalize();
+        if (!file.startsWith(root)){
+            throw new IOException("Not a file of the site: " + relative);
+        }
+        return file;
+    }
+
+    /**
+     * Serves the site folder over HTTP from this JVM, on localhost, the way WebServerLite does: a
+     * file that doesn't exist gets a 404 status.
+     *
+     * @param site the site folder
+     * @param port the port to listen on, or 0 for any free port
+     * @return the running server, whose address gives the port; it is stopped with stop(0)
+     * @throws IOException if the port can't be used
+     */
+    public static HttpServer serve(Path site, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("localhost"), port), 0);
+        server.createContext("/", exchange -> {
+            try {
+                byte[] body;
+                try {
+                    Path file = resolve(site, exchange.getRequestURI().getPath().substring(1));
+                    body = Files.isRegularFile(file) ? Files.readAllBytes(file) : null;
+                } catch (IOException e) {
+                    body = null;
+                }
+                if (body == null){
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+}
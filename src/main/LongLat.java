@@ -22,6 +22,22 @@ public class LongLat
      * The size of the step the drone takes with every move.
      */
     static public final double step = 0.00015;
+    /**
+     * The western limit of the confinement area.
+     */
+    static public final double minLongitude = -3.192473;
+    /**
+     * The eastern limit of the confinement area.
+     */
+    static public final double maxLongitude = -3.184319;
+    /**
+     * The southern limit of the confinement area.
+     */
+    static public final double minLatitude = 55.942617;
+    /**
+     * The northern limit of the confinement area.
+     */
+    static public final double maxLatitude = 55.946233;
 
     /**
      * The LongLat object constructor.
@@ -43,7 +59,7 @@ public class LongLat
      */
 //Checks that longitude and latitude are in the proper ranges
     boolean isConfined(){
-        return ((this.longitude >= -3.192473d) && (this.longitude <= -3.184319d) && (this.latitude >= 55.942617d) && (this.latitude <=55.946233));
+        return Geometry.isConfined(this.longitude, this.latitude);
     }
 
     /**
@@ -60,30 +76,15 @@ public class LongLat
     }
 
     /**
-     * This method rounds doubles to one decimal place.
-     * @param value , the double value
-     * @return   , the rounded value.
-     */
-    private static double round(double value) {
-        int scale = (int) Math.pow(10, 1);
-        return (double) Math.round(value * scale) / scale;
-    }
-
-    /**
-     * This method calculates the positive angle that generates the line given by two @LongLat
-     * object coordinates with respect to the latitude axis.
+     * This method calculates the angle that generates the line given by two @LongLat
+     * object coordinates with respect to the latitude axis, rounded to the closest direction
+     * the drone can move in (using the @Directions table, without trigonometry).
      *
      * @param obj the @LongLat obj
-     * @return the angle in degrees(int)
+     * @return the angle in degrees(int) between 0 and 350, or -999 if both locations are the same
      */
     int getAngle(LongLat obj){
-        double angle;
-        if ((obj.longitude - this.longitude) < 0) {
-            angle = (180 - Math.toDegrees(Math.asin((obj.latitude - this.latitude)/this.distanceTo(obj)))) / 100;
-        } else {
-            angle = Math.toDegrees(Math.asin((obj.latitude - this.latitude)/this.distanceTo(obj))) / 100;
-        }
-        return (int)(round(angle)*100);
+        return Directions.nearest(obj.longitude - this.longitude, obj.latitude - this.latitude);
     }
 
     /**
@@ -95,8 +96,7 @@ public class LongLat
      * @return the boolean
      */
     static boolean ccw(LongLat A,LongLat B, LongLat C){
-        return (C.latitude-A.latitude) * (B.longitude-A.longitude)
-                > (B.latitude-A.latitude) * (C.longitude-A.longitude);
+        return Geometry.ccw(A.longitude, A.latitude, B.longitude, B.latitude, C.longitude, C.latitude);
     }
 
     /**
@@ -110,14 +110,8 @@ public class LongLat
      * @return the boolean
      */
     static boolean doesIntersect(LongLat lineBeginning, LongLat lineEnd, LongLat line1Beginning, LongLat line1End){
-        if (lineBeginning.isEqual(line1Beginning) || lineBeginning.isEqual(line1End)){
-            return true;
-        }
-        if (lineEnd.isEqual(line1Beginning) || lineEnd.isEqual(line1End)){
-            return true;
-        }
-        return ccw(lineBeginning,line1Beginning,line1End) != ccw(lineEnd,line1Beginning,line1End)
-                && ccw(lineBeginning,lineEnd,line1Beginning) != ccw(lineBeginning,lineEnd,line1End);
+        return Geometry.intersects(lineBeginning.longitude, lineBeginning.latitude, lineEnd.longitude, lineEnd.latitude,
+                line1Beginning.longitude, line1Beginning.latitude, line1End.longitude, line1End.latitude);
     }
 
     /**
@@ -128,7 +122,7 @@ public class LongLat
      */
 //Uses pythagoras to calculate distance between two pairs of coordinates
     double distanceTo(LongLat obj){
-        return Math.sqrt((this.longitude - obj.longitude)*(this.longitude - obj.longitude) + (this.latitude - obj.latitude)*(this.latitude - obj.latitude));
+        return Math.sqrt(Geometry.distanceSq(this.longitude, this.latitude, obj.longitude, obj.latitude));
     }
 
     /**
@@ -156,8 +150,7 @@ public class LongLat
         if (angle == -999){
             return this;
         }
-        double radians = Math.toRadians(angle);
-        return new LongLat(Math.cos(radians)*step +this.longitude, Math.sin(radians)*step +this.latitude);
+        return new LongLat(Geometry.nextX(this.longitude, angle), Geometry.nextY(this.latitude, angle));
     }
 
     /**
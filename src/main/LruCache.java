@@ -0,0 +1,47 @@
+package uk.ac.ed.inf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The LruCache class, a map with a maximum size that removes the least recently used entry
+ * when a new one doesn't fit. It is not synchronized, so callers that share it between threads
+ * must lock it.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class LruCache<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The maximum number of entries.
+     */
+    private final int capacity;
+
+    /**
+     * Class constructor.
+     *
+     * @param capacity the maximum number of entries
+     */
+    public LruCache(int capacity) {
+        super(16, 0.75f, true);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Getter that returns the maximum number of entries.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > capacity;
+    }
+}
@@ -0,0 +1,356 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The MapConfig class, which describes the area the drone flies over: the confinement area, the
+ * no-fly zones, the landmarks, where the drone starts and ends its day (Appleton Tower on the
+ * campus map), the moves of its battery and the two intermediate points the @GreedyPlanner
+ * detours through. Every geometry check of the planners (see @isConfined) is driven by it.
+ *
+ * A map is loaded from three GeoJSON documents, like the ones in 'testing' and
+ * 'website/buildings': the confinement zone (a single polygon), the no-fly zones and the
+ * landmarks. The confinement area is the bounding box of the confinement polygon, and the
+ * properties of the polygon's feature can give the rest:
+ *
+ *   "home": [longitude, latitude], "maxMoves": moves, "detours": [[longitude, latitude], [longitude, latitude]]
+ *
+ * Whatever is missing is taken from the campus map (see @campus). The step of the drone is the
+ * same on every map: it is the drone's move, @LongLat.step, not a property of the area. The
+ * safety margin the no-fly zones are inflated by (see @NoFlyZones) is @NoFlyZones.margin unless
+ * a map with another one is made with @withNoFlyMargin.
+ *
+ * It is immutable, so a single map can be shared by every day planned in the same JVM.
+ */
+public final class MapConfig {
+    /**
+     * The name of the confinement zone's file in a map folder.
+     */
+    static final String confinementFile = "confinement-zone.geojson";
+    /**
+     * The name of the no-fly zones' file in a map folder.
+     */
+    static final String noFlyZonesFile = "no-fly-zones.geojson";
+    /**
+     * The name of the landmarks' file in a map folder.
+     */
+    static final String landmarksFile = "landmarks.geojson";
+
+    //class variables
+    private final double minLongitude, minLatitude, maxLongitude, maxLatitude;
+    private final LongLat home;
+    private final int maxMoves;
+    private final LongLat southWest, northEast;
+    private final List<List<LongLat>> noFlyZones;
+    private final List<LongLat> landmarks;
+    private final double noFlyMargin;
+
+    /**
+     * Class constructor, the no-fly zones are inflated by @NoFlyZones.margin.
+     *
+     * @param minLongitude the western limit of the confinement area
+     * @param minLatitude  the southern limit of the confinement area
+     * @param maxLongitude the eastern limit of the confinement area
+     * @param maxLatitude  the northern limit of the confinement area
+     * @param home         where the drone starts and ends its day
+     * @param maxMoves     the moves the drone can make on a single battery charge
+     * @param southWest    the first intermediate point of the @GreedyPlanner
+     * @param northEast    the second intermediate point of the @GreedyPlanner
+     * @param noFlyZones   the polygons of the no-fly zones, as lists of corners
+     * @param landmarks    the landmarks the drone can fly through
+     */
+    public MapConfig(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude,
+                     LongLat home, int maxMoves, LongLat southWest, LongLat northEast,
+                     List<? extends List<LongLat>> noFlyZones, List<LongLat> landmarks) {
+        this(minLongitude, minLatitude, maxLongitude, maxLatitude, home, maxMoves, southWest, northEast,
+                noFlyZones, landmarks, NoFlyZones.margin);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param minLongitude the western limit of the confinement area
+     * @param minLatitude  the southern limit of the confinement area
+     * @param maxLongitude the eastern limit of the confinement area
+     * @param maxLatitude  the northern limit of the confinement area
+     * @param home         where the drone starts and ends its day
+     * @param maxMoves     the moves the drone can make on a single battery charge
+     * @param southWest    the first intermediate point of the @GreedyPlanner
+     * @param northEast    the second intermediate point of the @GreedyPlanner
+     * @param noFlyZones   the polygons of the no-fly zones, as lists of corners
+     * @param landmarks    the landmarks the drone can fly through
+     * @param noFlyMargin  the safety margin the no-fly zones are inflated by, as a fraction of
+     *                     @LongLat.step
+     * @throws IllegalArgumentException if the confinement area is empty or the margin is negative
+     */
+    public MapConfig(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude,
+                     LongLat home, int maxMoves, LongLat southWest, LongLat northEast,
+                     List<? extends List<LongLat>> noFlyZones, List<LongLat> landmarks, double noFlyMargin) {
+        if (!(minLongitude < maxLongitude) || !(minLatitude < maxLatitude)){
+            throw new IllegalArgumentException("Empty confinement area");
+        }
+        if (!(noFlyMargin >= 0)){
+            throw new IllegalArgumentException("Negative no-fly margin: " + noFlyMargin);
+        }
+        this.minLongitude = minLongitude;
+        this.minLatitude = minLatitude;
+        this.maxLongitude = maxLongitude;
+        this.maxLatitude = maxLatitude;
+        this.home = home;
+        this.maxMoves = maxMoves;
+        this.southWest = southWest;
+        this.northEast = northEast;
+        ArrayList<List<LongLat>> zones = new ArrayList<>();
+        for (List<LongLat> zone : noFlyZones){
+            zones.add(Collections.unmodifiableList(new ArrayList<>(zone)));
+        }
+        this.noFlyZones = Collections.unmodifiableList(zones);
+        this.landmarks = Collections.unmodifiableList(new ArrayList<>(landmarks));
+        this.noFlyMargin = noFlyMargin;
+    }
+
+    /**
+     * Builds the same map with another safety margin around the no-fly zones, so plans with
+     * different margins can be made side by side.
+     *
+     * @param margin the margin, as a fraction of @LongLat.step
+     * @return the map
+     * @throws IllegalArgumentException if the margin is negative
+     */
+    public MapConfig withNoFlyMargin(double margin) {
+        return new MapConfig(minLongitude, minLatitude, maxLongitude, maxLatitude, home, maxMoves, southWest,
+                northEast, noFlyZones, landmarks, margin);
+    }
+
+    /**
+     * Builds the campus map: the confinement area of @LongLat, Appleton Tower, a battery of
+     * @PlanningContext.maxMoves moves and the intermediate points of the @GreedyPlanner, with
+     * the given no-fly zones and landmarks.
+     *
+     * @param noFlyZones the polygons of the no-fly zones, as lists of corners
+     * @param landmarks  the landmarks the drone can fly through
+     * @return the map
+     */
+    public static MapConfig campus(List<? extends List<LongLat>> noFlyZones, List<LongLat> landmarks) {
+        return new MapConfig(LongLat.minLongitude, LongLat.minLatitude, LongLat.maxLongitude, LongLat.maxLatitude,
+                PlanningContext.appletonTower, PlanningContext.maxMoves, GreedyPlanner.southWest,
+                GreedyPlanner.northEast, noFlyZones, landmarks);
+    }
+
+    /**
+     * Parses a map from its three GeoJSON documents.
+     *
+     * @param confinementZone the contents of the confinement-zone.geojson document
+     * @param noFlyZones      the contents of the no-fly-zones.geojson document
+     * @param landmarks       the contents of the landmarks.geojson document
+     * @return the map
+     * @throws IllegalArgumentException if the confinement zone isn't a polygon
+     */
+    public static MapConfig parse(String confinementZone, String noFlyZones, String landmarks) {
+        List<Feature> features = FeatureCollection.fromJson(confinementZone).features();
+        if (features == null || features.isEmpty() || !(features.get(0).geometry() instanceof Polygon)){
+            throw new IllegalArgumentException("The confinement zone isn't a polygon");
+        }
+        Feature zone = features.get(0);
+        double minLongitude = Double.POSITIVE_INFINITY, minLatitude = Double.POSITIVE_INFINITY;
+        double maxLongitude = Double.NEGATIVE_INFINITY, maxLatitude = Double.NEGATIVE_INFINITY;
+        for (Point corner : ((Polygon) zone.geometry()).coordinates().get(0)){
+            minLongitude = Math.min(minLongitude, corner.longitude());
+            minLatitude = Math.min(minLatitude, corner.latitude());
+            maxLongitude = Math.max(maxLongitude, corner.longitude());
+            maxLatitude = Math.max(maxLatitude, corner.latitude());
+        }
+        LongLat home = PlanningContext.appletonTower;
+        int maxMoves = PlanningContext.maxMoves;
+        LongLat southWest = GreedyPlanner.southWest;
+        LongLat northEast = GreedyPlanner.northEast;
+        if (zone.hasProperty("home")){
+            home = position(zone.getProperty("home"));
+        }
+        if (zone.hasProperty("maxMoves")){
+            maxMoves = zone.getNumberProperty("maxMoves").intValue();
+        }
+        if (zone.hasProperty("detours")){
+            JsonArray detours = zone.getProperty("detours").getAsJsonArray();
+            southWest = position(detours.get(0));
+            northEast = position(detours.get(1));
+        }
+        return new MapConfig(minLongitude, minLatitude, maxLongitude, maxLatitude, home, maxMoves, southWest,
+                northEast, Website.parseNoFlyZones(noFlyZones), Website.parseLandmarks(landmarks));
+    }
+
+    /**
+     * Helper method of @parse, it reads a position written as [longitude, latitude].
+     *
+     * @param coordinates the position
+     * @return the position
+     */
+    private static LongLat position(JsonElement coordinates){
+        JsonArray pair = coordinates.getAsJsonArray();
+        return new LongLat(pair.get(0).getAsDouble(), pair.get(1).getAsDouble());
+    }
+
+    /**
+     * Loads a map from a folder with the files @confinementFile, @noFlyZonesFile and
+     * @landmarksFile. Like a file missing from the website, a missing file stops the app.
+     *
+     * @param folder the folder
+     * @return the map
+     */
+    public static MapConfig load(Path folder) {
+        try {
+            return parse(Files.readString(folder.resolve(confinementFile)), Files.readString(folder.resolve(noFlyZonesFile)),
+                    Files.readString(folder.resolve(landmarksFile)));
+        } catch (IOException e) {
+            System.err.println("Fatal IO Exception Error: \n" + e);
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Checks if a point is contained inside the confinement area.
+     *
+     * @param x the longitude
+     * @param y the latitude
+     * @return the boolean true or false.
+     */
+    boolean isConfined(double x, double y){
+        return (x >= minLongitude) && (x <= maxLongitude) && (y >= minLatitude) && (y <= maxLatitude);
+    }
+
+    /**
+     * Checks if a position is contained inside the confinement area.
+     *
+     * @param position the position
+     * @return the boolean true or false.
+     */
+    boolean isConfined(LongLat position){
+        return isConfined(position.longitude, position.latitude);
+    }
+
+    /**
+     * Getter that returns the western limit of the confinement area.
+     *
+     * @return the longitude
+     */
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    /**
+     * Getter that returns the southern limit of the confinement area.
+     *
+     * @return the latitude
+     */
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    /**
+     * Getter that returns the eastern limit of the confinement area.
+     *
+     * @return the longitude
+     */
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    /**
+     * Getter that returns the northern limit of the confinement area.
+     *
+     * @return the latitude
+     */
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    /**
+     * Getter that returns where the drone starts and ends its day.
+     *
+     * @return the position
+     */
+    public LongLat getHome() {
+        return home;
+    }
+
+    /**
+     * Getter that returns the moves the drone can make on a single battery charge.
+     *
+     * @return the moves
+     */
+    public int getMaxMoves() {
+        return maxMoves;
+    }
+
+    /**
+     * Getter that returns the first intermediate point of the @GreedyPlanner.
+     *
+     * @return the position
+     */
+    public LongLat getSouthWest() {
+        return southWest;
+    }
+
+    /**
+     * Getter that returns the second intermediate point of the @GreedyPlanner.
+     *
+     * @return the position
+     */
+    public LongLat getNorthEast() {
+        return northEast;
+    }
+
+    /**
+     * Getter that returns the polygons of the no-fly zones.
+     *
+     * @return the polygons, which can't be changed
+     */
+    public List<List<LongLat>> getNoFlyZones() {
+        return noFlyZones;
+    }
+
+    /**
+     * Getter that returns the landmarks the drone can fly through.
+     *
+     * @return the landmarks, which can't be changed
+     */
+    public List<LongLat> getLandmarks() {
+        return landmarks;
+    }
+
+    /**
+     * Getter that returns the safety margin the no-fly zones are inflated by.
+     *
+     * @return the margin, as a fraction of @LongLat.step
+     */
+    public double getNoFlyMargin() {
+        return noFlyMargin;
+    }
+
+    /**
+     * Builds a copy of the polygons of the no-fly zones that the planners can take.
+     *
+     * @return the polygons, as lists of corners
+     */
+    ArrayList<ArrayList<LongLat>> noFlyZoneLists() {
+        ArrayList<ArrayList<LongLat>> zones = new ArrayList<>();
+        for (List<LongLat> zone : noFlyZones){
+            zones.add(new ArrayList<>(zone));
+        }
+        return zones;
+    }
+}
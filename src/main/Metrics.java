@@ -0,0 +1,471 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * The Metrics class, which counts what the planner does and how long it takes: the probes of
+ * every step, the intersection tests, the detours, the time to plan every leg and how often the
+ * @LegCache had it, how often the @Website had the menus and the "ThreeWords" locations, the
+ * latency of every webserver endpoint and of the database batches.
+ *
+ * Metrics are only kept if the 'ilp.metrics' system property is true. @enabled is a constant,
+ * so when it is false the JIT removes the calls to @counter.add and @histogram.record, and the
+ * timing around them (see @start), altogether. The counters are striped @LongAdder objects, so
+ * the threads of a batch don't fight over them, and the histograms keep their values in
+ * log-linear buckets, like HdrHistogram, with about 6% precision.
+ *
+ * @snapshot reads every metric at any time, and @dump writes the snapshot as JSON; @App and
+ * @BatchPlanner dump it to @file at the end of a run.
+ */
+public final class Metrics {
+    /**
+     * True if metrics are kept. It is set with the 'ilp.metrics' system property.
+     */
+    public static final boolean enabled = Boolean.getBoolean("ilp.metrics");
+    /**
+     * The file the metrics are dumped to at the end of a run. It can be changed with the
+     * 'ilp.metrics.file' system property.
+     */
+    public static final String file = System.getProperty("ilp.metrics.file", "metrics.json");
+
+    //every metric, by name, in the order they were created
+    private static final LinkedHashMap<String, counter> counters = new LinkedHashMap<>();
+    private static final LinkedHashMap<String, histogram> histograms = new LinkedHashMap<>();
+
+    /**
+     * The number of directions @GreedyPlanner.goodAngle tries for every step.
+     */
+    public static final histogram probesPerStep = histogram("planner.probesPerStep");
+    /**
+     * The number of moves checked against the no-fly zones by @SegmentIndex.
+     */
+    public static final counter moveChecks = counter("planner.moveChecks");
+    /**
+     * The number of segment intersection tests made by @SegmentIndex.
+     */
+    public static final counter intersectionTests = counter("planner.intersectionTests");
+    /**
+     * The number of lines @SegmentIndex turned away without an intersection test, because their
+     * bounding box doesn't meet the move's.
+     */
+    public static final counter boxRejects = counter("planner.boxRejects");
+    /**
+     * The number of times @GreedyPlanner went round in circles and detoured through
+     * @GreedyPlanner.southWest or @GreedyPlanner.northEast.
+     */
+    public static final counter detours = counter("planner.detours");
+    /**
+     * The number of legs the @VisibilityGraphPlanner gave to the @GreedyPlanner.
+     */
+    public static final counter greedyFallbacks = counter("planner.greedyFallbacks");
+    /**
+     * The number of legs no planner could fly (see @LegCostMatrix.unreachable), which leave the
+     * orders that need them undelivered.
+     */
+    public static final counter unreachableLegs = counter("planner.unreachableLegs");
+    /**
+     * The number of legs a @LegCache returned as they were kept (see @LegCache.getHits).
+     */
+    public static final counter legHits = counter("legs.hits");
+    /**
+     * The number of legs a @LegCache replayed from a nearby start (see @LegCache.getNearHits).
+     */
+    public static final counter legNearHits = counter("legs.nearHits");
+    /**
+     * The number of legs a @LegCache had to plan (see @LegCache.getMisses).
+     */
+    public static final counter legMisses = counter("legs.misses");
+    /**
+     * The number of times a @Website downloaded and parsed menus.json (see
+     * @Website.getMenuLoads).
+     */
+    public static final counter menuLoads = counter("website.menuLoads");
+    /**
+     * The number of "ThreeWords" locations a @Website found in its cache (see
+     * @Website.getPositionHits).
+     */
+    public static final counter positionHits = counter("website.positionHits");
+    /**
+     * The number of "ThreeWords" locations a @Website found in its @GeocodeStore (see
+     * @Website.getStoreHits).
+     */
+    public static final counter storeHits = counter("website.storeHits");
+    /**
+     * The number of "ThreeWords" locations a @Website requested from the webserver (see
+     * @Website.getPositionMisses).
+     */
+    public static final counter positionMisses = counter("website.positionMisses");
+    /**
+     * The time to plan every leg that wasn't in a @LegCache, in nanoseconds.
+     */
+    public static final histogram legPlanNanos = histogram("planner.legPlanNanos");
+    /**
+     * The time to choose the route of a day (@App.optimizeTable), in nanoseconds.
+     */
+    public static final histogram routeNanos = histogram("app.routeNanos");
+    /**
+     * The time to fly a day (@App.flightPlanner), in nanoseconds.
+     */
+    public static final histogram flightNanos = histogram("app.flightNanos");
+    /**
+     * The time to replan the rest of a day after an order is added or cancelled (see
+     * @Replanner), in nanoseconds.
+     */
+    public static final histogram replanNanos = histogram("app.replanNanos");
+    /**
+     * The latency of every request for menus.json, in nanoseconds.
+     */
+    public static final histogram httpMenusNanos = histogram("http.menusNanos");
+    /**
+     * The latency of every request for a "ThreeWords" details.json, in nanoseconds.
+     */
+    public static final histogram httpWordsNanos = histogram("http.wordsNanos");
+    /**
+     * The latency of every request for the no-fly zones or the landmarks, in nanoseconds.
+     */
+    public static final histogram httpBuildingsNanos = histogram("http.buildingsNanos");
+    /**
+     * The time to send every batch of rows to the database, in nanoseconds.
+     */
+    public static final histogram jdbcBatchNanos = histogram("jdbc.batchNanos");
+    /**
+     * The time to commit every day to the database, in nanoseconds.
+     */
+    public static final histogram jdbcCommitNanos = histogram("jdbc.commitNanos");
+
+    private Metrics() {
+    }
+
+    /**
+     * A counter.
+     */
+    public static final class counter {
+        private final LongAdder adder = new LongAdder();
+
+        private counter() {
+        }
+
+        /**
+         * Adds one to the counter, if metrics are kept.
+         */
+        public void increment() {
+            if (enabled){
+                adder.increment();
+            }
+        }
+
+        /**
+         * Adds to the counter, if metrics are kept.
+         *
+         * @param n the amount
+         */
+        public void add(long n) {
+            if (enabled){
+                adder.add(n);
+            }
+        }
+
+        /**
+         * Getter that returns the value of the counter.
+         *
+         * @return the value
+         */
+        public long get() {
+            return adder.sum();
+        }
+    }
+
+    /**
+     * A histogram of non-negative values. Values below 2^@subBits are kept exactly, and every
+     * larger power of two is split into 2^(@subBits - 1) buckets of the same width.
+     */
+    public static final class histogram {
+        private static final int subBits = 5;
+        private static final int subCount = 1 << subBits;
+        private static final int halfCount = subCount / 2;
+        private static final int bucketCount = subCount + (63 - subBits) * halfCount;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(bucketCount);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        histogram() {
+        }
+
+        /**
+         * Records a value, if metrics are kept. Negative values are recorded as 0.
+         *
+         * @param value the value
+         */
+        public void record(long value) {
+            if (enabled){
+                add(value);
+            }
+        }
+
+        /**
+         * Records a value even if metrics aren't kept.
+         *
+         * @param value the value
+         */
+        void add(long value) {
+            value = Math.max(0, value);
+            buckets.incrementAndGet(bucket(value));
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Records the time since @start, if metrics are kept.
+         *
+         * @param start the value returned by @start
+         */
+        public void recordSince(long start) {
+            if (enabled){
+                record(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Finds the bucket of a value.
+         *
+         * @param value the value
+         * @return the index of its bucket
+         */
+        static int bucket(long value) {
+            if (value < subCount){
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - (subBits - 1);
+            return subCount + (shift - 1) * halfCount + (int) (value >>> shift) - halfCount;
+        }
+
+        /**
+         * Finds the highest value kept in a bucket.
+         *
+         * @param bucket the index of the bucket
+         * @return the highest value
+         */
+        static long highest(int bucket) {
+            if (bucket < subCount){
+                return bucket;
+            }
+            int shift = (bucket - subCount) / halfCount + 1;
+            long sub = (bucket - subCount) % halfCount + halfCount;
+            return ((sub + 1) << shift) - 1;
+        }
+
+        /**
+         * Reads the histogram.
+         *
+         * @return its summary
+         */
+        public summary summarize() {
+            long[] counts = new long[bucketCount];
+            long total = 0;
+            for (int i = 0; i < bucketCount; i++){
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long maximum = max.get();
+            return new summary(total, sum.sum(), maximum, percentile(counts, total, 0.5, maximum),
+                    percentile(counts, total, 0.9, maximum), percentile(counts, total, 0.99, maximum),
+                    percentile(counts, total, 0.999, maximum));
+        }
+
+        /**
+         * Finds a percentile of the values: the highest value of the bucket where it falls,
+         * and never more than the largest value recorded.
+         *
+         * @param counts   the number of values in every bucket
+         * @param total    the number of values
+         * @param fraction the fraction of the values at or below the percentile
+         * @param maximum  the largest value recorded
+         * @return the percentile, or 0 if there are no values
+         */
+        private static long percentile(long[] counts, long total, double fraction, long maximum) {
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++){
+                seen += counts[i];
+                if (seen >= rank && seen > 0){
+                    return Math.min(highest(i), maximum);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Forgets every value recorded.
+         */
+        private void reset() {
+            for (int i = 0; i < bucketCount; i++){
+                buckets.set(i, 0);
+            }
+            sum.reset();
+            max.reset();
+        }
+    }
+
+    /**
+     * The summary of a histogram when it was read.
+     */
+    public static final class summary {
+        public final long count;
+        public final long sum;
+        public final double mean;
+        public final long max;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+        public final long p999;
+
+        private summary(long count, long sum, long max, long p50, long p90, long p99, long p999) {
+            this.count = count;
+            this.sum = sum;
+            this.mean = count == 0 ? 0 : (double) sum / count;
+            this.max = max;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+        }
+    }
+
+    /**
+     * The value of every metric when it was read.
+     */
+    public static final class snapshot {
+        public final boolean enabled;
+        public final Map<String, Long> counters;
+        /**
+         * The fractions worked out from the counters, such as the hit rate of the legs.
+         */
+        public final Map<String, Double> rates;
+        public final Map<String, summary> histograms;
+
+        private snapshot(boolean enabled, Map<String, Long> counters, Map<String, Double> rates,
+                         Map<String, summary> histograms) {
+            this.enabled = enabled;
+            this.counters = Collections.unmodifiableMap(counters);
+            this.rates = Collections.unmodifiableMap(rates);
+            this.histograms = Collections.unmodifiableMap(histograms);
+        }
+
+        /**
+         * Writes the snapshot as JSON.
+         *
+         * @return the JSON document
+         */
+        public String toJson() {
+            return new GsonBuilder().setPrettyPrinting().create().toJson(this);
+        }
+    }
+
+    /**
+     * Creates a counter.
+     *
+     * @param name the name of the counter in the snapshots
+     * @return the counter
+     */
+    private static counter counter(String name) {
+        counter c = new counter();
+        counters.put(name, c);
+        return c;
+    }
+
+    /**
+     * Creates a histogram.
+     *
+     * @param name the name of the histogram in the snapshots
+     * @return the histogram
+     */
+    private static histogram histogram(String name) {
+        histogram h = new histogram();
+        histograms.put(name, h);
+        return h;
+    }
+
+    /**
+     * Gives the start of a time recorded with @histogram.recordSince.
+     *
+     * @return the current time in nanoseconds, or 0 if metrics aren't kept
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Reads every metric. The metrics keep changing while it is read, so the counters and the
+     * histograms aren't read at exactly the same time.
+     *
+     * @return the snapshot
+     */
+    public static snapshot snapshot() {
+        LinkedHashMap<String, Long> counterValues = new LinkedHashMap<>();
+        counters.forEach((name, c) -> counterValues.put(name, c.get()));
+        LinkedHashMap<String, Double> rates = new LinkedHashMap<>();
+        rates.put("legs.hitRate", rate(counterValues.get("legs.hits") + counterValues.get("legs.nearHits"),
+                counterValues.get("legs.misses")));
+        rates.put("website.positionHitRate", rate(counterValues.get("website.positionHits")
+                + counterValues.get("website.storeHits"), counterValues.get("website.positionMisses")));
+        LinkedHashMap<String, summary> summaries = new LinkedHashMap<>();
+        histograms.forEach((name, h) -> summaries.put(name, h.summarize()));
+        return new snapshot(enabled, counterValues, rates, summaries);
+    }
+
+    /**
+     * Works out the fraction of the times something was found.
+     *
+     * @param found  the times it was found
+     * @param missed the times it wasn't
+     * @return the fraction, between 0 and 1 (0 if it was never looked for)
+     */
+    private static double rate(long found, long missed) {
+        long total = found + missed;
+        return total == 0 ? 0 : (double) found / total;
+    }
+
+    /**
+     * Forgets every value recorded, for instance between the days of a benchmark.
+     */
+    public static void reset() {
+        counters.values().forEach(c -> c.adder.reset());
+        histograms.values().forEach(histogram::reset);
+    }
+
+    /**
+     * Writes a snapshot of every metric as JSON to a file.
+     *
+     * @param target the file
+     * @throws IOException if the file can't be written
+     */
+    public static void dump(Path target) throws IOException {
+        Files.writeString(target, snapshot().toJson());
+    }
+
+    /**
+     * Writes a snapshot to @file at the end of a run, if metrics are kept. If the file can't be
+     * written the error is printed and the run carries on.
+     */
+    static void dumpAtExit() {
+        if (enabled){
+            try {
+                dump(Path.of(file));
+            } catch (IOException e) {
+                System.err.println("Metrics IO Exception Error: \n" + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The NoFlyZones class, which prepares the no-fly zones of a @MapConfig once, before any leg is
+ * planned over them. Every polygon is inflated by a safety margin (see @inflate), and for the
+ * inflated polygons it keeps:
+ *
+ *   - the bounding box of every polygon, so @contains only casts a ray through the polygons
+ *     whose box holds the point;
+ *   - a @SegmentIndex of their perimeter, which the planners check every move against (see
+ *     @crosses), and which turns away the lines whose bounding box doesn't meet the move's
+ *     (counted in @Metrics.boxRejects) before the exact intersection test.
+ *
+ * With a margin the drone keeps clear of the walls of the buildings instead of flying along them,
+ * so it runs into them less often and @GreedyPlanner.goodAngle tries fewer directions for every
+ * step (see @Metrics.probesPerStep). A drone can still be inside the margin, at a delivery close
+ * to a wall, and its moves from there are only checked against the zone's own sides, so it can
+ * always fly out. With no margin the polygons are the map's own, and every move is judged
+ * exactly as before.
+ *
+ * It is immutable, so it can be shared by every thread planning over the same map.
+ */
+public final class NoFlyZones {
+    /**
+     * The safety margin of the maps that aren't given one (see @MapConfig.withNoFlyMargin), as a
+     * fraction of the drone's @LongLat.step. It is 0 (the zones as they are) unless it is set
+     * with the 'ilp.noFly.margin' system property.
+     */
+    public static final double margin = Double.parseDouble(System.getProperty("ilp.noFly.margin", "0"));
+
+    //class variables
+    private final double inflation;
+    private final ArrayList<ArrayList<LongLat>> zones = new ArrayList<>();
+    /**
+     * The corners of every inflated polygon, stored as one array per coordinate so that
+     * @contains doesn't follow any object references.
+     */
+    private final double[][] xs, ys;
+    /**
+     * The bounding box of every inflated polygon.
+     */
+    private final double[] minX, minY, maxX, maxY;
+    private final SegmentIndex index;
+    /**
+     * The index of the lines of the polygons before they were inflated, or @index itself if
+     * there is no margin.
+     */
+    private final SegmentIndex ownIndex;
+
+    /**
+     * Class constructor, it inflates the no-fly zones of a map by the map's margin (see
+     * @MapConfig.getNoFlyMargin).
+     *
+     * @param map the map
+     */
+    public NoFlyZones(MapConfig map) {
+        this(map, map.getNoFlyMargin() * LongLat.step);
+    }
+
+    /**
+     * Class constructor, it inflates the no-fly zones of a map by a given distance.
+     *
+     * @param map       the map
+     * @param inflation the distance (in degrees) every side of a polygon is pushed outwards by
+     * @throws IllegalArgumentException if the distance is negative
+     */
+    public NoFlyZones(MapConfig map, double inflation) {
+        if (!(inflation >= 0)){
+            throw new IllegalArgumentException("Negative no-fly margin: " + inflation);
+        }
+        this.inflation = inflation;
+        for (List<LongLat> zone : map.getNoFlyZones()){
+            zones.add(inflate(zone, inflation));
+        }
+        int n = zones.size();
+        xs = new double[n][];
+        ys = new double[n][];
+        minX = new double[n];
+        minY = new double[n];
+        maxX = new double[n];
+        maxY = new double[n];
+        for (int z = 0; z < n; z++){
+            ArrayList<LongLat> zone = zones.get(z);
+            xs[z] = new double[zone.size()];
+            ys[z] = new double[zone.size()];
+            minX[z] = minY[z] = Double.POSITIVE_INFINITY;
+            maxX[z] = maxY[z] = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < zone.size(); i++){
+                xs[z][i] = zone.get(i).longitude;
+                ys[z][i] = zone.get(i).latitude;
+                minX[z] = Math.min(minX[z], xs[z][i]);
+                minY[z] = Math.min(minY[z], ys[z][i]);
+                maxX[z] = Math.max(maxX[z], xs[z][i]);
+                maxY[z] = Math.max(maxY[z], ys[z][i]);
+            }
+        }
+        this.index = new SegmentIndex(Website.getNoFlyPerimeter(zones), map);
+        this.ownIndex = inflation == 0 ? index
+                : new SegmentIndex(Website.getNoFlyPerimeter(map.noFlyZoneLists()), map);
+    }
+
+    /**
+     * Class constructor for no-fly zones only known by the lines of their perimeter, which can't
+     * be inflated.
+     *
+     * @param index the index of the lines that form all the no-fly zone's polygons
+     */
+    NoFlyZones(SegmentIndex index) {
+        this.inflation = 0;
+        this.xs = new double[0][];
+        this.ys = new double[0][];
+        this.minX = this.minY = this.maxX = this.maxY = new double[0];
+        this.index = index;
+        this.ownIndex = index;
+    }
+
+    /**
+     * Inflates a polygon: every side is pushed outwards by the margin. At a convex corner the two
+     * pushed sides are joined through the point a margin away from the corner along its bisector
+     * (the corner becomes three corners, each a margin away from the original one), so sharp
+     * corners don't grow into long spikes; at a reflex corner they meet where the pushed sides
+     * cross. Every point closer than the margin to a side is inside the inflated polygon, and
+     * around a convex corner every point closer than 0.7 of the margin (0.92 at a right angle).
+     *
+     * @param zone   the corners of the polygon, which may repeat the first corner at the end
+     * @param margin the margin (in degrees)
+     * @return the corners of the inflated polygon, repeating the first one at the end like a
+     * GeoJSON polygon, or a copy of the polygon itself if the margin is 0
+     */
+    static ArrayList<LongLat> inflate(List<LongLat> zone, double margin){
+        ArrayList<LongLat> corners = new ArrayList<>();
+        for (LongLat corner : zone){
+            //repeated corners (including the closing one) don't make a side
+            if (corners.isEmpty() || !corner.isEqual(corners.get(corners.size() - 1))){
+                corners.add(corner);
+            }
+        }
+        while (corners.size() > 1 && corners.get(0).isEqual(corners.get(corners.size() - 1))){
+            corners.remove(corners.size() - 1);
+        }
+        if (margin == 0 || corners.size() < 3){
+            return new ArrayList<>(zone);
+        }
+        int size = corners.size();
+        double area = 0;
+        for (int i = 0; i < size; i++){
+            LongLat a = corners.get(i);
+            LongLat b = corners.get((i + 1) % size);
+            area += a.longitude * b.latitude - b.longitude * a.latitude;
+        }
+        //the outward normal of a side is on its right if the corners go anticlockwise
+        double outwards = area > 0 ? 1 : -1;
+
+        ArrayList<LongLat> inflated = new ArrayList<>();
+        for (int i = 0; i < size; i++){
+            LongLat previous = corners.get((i + size - 1) % size);
+            LongLat corner = corners.get(i);
+            LongLat next = corners.get((i + 1) % size);
+            double[] n1 = normal(previous, corner, outwards);
+            double[] n2 = normal(corner, next, outwards);
+            double turn = (corner.longitude - previous.longitude) * (next.latitude - corner.latitude)
+                    - (corner.latitude - previous.latitude) * (next.longitude - corner.longitude);
+            if (turn * outwards > 0){
+                double bx = n1[0] + n2[0];
+                double by = n1[1] + n2[1];
+                double length = Math.sqrt(bx * bx + by * by);
+                inflated.add(new LongLat(corner.longitude + n1[0] * margin, corner.latitude + n1[1] * margin));
+                if (length > 1e-9){
+                    inflated.add(new LongLat(corner.longitude + bx / length * margin,
+                            corner.latitude + by / length * margin));
+                }
+                inflated.add(new LongLat(corner.longitude + n2[0] * margin, corner.latitude + n2[1] * margin));
+            }else{
+                double scale = margin / (1 + n1[0] * n2[0] + n1[1] * n2[1]);
+                inflated.add(new LongLat(corner.longitude + (n1[0] + n2[0]) * scale,
+                        corner.latitude + (n1[1] + n2[1]) * scale));
+            }
+        }
+        inflated.add(inflated.get(0));
+        return inflated;
+    }
+
+    /**
+     * Helper method of @inflate, it calculates the unit normal of a side that points out of the
+     * polygon.
+     *
+     * @param a        the start of the side
+     * @param b        the end of the side
+     * @param outwards 1 if the polygon's corners go anticlockwise, -1 otherwise
+     * @return the normal, as {longitude, latitude}
+     */
+    private static double[] normal(LongLat a, LongLat b, double outwards){
+        double dx = b.longitude - a.longitude;
+        double dy = b.latitude - a.latitude;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        return new double[]{outwards * dy / length, -outwards * dx / length};
+    }
+
+    /**
+     * Checks if a point is inside any of the inflated no-fly zones. Only the polygons whose
+     * bounding box holds the point cast a ray, with the same test as
+     * @VisibilityGraphPlanner.isInside.
+     *
+     * @param x the longitude
+     * @param y the latitude
+     * @return true if the point is inside a no-fly zone
+     */
+    public boolean contains(double x, double y){
+        for (int z = 0; z < xs.length; z++){
+            if (x < minX[z] || x > maxX[z] || y < minY[z] || y > maxY[z]){
+                continue;
+            }
+            double[] zx = xs[z];
+            double[] zy = ys[z];
+            boolean inside = false;
+            for (int i = 0, j = zx.length - 1; i < zx.length; j = i++){
+                if ((zy[i] > y) != (zy[j] > y) && x < (zx[j] - zx[i]) * (y - zy[i]) / (zy[j] - zy[i]) + zx[i]){
+                    inside = !inside;
+                }
+            }
+            if (inside){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the line between two points crosses the side of a no-fly zone. If the line starts
+     * inside the margin of a zone (which @contains finds after the bounding boxes turn away the
+     * zones that are far from it) it is checked against the sides of the zones before they were
+     * inflated, so the drone can fly out of the margin but never into a zone.
+     *
+     * @param x1 the longitude of the start point
+     * @param y1 the latitude of the start point
+     * @param x2 the longitude of the end point
+     * @param y2 the latitude of the end point
+     * @return true if the line crosses a side
+     */
+    public boolean crosses(double x1, double y1, double x2, double y2){
+        if (ownIndex != index && contains(x1, y1)){
+            return ownIndex.intersects(x1, y1, x2, y2);
+        }
+        return index.intersects(x1, y1, x2, y2);
+    }
+
+    /**
+     * Checks if a position is inside any of the inflated no-fly zones.
+     *
+     * @param position the position
+     * @return true if the position is inside a no-fly zone
+     */
+    public boolean contains(LongLat position){
+        return contains(position.longitude, position.latitude);
+    }
+
+    /**
+     * Getter that returns the distance the no-fly zones were inflated by.
+     *
+     * @return the distance, in degrees
+     */
+    public double getInflation() {
+        return inflation;
+    }
+
+    /**
+     * Getter that returns the inflated polygons, which the planners only read.
+     *
+     * @return the polygons, as lists of corners
+     */
+    ArrayList<ArrayList<LongLat>> getZones() {
+        return zones;
+    }
+}
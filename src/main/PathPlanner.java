@@ -0,0 +1,33 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+
+
+/**
+ * The PathPlanner interface. Every path-planning engine the drone can use implements it,
+ * so that @App can swap the engine without changing the way the flightpath is built.
+ */
+public interface PathPlanner {
+
+    /**
+     * Calculates the flightpath that takes the drone from @initialPos to @finalPos.
+     *
+     * The returned list starts with @initialPos, is followed by every legal step the drone
+     * takes, and ends with the hovering step (the last position repeated).
+     *
+     * @param initialPos the position the drone starts from
+     * @param finalPos   the position the drone has to get close to
+     * @return the flightpath that takes the drone to @finalPos
+     */
+    ArrayList<LongLat> plan(LongLat initialPos, LongLat finalPos);
+
+    /**
+     * Checks if a single move is legal for this planner: it doesn't take the drone outside the
+     * confinement area nor across a no-fly zone.
+     *
+     * @param initialPos the position the move starts from
+     * @param nextPos    the position the move ends at
+     * @return true if the move is legal and false if it is illegal
+     */
+    boolean isMoveGood(LongLat initialPos, LongLat nextPos);
+}
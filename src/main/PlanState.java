@@ -0,0 +1,138 @@
+package uk.ac.ed.inf;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The PlanState class, which keeps everything that changes while a single day is planned: the
+ * day's orders and the state of every drone of the fleet (see @DroneState). Every run of @App has
+ * its own state, so several days can be planned at the same time with a shared @PlanningContext.
+ *
+ * It isn't meant to be shared between threads, apart from the drones: each drone is changed by a
+ * single thread.
+ */
+public class PlanState {
+    //the format of the date in the name of the .geojson file
+    private static final DateTimeFormatter fileDateFormat = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    //class variables
+    private final LocalDate date;
+    private final Database database;
+    private final ArrayList<DroneState> drones = new ArrayList<>();
+
+    /**
+     * Class constructor, for a day that hasn't started with a single drone, at the map's home (Appleton
+     * Tower) with a full battery.
+     *
+     * @param context the context shared by every day
+     * @param date    the day
+     */
+    public PlanState(PlanningContext context, LocalDate date) {
+        this(context, date, new int[]{context.getMap().getMaxMoves()});
+    }
+
+    /**
+     * Class constructor, for a day that hasn't started with a fleet of drones at the map's home.
+     * Every drone plans its legs with the context's planner through its own @LegCache.
+     *
+     * @param context the context shared by every day
+     * @param date    the day
+     * @param budgets the moves of the battery of every drone
+     */
+    public PlanState(PlanningContext context, LocalDate date, int[] budgets) {
+        this.date = date;
+        this.database = new Database(context.getWebsite());
+        for (int i = 0; i < budgets.length; i++){
+            drones.add(new DroneState(i + 1, budgets[i], context.getMap().getHome(), new LegCache(context.getPlanner())));
+        }
+    }
+
+    /**
+     * Getter that returns the day.
+     *
+     * @return the day
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Getter that returns the day as it is written in the name of the .geojson file.
+     *
+     * @return the day, as day-month-year
+     */
+    public String getFileDate() {
+        return fileDateFormat.format(date);
+    }
+
+    /**
+     * Getter that returns the data table of the day's orders. The orders the drones deliver are
+     * put first in it, drone after drone, in the order they are delivered.
+     *
+     * @return the day's orders
+     */
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * Getter that returns the drones of the fleet.
+     *
+     * @return the drones, in the order of their numbers
+     */
+    public List<DroneState> getDrones() {
+        return drones;
+    }
+
+    /**
+     * Getter that returns a drone of the fleet.
+     *
+     * @param i the index of the drone, which is its number minus 1
+     * @return the drone
+     */
+    public DroneState getDrone(int i) {
+        return drones.get(i);
+    }
+
+    /**
+     * Getter that returns the moves all the drones have left.
+     *
+     * @return the moves left, in total
+     */
+    public int getMovesLeft() {
+        int moves = 0;
+        for (DroneState drone : drones){
+            moves += drone.getMovesLeft();
+        }
+        return moves;
+    }
+
+    /**
+     * Getter that returns the number of orders delivered by all the drones.
+     *
+     * @return the number of orders
+     */
+    public int getDelivered() {
+        int delivered = 0;
+        for (DroneState drone : drones){
+            delivered += drone.getDelivered();
+        }
+        return delivered;
+    }
+
+    /**
+     * Getter that returns the money collected by all the drones.
+     *
+     * @return the cost of the orders delivered, in pence
+     */
+    public int getCollected() {
+        int pence = 0;
+        for (DroneState drone : drones){
+            pence += drone.getCollected();
+        }
+        return pence;
+    }
+}
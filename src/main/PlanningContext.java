@@ -0,0 +1,186 @@
+package uk.ac.ed.inf;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The PlanningContext class, which keeps everything the drone needs to plan any day and that
+ * doesn't change from one day to another: the @Website the orders are looked up in and the
+ * @MapConfig, with the confinement area, the no-fly zones, the landmarks, where the drone starts
+ * (Appleton Tower) and the moves the battery allows. It also keeps the number of drones that
+ * deliver the orders and the budget of the @RouteOptimizer that chooses their routes.
+ *
+ * It is immutable once it is built, and the planner it builds only reads it, so a single context
+ * can be shared by every day planned in the same JVM, at the same time on different threads. The
+ * step of the drone is the constant of @LongLat, which is the same for every context. Whatever
+ * changes while a day is planned is kept in that day's @PlanState.
+ */
+public final class PlanningContext {
+    /**
+     * The moves the drone can make on a single battery charge on the campus map.
+     */
+    public static final int maxMoves = 1500;
+    /**
+     * The Return address (AppletonTower) on the campus map.
+     */
+    public static final LongLat appletonTower = new LongLat(-3.186874,55.944494);
+
+    //class variables
+    private final Website website;
+    private final MapConfig map;
+    private final List<LongLat.line> noFlyPerimeter;
+    private final VisibilityGraphPlanner planner;
+    private final int fleetSize;
+    private final int iterationBudget;
+    private final long timeBudget;
+
+    /**
+     * Class constructor, it builds the visibility graph of the no-fly zones and landmarks on the
+     * campus map.
+     *
+     * @param website    the website the menus and "ThreeWords" locations are found in
+     * @param noFlyZones the polygons of the no-fly zones, as lists of corners
+     * @param landmarks  the landmarks the drone can fly through
+     */
+    public PlanningContext(Website website, ArrayList<ArrayList<LongLat>> noFlyZones, ArrayList<LongLat> landmarks) {
+        this(website, MapConfig.campus(noFlyZones, landmarks));
+    }
+
+    /**
+     * Class constructor, it builds the visibility graph of a map. The orders are delivered by
+     * @App.fleetSize drones, whose routes are chosen within @RouteOptimizer.iterationBudget
+     * rounds and @RouteOptimizer.timeBudget milliseconds.
+     *
+     * @param website the website the menus and "ThreeWords" locations are found in
+     * @param map     the map
+     */
+    public PlanningContext(Website website, MapConfig map) {
+        this(website, map, Math.max(1, App.fleetSize), RouteOptimizer.iterationBudget, RouteOptimizer.timeBudget);
+    }
+
+    /**
+     * Class constructor, it builds the visibility graph of a map, for a fleet of drones whose
+     * routes are chosen with the given budget (see @RouteOptimizer.solve).
+     *
+     * @param website         the website the menus and "ThreeWords" locations are found in
+     * @param map             the map
+     * @param fleetSize       the number of drones that deliver the orders
+     * @param iterationBudget the most perturbation rounds of the route search
+     * @param timeBudget      the time budget of the route search in milliseconds
+     * @throws IllegalArgumentException if there isn't a drone or a budget is negative
+     */
+    public PlanningContext(Website website, MapConfig map, int fleetSize, int iterationBudget, long timeBudget) {
+        if (fleetSize < 1){
+            throw new IllegalArgumentException("The fleet needs at least one drone: " + fleetSize);
+        }
+        if (iterationBudget < 0 || timeBudget < 0){
+            throw new IllegalArgumentException("Negative route search budget: " + iterationBudget + " rounds, " + timeBudget + " ms");
+        }
+        this.fleetSize = fleetSize;
+        this.iterationBudget = iterationBudget;
+        this.timeBudget = timeBudget;
+        this.website = website;
+        this.map = map;
+        this.noFlyPerimeter = Collections.unmodifiableList(Website.getNoFlyPerimeter(map.noFlyZoneLists()));
+        this.planner = new VisibilityGraphPlanner(map);
+    }
+
+    /**
+     * Builds the context by downloading the no-fly zones and the landmarks from the website, or
+     * by loading the map in @App.mapFolder if it is set.
+     *
+     * @param website the website
+     * @return the context
+     */
+    public static PlanningContext load(Website website) {
+        if (App.mapFolder != null){
+            return new PlanningContext(website, MapConfig.load(Paths.get(App.mapFolder)));
+        }
+        return new PlanningContext(website, website.getNoFlyZones(), website.getLandmarks());
+    }
+
+    /**
+     * Getter that returns the website the menus and "ThreeWords" locations are found in.
+     *
+     * @return the website
+     */
+    public Website getWebsite() {
+        return website;
+    }
+
+    /**
+     * Getter that returns the map.
+     *
+     * @return the map
+     */
+    public MapConfig getMap() {
+        return map;
+    }
+
+    /**
+     * Getter that returns the polygons of the no-fly zones.
+     *
+     * @return the polygons, which can't be changed
+     */
+    public List<List<LongLat>> getNoFlyZones() {
+        return map.getNoFlyZones();
+    }
+
+    /**
+     * Getter that returns the lines that form all the no-fly zone's polygons.
+     *
+     * @return the lines, which can't be changed
+     */
+    public List<LongLat.line> getNoFlyPerimeter() {
+        return noFlyPerimeter;
+    }
+
+    /**
+     * Getter that returns the landmarks the drone can fly through.
+     *
+     * @return the landmarks, which can't be changed
+     */
+    public List<LongLat> getLandmarks() {
+        return map.getLandmarks();
+    }
+
+    /**
+     * Getter that returns the visibility-graph planner of the no-fly zones and landmarks. It only
+     * reads its own state, so it can plan legs for several days at the same time.
+     *
+     * @return the planner
+     */
+    public PathPlanner getPlanner() {
+        return planner;
+    }
+
+    /**
+     * Getter that returns the number of drones that deliver the orders.
+     *
+     * @return the number of drones
+     */
+    public int getFleetSize() {
+        return fleetSize;
+    }
+
+    /**
+     * Getter that returns the most perturbation rounds of the route search.
+     *
+     * @return the rounds
+     */
+    public int getIterationBudget() {
+        return iterationBudget;
+    }
+
+    /**
+     * Getter that returns the time budget of the route search.
+     *
+     * @return the budget in milliseconds
+     */
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+}
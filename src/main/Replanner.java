@@ -0,0 +1,350 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+
+/**
+ * The Replanner class, which changes the plan of a drone in the middle of its day, when an order
+ * is added (@addOrder) or cancelled (@cancelOrder), without planning the day again with @App.
+ *
+ * It starts from where the drone is: its position, its moves left and the orders of its route it
+ * hasn't delivered yet. On every change only the rest of the day is planned again: the
+ * @RouteOptimizer starts from the route the drone already had (see @RouteOptimizer.solve), and
+ * the moves between every pair of places are remembered, so a change only plans the legs of the
+ * places it brings in, through the drone's @LegCache. The orders the drone can't fit in its route
+ * are kept, so they are delivered if an order is cancelled and frees enough moves.
+ *
+ * The drone is flown along its route with @advance, and the flightpath of the rest of the day
+ * (@getPath) is what @App.flightPlanner would fly from there: the orders of the route, skipping
+ * any after which the drone couldn't go back home, and the way back home.
+ *
+ * It changes the @DroneState it is given, so like the drone it is only used from a single thread.
+ */
+public class Replanner {
+    /**
+     * The most perturbation rounds of the @RouteOptimizer after every change (see
+     * @RouteOptimizer.solve), unless the replanner is given another budget. It can be changed
+     * with the 'ilp.replan.iterations' system property.
+     */
+    public static final int iterationBudget = Integer.getInteger("ilp.replan.iterations", 20);
+    /**
+     * The time budget (in milliseconds) of the @RouteOptimizer after every change, a safety cap
+     * that keeps a change quick even on a day far larger than usual. It can be changed with the
+     * 'ilp.replan.millis' system property.
+     */
+    public static final long timeBudget = Long.getLong("ilp.replan.millis", 5);
+
+    //class variables
+    private final DroneState drone;
+    private final int iterations;
+    private final long millis;
+    private final ArrayList<Database.row> pending = new ArrayList<>();
+    private final HashSet<String> known = new HashSet<>();
+    /**
+     * Every place a leg was needed between; the drone's home is the first one.
+     */
+    private final ArrayList<LongLat> points = new ArrayList<>();
+    /**
+     * The moves of the leg between every pair of @points, row by row with @capacity places in
+     * every row, or -1 if the leg hasn't been needed yet.
+     */
+    private int[] moves = new int[0];
+    private int capacity;
+    private FlightPath path;
+
+    /**
+     * Class constructor. The orders of the drone's route it hasn't delivered yet are the ones it
+     * delivers, in their order; the rest of the given orders (the day's orders the drone wasn't
+     * given, or another drone doesn't deliver) are kept in case they fit later. The moves
+     * between the places of all of them are found here, most of them in the @LegCache, so the
+     * changes only plan the legs of the places they bring in.
+     *
+     * @param drone  the drone, which may have delivered some orders already
+     * @param orders other orders the drone can deliver, which may include its route
+     */
+    public Replanner(DroneState drone, List<Database.row> orders) {
+        this(drone, orders, iterationBudget, timeBudget);
+    }
+
+    /**
+     * Same as the constructor above, with the budget of the @RouteOptimizer after every change
+     * instead of @iterationBudget and @timeBudget.
+     *
+     * @param drone      the drone, which may have delivered some orders already
+     * @param orders     other orders the drone can deliver, which may include its route
+     * @param iterations the most perturbation rounds after every change
+     * @param millis     the time budget after every change in milliseconds
+     * @throws IllegalArgumentException if a budget is negative
+     */
+    public Replanner(DroneState drone, List<Database.row> orders, int iterations, long millis) {
+        if (iterations < 0 || millis < 0){
+            throw new IllegalArgumentException("Negative replanning budget: " + iterations + " rounds, " + millis + " ms");
+        }
+        this.iterations = iterations;
+        this.millis = millis;
+        this.drone = drone;
+        for (int i = 0; i < drone.getDelivered(); i++){
+            known.add(drone.getDeliveredOrder(i).getNo());
+        }
+        ArrayList<Database.row> route = new ArrayList<>();
+        for (Database.row row : drone.getRoute()){
+            if (known.add(row.getNo())){
+                route.add(row);
+                pending.add(row);
+            }
+        }
+        for (Database.row row : orders){
+            if (known.add(row.getNo())){
+                pending.add(row);
+            }
+        }
+        drone.setRoute(route);
+        point(drone.getHome());
+        problem();
+        path = flightpath();
+    }
+
+    /**
+     * Adds an order to the day and plans the rest of the day again.
+     *
+     * @param row the order
+     * @return the flightpath of the rest of the day (see @getPath)
+     * @throws IllegalArgumentException if an order with the same number was already given
+     */
+    public FlightPath addOrder(Database.row row) {
+        if (!known.add(row.getNo())){
+            throw new IllegalArgumentException("Order " + row.getNo() + " was already given");
+        }
+        pending.add(row);
+        return replan();
+    }
+
+    /**
+     * Cancels an order that hasn't been delivered and plans the rest of the day again.
+     *
+     * @param orderNo the number of the order
+     * @return the flightpath of the rest of the day (see @getPath)
+     * @throws IllegalArgumentException if there is no such order still to deliver
+     */
+    public FlightPath cancelOrder(String orderNo) {
+        Database.row cancelled = null;
+        for (Database.row row : pending){
+            if (row.getNo().equals(orderNo)){
+                cancelled = row;
+                break;
+            }
+        }
+        if (cancelled == null){
+            throw new IllegalArgumentException("Order " + orderNo + " isn't waiting to be delivered");
+        }
+        pending.remove(cancelled);
+        ArrayList<Database.row> route = new ArrayList<>(drone.getRoute());
+        route.remove(cancelled);
+        drone.setRoute(route);
+        return replan();
+    }
+
+    /**
+     * Flies the drone to deliver the next order of its route, the way @App.flightPlanner does:
+     * an order after which the drone couldn't go back home, or with a leg the planner can't fly,
+     * is skipped (and kept in case it fits later).
+     *
+     * @return the order delivered, or null if the drone has no order left it can deliver
+     */
+    public Database.row advance() {
+        ArrayList<Database.row> route = new ArrayList<>(drone.getRoute());
+        while (!route.isEmpty()){
+            Database.row row = route.remove(0);
+            FlightPath flight;
+            ArrayList<LongLat> back;
+            try {
+                flight = App.orderFlight(drone, drone.getCurrentPosition(), row);
+                back = drone.getLegCache().plan(flight.getLast(), drone.getHome());
+            } catch (IllegalStateException e) {
+                Metrics.unreachableLegs.increment();
+                continue;
+            }
+            if (back.size() < drone.getMovesLeft() - flight.size()){
+                drone.deliver(row, flight);
+                pending.remove(row);
+                drone.setRoute(route);
+                path = flightpath();
+                return row;
+            }
+        }
+        drone.setRoute(route);
+        path = flightpath();
+        return null;
+    }
+
+    /**
+     * Getter that returns the flightpath of the rest of the day, from where the drone is: the
+     * orders of its route and the way back home.
+     *
+     * @return the flightpath
+     */
+    public FlightPath getPath() {
+        return path;
+    }
+
+    /**
+     * Getter that returns the orders the drone still delivers, in the order it delivers them.
+     *
+     * @return the orders
+     */
+    public List<Database.row> getRoute() {
+        return drone.getRoute();
+    }
+
+    /**
+     * Getter that returns every order that hasn't been delivered or cancelled, whether it is in
+     * the route or not.
+     *
+     * @return the orders
+     */
+    public List<Database.row> getPending() {
+        return pending;
+    }
+
+    /**
+     * Chooses the route again with the @RouteOptimizer, starting from the current one, and plans
+     * its flightpath. The time it takes is recorded in @Metrics.replanNanos.
+     *
+     * @return the flightpath of the rest of the day
+     */
+    private FlightPath replan() {
+        long start = Metrics.start();
+        RouteOptimizer optimizer = problem();
+        List<Database.row> route = drone.getRoute();
+        int[] current = new int[route.size()];
+        for (int k = 0; k < current.length; k++){
+            current[k] = pending.indexOf(route.get(k));
+        }
+        ArrayList<Database.row> chosen = new ArrayList<>();
+        for (int order : optimizer.solve(current, iterations, millis)){
+            chosen.add(pending.get(order));
+        }
+        drone.setRoute(chosen);
+        path = flightpath();
+        Metrics.replanNanos.recordSince(start);
+        return path;
+    }
+
+    /**
+     * Builds the problem of the rest of the day, the way @RouteOptimizer.forDay does but from
+     * where the drone is and with the moves it has left. The pending orders are numbered as
+     * they are in @pending.
+     *
+     * @return the problem
+     */
+    private RouteOptimizer problem() {
+        int size = pending.size();
+        int[] first = new int[size];
+        int[] last = new int[size + 1];
+        int[] service = new int[size];
+        int[] prize = new int[size];
+        for (int i = 0; i < size; i++){
+            Database.row row = pending.get(i);
+            ArrayList<LongLat> places = App.distanceOrder(row.getPickups(), row.getDeliverTo());
+            places.add(row.getDeliverTo());
+            first[i] = point(places.get(0));
+            last[i] = point(places.get(places.size() - 1));
+            for (int k = 1; k < places.size(); k++){
+                service[i] += moves(point(places.get(k - 1)), point(places.get(k)));
+            }
+            prize[i] = row.getDeliveryCost();
+        }
+        last[size] = point(drone.getCurrentPosition());
+        int[] arc = new int[(size + 1) * size];
+        int[] home = new int[size + 1];
+        for (int from = 0; from <= size; from++){
+            for (int to = 0; to < size; to++){
+                //an order is never delivered right after itself
+                arc[from * size + to] = from == to ? 0 : moves(last[from], first[to]) + service[to];
+            }
+            home[from] = moves(last[from], 0);
+        }
+        return new RouteOptimizer(prize, arc, home, drone.getMovesLeft());
+    }
+
+    /**
+     * Plans the flightpath of the rest of the day, as @advance would fly it.
+     *
+     * @return the flightpath
+     */
+    private FlightPath flightpath() {
+        FlightPath flight = new FlightPath();
+        LongLat position = drone.getCurrentPosition();
+        int movesLeft = drone.getMovesLeft();
+        ArrayList<LongLat> back = drone.getLegCache().plan(position, drone.getHome());
+        for (Database.row row : drone.getRoute()){
+            FlightPath moves;
+            ArrayList<LongLat> returning;
+            try {
+                moves = App.orderFlight(drone, position, row);
+                returning = drone.getLegCache().plan(moves.getLast(), drone.getHome());
+            } catch (IllegalStateException e) {
+                continue;
+            }
+            if (returning.size() < movesLeft - moves.size()){
+                flight.addAll(moves);
+                movesLeft -= moves.size();
+                position = moves.getLast();
+                back = returning;
+            }
+        }
+        flight.addAll(back);
+        return flight;
+    }
+
+    /**
+     * Finds the number of a place in @points, adding it if it isn't there.
+     *
+     * @param place the place
+     * @return its number
+     */
+    private int point(LongLat place) {
+        for (int i = 0; i < points.size(); i++){
+            LongLat other = points.get(i);
+            if (other.longitude == place.longitude && other.latitude == place.latitude){
+                return i;
+            }
+        }
+        if (points.size() == capacity){
+            int grown = Math.max(16, 2 * capacity);
+            int[] bigger = new int[grown * grown];
+            Arrays.fill(bigger, -1);
+            for (int from = 0; from < capacity; from++){
+                System.arraycopy(moves, from * capacity, bigger, from * grown, capacity);
+            }
+            moves = bigger;
+            capacity = grown;
+        }
+        points.add(place);
+        return points.size() - 1;
+    }
+
+    /**
+     * Finds the moves of the leg between two places, planning it through the drone's
+     * @LegCache the first time it is needed.
+     *
+     * @param from the number of the place the leg starts at
+     * @param to   the number of the place the leg ends at
+     * @return the number of moves, or @LegCostMatrix.unreachable if the planner can't fly the leg
+     */
+    private int moves(int from, int to) {
+        int leg = from * capacity + to;
+        if (moves[leg] < 0){
+            try {
+                moves[leg] = drone.getLegCache().plan(points.get(from), points.get(to)).size();
+            } catch (IllegalStateException e) {
+                Metrics.unreachableLegs.increment();
+                moves[leg] = LegCostMatrix.unreachable;
+            }
+        }
+        return moves[leg];
+    }
+}
@@ -0,0 +1,591 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * The RouteOptimizer class, which chooses which of the day's orders the drone delivers, and in
+ * which order, to collect as much money as possible with the moves of one battery. It is an
+ * orienteering problem: every order has a prize (its price) and a cost in moves that depends on
+ * the order delivered before it, and the drone must always keep enough moves to go back home.
+ *
+ * The search starts from the best of two routes: the greedy one (@greedy, the orders tried from
+ * the most to the least expensive, as @Database.greedyTable does) and one built by inserting
+ * the order with the highest price per extra move until no more fit. It is then improved with
+ * local search (inserting orders, replacing an order by one that isn't delivered, 2-opt, or-opt
+ * and swapping two orders), and perturbed by dropping a few orders and improving it again. The
+ * perturbations stop after @staleRounds rounds per order without finding a better route, or
+ * after the number of rounds it is given (see @iterationBudget), so the route it finds only
+ * depends on the problem and not on how busy the machine is. The time budget is only a safety
+ * cap for problems far larger than a day's: a search stopped by it depends on the machine.
+ *
+ * A route is better than another one if it collects more money, or the same money with fewer
+ * moves.
+ */
+public class RouteOptimizer {
+    /**
+     * The most perturbation rounds of a search. It can be changed with the
+     * 'ilp.optimizer.iterations' system property.
+     */
+    public static final int iterationBudget = Integer.getInteger("ilp.optimizer.iterations", 1000);
+    /**
+     * The time budget of the search in milliseconds, a safety cap that a day's search never
+     * reaches (see @iterationBudget). It can be changed with the 'ilp.optimizer.millis' system
+     * property.
+     */
+    public static final long timeBudget = Long.getLong("ilp.optimizer.millis", 2000);
+    /**
+     * The perturbation rounds (per order of the problem) without a better route after which the
+     * search stops.
+     */
+    static final int staleRounds = 50;
+
+    /**
+     * A route: the orders delivered, in order, with the money collected and the moves spent.
+     */
+    private static class tour {
+        private final int[] orders;
+        private int length;
+        private int value;
+        private int cost;
+
+        private tour(int capacity) {
+            this.orders = new int[capacity];
+        }
+
+        private tour copy() {
+            tour copy = new tour(orders.length);
+            copy.set(this);
+            return copy;
+        }
+
+        private void set(tour other) {
+            System.arraycopy(other.orders, 0, orders, 0, other.length);
+            length = other.length;
+            value = other.value;
+            cost = other.cost;
+        }
+
+        private boolean isBetterThan(tour other) {
+            return value > other.value || (value == other.value && cost < other.cost);
+        }
+    }
+
+    //class variables
+    private final int size;
+    private final int[] prize;
+    private final int[] arc;
+    private final int[] home;
+    private final int budget;
+    private final Random random = new Random(1);
+    //route being evaluated, reused by every move
+    private final tour candidate;
+
+    /**
+     * Class constructor. The orders are numbered from 0 to prize.length - 1, and the drone's
+     * home is number prize.length.
+     *
+     * @param prize  the money collected by delivering each order
+     * @param arc    the moves needed to deliver order 'to' right after order 'from' (or after
+     *               leaving home), at arc[from * prize.length + to]
+     * @param home   the moves needed to go back home after each order (and from home itself)
+     * @param budget the moves of the battery; after every order the moves spent plus the moves
+     *               needed to go back home must be less than this
+     */
+    public RouteOptimizer(int[] prize, int[] arc, int[] home, int budget) {
+        this.size = prize.length;
+        this.prize = prize;
+        this.arc = arc;
+        this.home = home;
+        this.budget = budget;
+        this.candidate = new tour(size);
+    }
+
+    /**
+     * Builds the problem of a day from the @LegCostMatrix. Delivering an order means flying from
+     * where the drone is to its first stop and then through the rest of its stops.
+     *
+     * @param legs   the moves between every pair of points of the day
+     * @param depot  the place the drone starts from and goes back to
+     * @param stops  the places the drone visits for every order, in order (the pick-ups and,
+     *               lastly, the drop-off)
+     * @param prize  the money collected by delivering each order
+     * @param budget the moves of the battery
+     * @return the problem
+     */
+    public static RouteOptimizer forDay(LegCostMatrix legs, LongLat depot, List<ArrayList<LongLat>> stops,
+                                        int[] prize, int budget) {
+        int size = stops.size();
+        int[] first = new int[size];
+        int[] last = new int[size + 1];
+        int[] service = new int[size];
+        for (int i = 0; i < size; i++){
+            ArrayList<LongLat> places = stops.get(i);
+            first[i] = legs.indexOf(places.get(0));
+            last[i] = legs.indexOf(places.get(places.size() - 1));
+            for (int k = 1; k < places.size(); k++){
+                service[i] += legs.getMoves(legs.indexOf(places.get(k - 1)), legs.indexOf(places.get(k)));
+            }
+        }
+        last[size] = legs.indexOf(depot);
+        int[] arc = new int[(size + 1) * size];
+        int[] home = new int[size + 1];
+        for (int from = 0; from <= size; from++){
+            for (int to = 0; to < size; to++){
+                arc[from * size + to] = legs.getMoves(last[from], first[to]) + service[to];
+            }
+            home[from] = legs.getMoves(last[from], last[size]);
+        }
+        return new RouteOptimizer(prize, arc, home, budget);
+    }
+
+    /**
+     * Builds the same problem restricted to some of the orders, for a drone with another battery.
+     * The orders of the new problem are numbered in the order they are given, so order i of the
+     * new problem is orders[i] of this one.
+     *
+     * @param orders the orders kept
+     * @param budget the moves of the battery
+     * @return the problem
+     */
+    public RouteOptimizer subset(int[] orders, int budget) {
+        int n = orders.length;
+        int[] subPrize = new int[n];
+        int[] subArc = new int[(n + 1) * n];
+        int[] subHome = new int[n + 1];
+        for (int i = 0; i < n; i++){
+            subPrize[i] = prize[orders[i]];
+        }
+        for (int from = 0; from <= n; from++){
+            int original = from == n ? size : orders[from];
+            for (int to = 0; to < n; to++){
+                subArc[from * n + to] = arc[original * size + orders[to]];
+            }
+            subHome[from] = home[original];
+        }
+        return new RouteOptimizer(subPrize, subArc, subHome, budget);
+    }
+
+    /**
+     * Getter that returns the number of orders.
+     *
+     * @return the number of orders
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Calculates the moves a route spends, including going back home.
+     *
+     * @param orders the orders of the route
+     * @param length the number of orders in the route
+     * @return the moves, or -1 if after some order the drone can't go back home
+     */
+    private int cost(int[] orders, int length) {
+        int spent = 0;
+        int from = size;
+        for (int k = 0; k < length; k++){
+            int to = orders[k];
+            spent += arc[from * size + to];
+            if (spent + home[to] >= budget){
+                return -1;
+            }
+            from = to;
+        }
+        return spent + home[from];
+    }
+
+    /**
+     * Calculates the moves a route spends, including going back home.
+     *
+     * @param orders the orders of the route
+     * @return the moves, or -1 if after some order the drone can't go back home
+     */
+    public int cost(int[] orders) {
+        return cost(orders, orders.length);
+    }
+
+    /**
+     * Calculates the money a route collects.
+     *
+     * @param orders the orders of the route
+     * @return the money
+     */
+    public int value(int[] orders) {
+        int value = 0;
+        for (int order : orders){
+            value += prize[order];
+        }
+        return value;
+    }
+
+    /**
+     * Evaluates @candidate, which has just been changed.
+     *
+     * @return true if the drone can fly it
+     */
+    private boolean evaluateCandidate() {
+        candidate.cost = cost(candidate.orders, candidate.length);
+        if (candidate.cost < 0){
+            return false;
+        }
+        int value = 0;
+        for (int k = 0; k < candidate.length; k++){
+            value += prize[candidate.orders[k]];
+        }
+        candidate.value = value;
+        return true;
+    }
+
+    /**
+     * Builds the greedy route: the orders are tried in their given order, and every order after
+     * which the drone can still go back home is delivered.
+     *
+     * @return the orders of the route
+     */
+    public int[] greedy() {
+        tour route = greedyTour();
+        return Arrays.copyOf(route.orders, route.length);
+    }
+
+    /**
+     * Builds the greedy route (see @greedy).
+     *
+     * @return the route
+     */
+    private tour greedyTour() {
+        tour route = new tour(size);
+        for (int order = 0; order < size; order++){
+            route.orders[route.length++] = order;
+            if (cost(route.orders, route.length) < 0){
+                route.length--;
+            }
+        }
+        route.cost = cost(route.orders, route.length);
+        route.value = value(Arrays.copyOf(route.orders, route.length));
+        return route;
+    }
+
+    /**
+     * Builds a route by inserting, one at a time, the order that collects the most money per
+     * extra move, in the place of the route where it costs the fewest moves.
+     *
+     * @return the route
+     */
+    private tour insertionTour() {
+        tour route = new tour(size);
+        route.cost = cost(route.orders, 0);
+        boolean[] delivered = new boolean[size];
+        while (true){
+            double bestRatio = -1;
+            int bestOrder = -1;
+            int bestPlace = -1;
+            int bestCost = 0;
+            for (int order = 0; order < size; order++){
+                if (delivered[order]){
+                    continue;
+                }
+                for (int place = 0; place <= route.length; place++){
+                    candidate.set(route);
+                    insert(candidate, place, order);
+                    int cost = cost(candidate.orders, candidate.length);
+                    if (cost < 0){
+                        continue;
+                    }
+                    double ratio = prize[order] / (double) Math.max(1, cost - route.cost);
+                    if (ratio > bestRatio){
+                        bestRatio = ratio;
+                        bestOrder = order;
+                        bestPlace = place;
+                        bestCost = cost;
+                    }
+                }
+            }
+            if (bestOrder < 0){
+                return route;
+            }
+            insert(route, bestPlace, bestOrder);
+            delivered[bestOrder] = true;
+            route.cost = bestCost;
+            route.value += prize[bestOrder];
+        }
+    }
+
+    /**
+     * Finds the best route it can within a number of perturbation rounds.
+     *
+     * @param iterations the most perturbation rounds
+     * @param millis     the time budget in milliseconds, a safety cap
+     * @return the orders of the route, in the order they should be delivered
+     */
+    public int[] solve(int iterations, long millis) {
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        tour best = greedyTour();
+        tour built = insertionTour();
+        if (built.isBetterThan(best)){
+            best = built;
+        }
+        return search(best, iterations, deadline);
+    }
+
+    /**
+     * Finds the best route it can within a number of perturbation rounds, starting from a route
+     * the drone was already given, as @Replanner does when the orders change. The orders of that
+     * route are taken in their order, and every order after which the drone couldn't go back
+     * home is left out (the orders after it are still tried). The search goes on from there, so
+     * a route that was good stays much the same.
+     *
+     * @param start      the orders of the route to start from
+     * @param iterations the most perturbation rounds
+     * @param millis     the time budget in milliseconds, a safety cap
+     * @return the orders of the route, in the order they should be delivered
+     */
+    public int[] solve(int[] start, int iterations, long millis) {
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        tour route = new tour(size);
+        for (int order : start){
+            route.orders[route.length++] = order;
+            if (cost(route.orders, route.length) < 0){
+                route.length--;
+            }
+        }
+        route.cost = cost(route.orders, route.length);
+        route.value = value(Arrays.copyOf(route.orders, route.length));
+        return search(route, iterations, deadline);
+    }
+
+    /**
+     * Helper method of the @solve methods, it improves a route with local search and then
+     * perturbs it and improves it again, until @staleRounds rounds per order don't find a better
+     * route, the rounds run out or (as a safety cap) the deadline passes.
+     *
+     * @param best       the route to start from, which is changed
+     * @param iterations the most perturbation rounds
+     * @param deadline   the time (from @System.nanoTime) the search has to stop at
+     * @return the orders of the best route found
+     */
+    private int[] search(tour best, int iterations, long deadline) {
+        improve(best, deadline);
+        tour current = best.copy();
+        int stale = 0;
+        for (int round = 0; round < iterations && stale < staleRounds * Math.max(1, size)
+                && System.nanoTime() < deadline; round++){
+            tour next = current.copy();
+            perturb(next);
+            improve(next, deadline);
+            if (next.isBetterThan(best)){
+                best = next.copy();
+                stale = 0;
+            } else {
+                stale++;
+            }
+            current = next.isBetterThan(current) || random.nextInt(4) == 0 ? next : best.copy();
+        }
+        return Arrays.copyOf(best.orders, best.length);
+    }
+
+    /**
+     * Drops between one and three random orders from a route.
+     *
+     * @param route the route
+     */
+    private void perturb(tour route) {
+        int drops = Math.min(route.length, 1 + random.nextInt(3));
+        for (int i = 0; i < drops; i++){
+            remove(route, random.nextInt(route.length));
+        }
+        route.cost = cost(route.orders, route.length);
+        route.value = value(Arrays.copyOf(route.orders, route.length));
+    }
+
+    /**
+     * Improves a route with local search until no move makes it better (or the time runs out).
+     *
+     * @param route    the route
+     * @param deadline the time (from @System.nanoTime) the search has to stop at
+     */
+    private void improve(tour route, long deadline) {
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline){
+            improved = insertMove(route) || replaceMove(route) || twoOptMove(route)
+                    || orOptMove(route) || swapMove(route);
+        }
+    }
+
+    /**
+     * Keeps @candidate as the new route if it is better.
+     *
+     * @param route the route
+     * @return true if the route changed
+     */
+    private boolean acceptCandidate(tour route) {
+        if (evaluateCandidate() && candidate.isBetterThan(route)){
+            route.set(candidate);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tries to deliver one more order, anywhere in the route.
+     *
+     * @param route the route
+     * @return true if the route changed
+     */
+    private boolean insertMove(tour route) {
+        boolean[] delivered = delivered(route);
+        int offset = random.nextInt(size + 1);
+        for (int i = 0; i < size; i++){
+            int order = (i + offset) % size;
+            if (delivered[order]){
+                continue;
+            }
+            for (int place = 0; place <= route.length; place++){
+                candidate.set(route);
+                insert(candidate, place, order);
+                if (acceptCandidate(route)){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tries to replace an order of the route by one that isn't delivered.
+     *
+     * @param route the route
+     * @return true if the route changed
+     */
+    private boolean replaceMove(tour route) {
+        boolean[] delivered = delivered(route);
+        for (int place = 0; place < route.length; place++){
+            for (int order = 0; order < size; order++){
+                if (!delivered[order]){
+                    candidate.set(route);
+                    candidate.orders[place] = order;
+                    if (acceptCandidate(route)){
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tries to reverse a part of the route (2-opt).
+     *
+     * @param route the route
+     * @return true if the route changed
+     */
+    private boolean twoOptMove(tour route) {
+        for (int i = 0; i < route.length - 1; i++){
+            for (int j = i + 1; j < route.length; j++){
+                candidate.set(route);
+                for (int a = i, b = j; a < b; a++, b--){
+                    int swap = candidate.orders[a];
+                    candidate.orders[a] = candidate.orders[b];
+                    candidate.orders[b] = swap;
+                }
+                if (acceptCandidate(route)){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tries to move one, two or three consecutive orders to another place of the route (or-opt).
+     *
+     * @param route the route
+     * @return true if the route changed
+     */
+    private boolean orOptMove(tour route) {
+        int[] segment = new int[3];
+        for (int length = 1; length <= 3; length++){
+            for (int i = 0; i + length <= route.length; i++){
+                for (int place = 0; place <= route.length - length; place++){
+                    if (place == i){
+                        continue;
+                    }
+                    candidate.set(route);
+                    System.arraycopy(candidate.orders, i, segment, 0, length);
+                    for (int k = 0; k < length; k++){
+                        remove(candidate, i);
+                    }
+                    for (int k = 0; k < length; k++){
+                        insert(candidate, place + k, segment[k]);
+                    }
+                    if (acceptCandidate(route)){
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tries to swap two orders of the route.
+     *
+     * @param route the route
+     * @return true if the route changed
+     */
+    private boolean swapMove(tour route) {
+        for (int i = 0; i < route.length - 1; i++){
+            for (int j = i + 1; j < route.length; j++){
+                candidate.set(route);
+                candidate.orders[i] = route.orders[j];
+                candidate.orders[j] = route.orders[i];
+                if (acceptCandidate(route)){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the orders delivered by a route.
+     *
+     * @param route the route
+     * @return true for every order in the route
+     */
+    private boolean[] delivered(tour route) {
+        boolean[] delivered = new boolean[size];
+        for (int k = 0; k < route.length; k++){
+            delivered[route.orders[k]] = true;
+        }
+        return delivered;
+    }
+
+    /**
+     * Inserts an order in a route.
+     *
+     * @param route the route
+     * @param place the position the order goes to
+     * @param order the order
+     */
+    private static void insert(tour route, int place, int order) {
+        System.arraycopy(route.orders, place, route.orders, place + 1, route.length - place);
+        route.orders[place] = order;
+        route.length++;
+    }
+
+    /**
+     * Removes an order from a route.
+     *
+     * @param route the route
+     * @param place the position of the order
+     */
+    private static void remove(tour route, int place) {
+        System.arraycopy(route.orders, place + 1, route.orders, place, route.length - place - 1);
+        route.length--;
+    }
+}
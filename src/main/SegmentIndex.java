@@ -0,0 +1,323 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+
+
+/**
+ * The SegmentIndex class. It is a uniform grid laid over the confinement area where every
+ * cell knows which no-fly zone lines overlap it, so that checking a move only tests the few
+ * lines that are close to it instead of every line in the no-fly zone's perimeter.
+ *
+ * Lines and moves that go outside the confinement area are clamped into the border cells,
+ * which keeps the index correct for any pair of points.
+ */
+public class SegmentIndex {
+    /**
+     * The default size (in degrees) of the side of every cell.
+     */
+    static final double defaultCellSize = 2 * LongLat.step;
+    /**
+     * The end points of the lines of the no-fly zone's perimeter, stored as one array per
+     * coordinate so that testing a move doesn't follow any object references.
+     */
+    private final double[] startX, startY, endX, endY;
+    /**
+     * The bounding box of every line. A move is only tested against the lines whose box meets
+     * the move's, which most of the lines in the cells it overlaps don't.
+     */
+    private final double[] boxMinX, boxMinY, boxMaxX, boxMaxY;
+    /**
+     * The western and southern limits of the grid.
+     */
+    private final double minLongitude, minLatitude;
+    /**
+     * The size of the side of every cell.
+     */
+    private final double cellSize;
+    /**
+     * The number of columns and rows of the grid.
+     */
+    private final int columns, rows;
+    /**
+     * The first cell column and row every segment overlaps. They are used to test each
+     * segment only once when a move overlaps several of its cells.
+     */
+    private final int[] firstColumn, firstRow;
+    /**
+     * The last cell row every segment overlaps.
+     */
+    private final int[] lastRow;
+    /**
+     * For every cell, where its segments start in @cellSegments (cell i uses the
+     * positions cellStart[i] to cellStart[i+1]).
+     */
+    private final int[] cellStart;
+    /**
+     * The segment numbers of all the cells, one cell after the other.
+     */
+    private final int[] cellSegments;
+
+    /**
+     * Class constructor, it builds the index over the confinement area of the campus using the
+     * default cell size.
+     *
+     * @param perimeter the lines that form all the no-fly zone's polygons
+     */
+    public SegmentIndex(ArrayList<LongLat.line> perimeter) {
+        this(perimeter, LongLat.minLongitude, LongLat.minLatitude,
+                LongLat.maxLongitude, LongLat.maxLatitude, defaultCellSize);
+    }
+
+    /**
+     * Class constructor, it builds the index over the confinement area of a map using the default
+     * cell size.
+     *
+     * @param perimeter the lines that form all the no-fly zone's polygons
+     * @param map       the map
+     */
+    public SegmentIndex(ArrayList<LongLat.line> perimeter, MapConfig map) {
+        this(perimeter, map.getMinLongitude(), map.getMinLatitude(),
+                map.getMaxLongitude(), map.getMaxLatitude(), defaultCellSize);
+    }
+
+    /**
+     * Class constructor, it builds the index over the given area.
+     *
+     * @param perimeter    the lines that form all the no-fly zone's polygons
+     * @param minLongitude the western limit of the area
+     * @param minLatitude  the southern limit of the area
+     * @param maxLongitude the eastern limit of the area
+     * @param maxLatitude  the northern limit of the area
+     * @param cellSize     the size of the side of every cell
+     */
+    public SegmentIndex(ArrayList<LongLat.line> perimeter, double minLongitude, double minLatitude,
+                        double maxLongitude, double maxLatitude, double cellSize) {
+        this.minLongitude = minLongitude;
+        this.minLatitude = minLatitude;
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil((maxLongitude - minLongitude) / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil((maxLatitude - minLatitude) / cellSize));
+
+        int n = perimeter.size();
+        startX = new double[n];
+        startY = new double[n];
+        endX = new double[n];
+        endY = new double[n];
+        boxMinX = new double[n];
+        boxMinY = new double[n];
+        boxMaxX = new double[n];
+        boxMaxY = new double[n];
+        firstColumn = new int[n];
+        firstRow = new int[n];
+        int[] lastColumn = new int[n];
+        lastRow = new int[n];
+        int[] counts = new int[columns * rows + 1];
+        for (int s = 0; s < n; s++){
+            LongLat a = perimeter.get(s).getStartPoint();
+            LongLat b = perimeter.get(s).getEndPoint();
+            startX[s] = a.longitude;
+            startY[s] = a.latitude;
+            endX[s] = b.longitude;
+            endY[s] = b.latitude;
+            boxMinX[s] = Math.min(a.longitude, b.longitude);
+            boxMinY[s] = Math.min(a.latitude, b.latitude);
+            boxMaxX[s] = Math.max(a.longitude, b.longitude);
+            boxMaxY[s] = Math.max(a.latitude, b.latitude);
+            firstColumn[s] = column(boxMinX[s]);
+            lastColumn[s] = column(boxMaxX[s]);
+            firstRow[s] = row(boxMinY[s]);
+            lastRow[s] = row(boxMaxY[s]);
+            for (int r = firstRow[s]; r <= lastRow[s]; r++){
+                for (int c = firstColumn[s]; c <= lastColumn[s]; c++){
+                    counts[r * columns + c + 1]++;
+                }
+            }
+        }
+        cellStart = new int[columns * rows + 1];
+        for (int i = 1; i < cellStart.length; i++){
+            cellStart[i] = cellStart[i - 1] + counts[i];
+        }
+        cellSegments = new int[cellStart[cellStart.length - 1]];
+        int[] filled = new int[columns * rows];
+        for (int s = 0; s < n; s++){
+            for (int r = firstRow[s]; r <= lastRow[s]; r++){
+                for (int c = firstColumn[s]; c <= lastColumn[s]; c++){
+                    int cell = r * columns + c;
+                    cellSegments[cellStart[cell] + filled[cell]++] = s;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the column of the cell that contains a longitude, clamped to the grid.
+     *
+     * @param longitude the longitude
+     * @return the column
+     */
+    private int column(double longitude){
+        int c = (int) Math.floor((longitude - minLongitude) / cellSize);
+        return Math.min(columns - 1, Math.max(0, c));
+    }
+
+    /**
+     * Calculates the row of the cell that contains a latitude, clamped to the grid.
+     *
+     * @param latitude the latitude
+     * @return the row
+     */
+    private int row(double latitude){
+        int r = (int) Math.floor((latitude - minLatitude) / cellSize);
+        return Math.min(rows - 1, Math.max(0, r));
+    }
+
+    /**
+     * Getter that returns the number of lines stored in the index.
+     *
+     * @return the number of lines
+     */
+    public int getSize() {
+        return startX.length;
+    }
+
+    /**
+     * Checks if the line between two points intersects any of the lines stored in the index,
+     * using the same test as @LongLat.doesIntersect.
+     *
+     * Only the lines in the cells the move's bounding box overlaps are tested, and every line is
+     * tested once, in the first cell the move and the line have in common. Long diagonal lines,
+     * like the ones of the visibility graph on a large map, only visit the cells along them (see
+     * @intersectsAlong).
+     *
+     * @param start the start point of the move
+     * @param end   the end point of the move
+     * @return true if the move crosses any line
+     */
+    public boolean intersects(LongLat start, LongLat end){
+        return intersects(start.longitude, start.latitude, end.longitude, end.latitude);
+    }
+
+    /**
+     * Checks if the line between two points intersects any of the lines stored in the index,
+     * without creating any objects. The lines whose bounding box doesn't meet the move's can't
+     * cross it, so they are turned away without the full test; they are counted in
+     * @Metrics.boxRejects, and the tests it makes in @Metrics.intersectionTests.
+     *
+     * @param x1 the longitude of the start point
+     * @param y1 the latitude of the start point
+     * @param x2 the longitude of the end point
+     * @param y2 the latitude of the end point
+     * @return true if the move crosses any line
+     */
+    public boolean intersects(double x1, double y1, double x2, double y2){
+        int minColumn = column(Math.min(x1, x2));
+        int maxColumn = column(Math.max(x1, x2));
+        int minRow = row(Math.min(y1, y2));
+        int maxRow = row(Math.max(y1, y2));
+        if (maxColumn - minColumn > 1 && maxRow - minRow > 1){
+            return intersectsAlong(x1, y1, x2, y2, minColumn, maxColumn);
+        }
+        double west = Math.min(x1, x2);
+        double east = Math.max(x1, x2);
+        double south = Math.min(y1, y2);
+        double north = Math.max(y1, y2);
+        int tests = 0;
+        int rejects = 0;
+        boolean crosses = false;
+        search:
+        for (int r = minRow; r <= maxRow; r++){
+            for (int c = minColumn; c <= maxColumn; c++){
+                int cell = r * columns + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++){
+                    int s = cellSegments[i];
+                    if (Math.max(firstColumn[s], minColumn) != c || Math.max(firstRow[s], minRow) != r){
+                        continue;
+                    }
+                    if (boxMaxX[s] < west || boxMinX[s] > east || boxMaxY[s] < south || boxMinY[s] > north){
+                        rejects++;
+                        continue;
+                    }
+                    tests++;
+                    if (Geometry.intersects(x1, y1, x2, y2, startX[s], startY[s], endX[s], endY[s])){
+                        crosses = true;
+                        break search;
+                    }
+                }
+            }
+        }
+        Metrics.moveChecks.increment();
+        Metrics.intersectionTests.add(tests);
+        Metrics.boxRejects.add(rejects);
+        return crosses;
+    }
+
+    /**
+     * Helper method of @intersects for lines that cross several columns and rows. It walks the
+     * columns the line crosses from west to east, and in every column it only visits the rows the
+     * line crosses inside it (with a tiny margin, so a line through the corner of a cell visits
+     * all of the cells around it). The lines in a cell are tested with the same test, so the
+     * result is the same as testing the whole bounding box.
+     *
+     * Every line is tested once, in the first column where the walk meets it and in the first row
+     * of that column. The rows visited in successive columns move in a single direction, so a
+     * line met in a column was already met in an earlier column only if it was met in the
+     * previous one.
+     *
+     * @param x1        the longitude of the start point
+     * @param y1        the latitude of the start point
+     * @param x2        the longitude of the end point
+     * @param y2        the latitude of the end point
+     * @param minColumn the column of the western end
+     * @param maxColumn the column of the eastern end
+     * @return true if the move crosses any line
+     */
+    private boolean intersectsAlong(double x1, double y1, double x2, double y2, int minColumn, int maxColumn){
+        double slope = (y2 - y1) / (x2 - x1);
+        double west = Math.min(x1, x2);
+        double east = Math.max(x1, x2);
+        double south = Math.min(y1, y2);
+        double north = Math.max(y1, y2);
+        double margin = cellSize * 1e-9;
+        int previousFirst = 0;
+        int previousLast = -1;
+        int tests = 0;
+        int rejects = 0;
+        boolean crosses = false;
+        search:
+        for (int c = minColumn; c <= maxColumn; c++){
+            double xa = c == minColumn ? west : minLongitude + c * cellSize;
+            double xb = c == maxColumn ? east : minLongitude + (c + 1) * cellSize;
+            double ya = y1 + (xa - x1) * slope;
+            double yb = y1 + (xb - x1) * slope;
+            int first = row(Math.min(ya, yb) - margin);
+            int last = row(Math.max(ya, yb) + margin);
+            for (int r = first; r <= last; r++){
+                int cell = r * columns + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++){
+                    int s = cellSegments[i];
+                    if (Math.max(firstRow[s], first) != r){
+                        continue;
+                    }
+                    if (c != Math.max(firstColumn[s], minColumn) && previousFirst <= lastRow[s] && firstRow[s] <= previousLast){
+                        continue;
+                    }
+                    if (boxMaxX[s] < west || boxMinX[s] > east || boxMaxY[s] < south || boxMinY[s] > north){
+                        rejects++;
+                        continue;
+                    }
+                    tests++;
+                    if (Geometry.intersects(x1, y1, x2, y2, startX[s], startY[s], endX[s], endY[s])){
+                        crosses = true;
+                        break search;
+                    }
+                }
+            }
+            previousFirst = first;
+            previousLast = last;
+        }
+        Metrics.moveChecks.increment();
+        Metrics.intersectionTests.add(tests);
+        Metrics.boxRejects.add(rejects);
+        return crosses;
+    }
+}
@@ -0,0 +1,392 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+
+/**
+ * The visibility graph path planner. Once per day it builds a graph whose nodes are the
+ * corners of the no-fly zones (pushed slightly outwards) and the landmarks of its @MapConfig,
+ * joining every pair of nodes (up to @maxEdge apart) that can see each other without crossing a
+ * no-fly zone. The no-fly zones are the ones prepared by @NoFlyZones, inflated by its margin.
+ *
+ * For every leg it runs A* over that graph to find the shortest route of waypoints, and then
+ * turns the route into legal 10 degree steps. If the steps cannot follow the route, it falls back
+ * to the @GreedyPlanner, so a leg is always planned in bounded time.
+ */
+public class VisibilityGraphPlanner implements PathPlanner {
+    /**
+     * How far (in degrees) each no-fly zone corner is pushed away from the zone to make a node.
+     */
+    static final double clearance = 1.5 * LongLat.step;
+    /**
+     * The longest line (in degrees) the graph joins two nodes with, or the start of a leg with a
+     * node. It is longer than the diagonal of the campus, so there every pair of nodes that can
+     * see each other is joined, but on a large map it keeps the graph (and the work of every leg)
+     * from growing with the square of the number of nodes. Longer routes go through the nodes in
+     * between, and the steps that follow them still skip to any waypoint they can see.
+     */
+    static final double maxEdge = 64 * LongLat.step;
+    /**
+     * The map, which gives the confinement area.
+     */
+    private final MapConfig map;
+    /**
+     * The no-fly zones, inflated by the safety margin, whose perimeter every line is checked against.
+     */
+    private final NoFlyZones noFlyZones;
+    /**
+     * The greedy planner used to choose each step and as a fallback.
+     */
+    private final GreedyPlanner greedy;
+    /**
+     * The nodes of the visibility graph.
+     */
+    private final ArrayList<LongLat> nodes = new ArrayList<>();
+    /**
+     * For every node made from a corner, the polygon of that corner, or null for a landmark.
+     */
+    private final ArrayList<ArrayList<LongLat>> zoneOf = new ArrayList<>();
+    /**
+     * For every node, the indexes of the nodes it can see.
+     */
+    private final int[][] neighbours;
+
+    /**
+     * Class constructor, it builds the visibility graph for the day on the campus map.
+     *
+     * The lines every move is checked against are the sides of the polygons (see @NoFlyZones).
+     *
+     * @param noFlyZones the polygons of the no-fly zones, as lists of corners
+     * @param landmarks  the landmarks the drone can fly through
+     */
+    public VisibilityGraphPlanner(ArrayList<ArrayList<LongLat>> noFlyZones, ArrayList<LongLat> landmarks) {
+        this(MapConfig.campus(noFlyZones, landmarks));
+    }
+
+    /**
+     * Class constructor, it builds the visibility graph of a map, whose no-fly zones are inflated
+     * by the map's margin (see @MapConfig.getNoFlyMargin).
+     *
+     * @param map the map
+     */
+    public VisibilityGraphPlanner(MapConfig map) {
+        this(map, new NoFlyZones(map));
+    }
+
+    /**
+     * Class constructor, it builds the visibility graph of a map from its prepared no-fly zones.
+     *
+     * @param map        the map
+     * @param noFlyZones the map's no-fly zones, inflated
+     */
+    public VisibilityGraphPlanner(MapConfig map, NoFlyZones noFlyZones) {
+        this.map = map;
+        this.noFlyZones = noFlyZones;
+        this.greedy = new GreedyPlanner(map, noFlyZones);
+
+        for (LongLat landmark : map.getLandmarks()){
+            if (map.isConfined(landmark) && !noFlyZones.contains(landmark)){
+                nodes.add(landmark);
+                zoneOf.add(null);
+            }
+        }
+        //the nodes are made from the corners the zones had before they were inflated, since the
+        //bevels of the inflated corners would make pairs of nodes too close to be flown through
+        ArrayList<ArrayList<LongLat>> ownZones = map.noFlyZoneLists();
+        for (int z = 0; z < ownZones.size(); z++){
+            for (LongLat corner : outerCorners(ownZones.get(z), clearance + noFlyZones.getInflation())){
+                if (map.isConfined(corner) && !noFlyZones.contains(corner)){
+                    nodes.add(corner);
+                    zoneOf.add(noFlyZones.getZones().get(z));
+                }
+            }
+        }
+
+        int n = nodes.size();
+        ArrayList<ArrayList<Integer>> adjacency = new ArrayList<>();
+        for (int i = 0; i < n; i++){
+            adjacency.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++){
+            for (int j = i + 1; j < n; j++){
+                if (nodes.get(i).distanceTo(nodes.get(j)) <= maxEdge && !crossesOwnZone(i, nodes.get(j))
+                        && !crossesOwnZone(j, nodes.get(i)) && isClear(nodes.get(i), nodes.get(j))){
+                    adjacency.get(i).add(j);
+                    adjacency.get(j).add(i);
+                }
+            }
+        }
+        this.neighbours = new int[n][];
+        for (int i = 0; i < n; i++){
+            neighbours[i] = adjacency.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Getter that returns the number of nodes in the visibility graph.
+     *
+     * @return the number of nodes
+     */
+    public int getSize() {
+        return nodes.size();
+    }
+
+    /**
+     * Calculates the nodes of a polygon by pushing every convex corner outwards along
+     * the bisector of its two edges. Reflex and collinear corners are never on a shortest
+     * path around the polygon, so they are skipped.
+     *
+     * @param zone     the corners of the polygon
+     * @param distance how far (in degrees) every corner is pushed: @clearance, plus the margin
+     *                 the zones were inflated by
+     * @return the corners pushed outside the polygon
+     */
+    private static ArrayList<LongLat> outerCorners(ArrayList<LongLat> zone, double distance){
+        ArrayList<LongLat> corners = new ArrayList<>();
+        int size = zone.size();
+        //closed polygons repeat their first corner at the end
+        if (size > 1 && zone.get(0).isEqual(zone.get(size - 1))){
+            size--;
+        }
+        for (int i = 0; i < size; i++){
+            LongLat previous = zone.get((i + size - 1) % size);
+            LongLat corner = zone.get(i);
+            LongLat next = zone.get((i + 1) % size);
+            double d1 = corner.distanceTo(previous);
+            double d2 = corner.distanceTo(next);
+            if (d1 == 0 || d2 == 0){
+                continue;
+            }
+            double bx = (corner.longitude - previous.longitude) / d1 + (corner.longitude - next.longitude) / d2;
+            double by = (corner.latitude - previous.latitude) / d1 + (corner.latitude - next.latitude) / d2;
+            double length = Math.sqrt(bx * bx + by * by);
+            if (length < 1e-9){
+                continue;
+            }
+            LongLat node = new LongLat(corner.longitude + bx / length * distance,
+                    corner.latitude + by / length * distance);
+            if (!isInside(node, zone)){
+                corners.add(node);
+            }
+        }
+        return corners;
+    }
+
+    /**
+     * Checks if the line between a node and another point crosses the polygon the node was made
+     * from. Lines that start at a corner and go into its polygon are most of the lines that
+     * aren't clear, and this finds them with a few tests instead of walking the index of @noFlyZones, so
+     * it is checked before @isClear. It never changes which lines are clear.
+     *
+     * @param node  the index of the node
+     * @param other the other point
+     * @return true if the line crosses the node's polygon, and always false for a landmark
+     */
+    private boolean crossesOwnZone(int node, LongLat other){
+        ArrayList<LongLat> zone = zoneOf.get(node);
+        if (zone == null){
+            return false;
+        }
+        LongLat position = nodes.get(node);
+        for (int k = 0; k + 1 < zone.size(); k++){
+            LongLat a = zone.get(k);
+            LongLat b = zone.get(k + 1);
+            if (Geometry.intersects(position.longitude, position.latitude, other.longitude, other.latitude,
+                    a.longitude, a.latitude, b.longitude, b.latitude)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks, by casting a ray, if a point is inside a polygon.
+     *
+     * @param point the point
+     * @param zone  the corners of the polygon
+     * @return true if the point is inside the polygon
+     */
+    static boolean isInside(LongLat point, ArrayList<LongLat> zone){
+        boolean inside = false;
+        for (int i = 0, j = zone.size() - 1; i < zone.size(); j = i++){
+            LongLat a = zone.get(i);
+            LongLat b = zone.get(j);
+            if ((a.latitude > point.latitude) != (b.latitude > point.latitude)
+                    && point.longitude < (b.longitude - a.longitude) * (point.latitude - a.latitude)
+                    / (b.latitude - a.latitude) + a.longitude){
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Checks if the straight line between two points stays inside the confinement area and
+     * doesn't cross any side of @noFlyZones. The confinement area is a rectangle,
+     * so it is enough to check the end points.
+     *
+     * @param start the start point
+     * @param end   the end point
+     * @return true if the drone can fly straight from start to end
+     */
+    private boolean isClear(LongLat start, LongLat end){
+        if (!map.isConfined(start) || !map.isConfined(end)){
+            return false;
+        }
+        return !noFlyZones.crosses(start.longitude, start.latitude, end.longitude, end.latitude);
+    }
+
+    /**
+     * Runs A* over the visibility graph to find the shortest route from @initialPos to @finalPos.
+     * Whether a node can see @finalPos is only checked when the node is expanded, since most
+     * nodes never are.
+     *
+     * @param initialPos the start of the leg
+     * @param finalPos   the end of the leg
+     * @return the waypoints of the route (ending with @finalPos), or null if there is no route
+     */
+    ArrayList<LongLat> route(LongLat initialPos, LongLat finalPos){
+        ArrayList<LongLat> waypoints = new ArrayList<>();
+        if (isClear(initialPos, finalPos)){
+            waypoints.add(finalPos);
+            return waypoints;
+        }
+        int n = nodes.size();
+        int start = n;
+        int end = n + 1;
+        double[] cost = new double[n + 2];
+        int[] parent = new int[n + 2];
+        boolean[] closed = new boolean[n + 2];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+
+        PriorityQueue<double[]> open = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        cost[start] = 0;
+        open.add(new double[]{initialPos.distanceTo(finalPos), start});
+        while (!open.isEmpty()){
+            int current = (int) open.poll()[1];
+            if (closed[current]){
+                continue;
+            }
+            if (current == end){
+                break;
+            }
+            closed[current] = true;
+            LongLat position = current == start ? initialPos : nodes.get(current);
+            if (current != start && !crossesOwnZone(current, finalPos) && isClear(position, finalPos)){
+                relax(open, cost, parent, current, end, position, finalPos, finalPos);
+            }
+            if (current == start){
+                for (int i = 0; i < n; i++){
+                    if (initialPos.distanceTo(nodes.get(i)) <= maxEdge && !crossesOwnZone(i, initialPos)
+                            && isClear(initialPos, nodes.get(i))){
+                        relax(open, cost, parent, current, i, position, nodes.get(i), finalPos);
+                    }
+                }
+            }else{
+                for (int i : neighbours[current]){
+                    if (!closed[i]){
+                        relax(open, cost, parent, current, i, position, nodes.get(i), finalPos);
+                    }
+                }
+            }
+        }
+        if (parent[end] == -1){
+            return null;
+        }
+        for (int i = end; i != start; i = parent[i]){
+            waypoints.add(i == end ? finalPos : nodes.get(i));
+        }
+        Collections.reverse(waypoints);
+        return waypoints;
+    }
+
+    /**
+     * Helper method of @route, it updates the cost of reaching a node through the current node.
+     *
+     * @param open     the A* open set
+     * @param cost     the cost of reaching each node
+     * @param parent   the node each node is reached from
+     * @param current  the current node
+     * @param next     the neighbour node
+     * @param from     the position of the current node
+     * @param to       the position of the neighbour node
+     * @param finalPos the end of the leg
+     */
+    private static void relax(PriorityQueue<double[]> open, double[] cost, int[] parent, int current, int next,
+                              LongLat from, LongLat to, LongLat finalPos){
+        double newCost = cost[current] + from.distanceTo(to);
+        if (newCost < cost[next]){
+            cost[next] = newCost;
+            parent[next] = current;
+            open.add(new double[]{newCost + to.distanceTo(finalPos), next});
+        }
+    }
+
+    /**
+     * Plans the leg by finding the route with @route and then following its waypoints with legal
+     * steps. At every step it skips to the next waypoint as soon as the drone can see it, which
+     * straightens the corners of the route.
+     *
+     * If there is no route, or the steps take too long to follow it, it plans the leg with the
+     * @GreedyPlanner instead.
+     *
+     * @param initialPos the input arguments
+     * @param finalPos the input arguments
+     * @return the flightpath that takes the drone to @finalPos
+     */
+    @Override
+    public ArrayList<LongLat> plan(LongLat initialPos, LongLat finalPos){
+        ArrayList<LongLat> waypoints = route(initialPos, finalPos);
+        if (waypoints == null){
+            Metrics.greedyFallbacks.increment();
+            return greedy.plan(initialPos, finalPos);
+        }
+        double length = 0;
+        LongLat previous = initialPos;
+        for (LongLat waypoint : waypoints){
+            length += previous.distanceTo(waypoint);
+            previous = waypoint;
+        }
+        int maxMoves = (int) (2 * length / LongLat.step) + 20;
+
+        ArrayList<LongLat> movements = new ArrayList<>();
+        movements.add(initialPos);
+        LongLat position = initialPos;
+        int target = 0;
+        while (!position.closeTo(finalPos)){
+            while (target < waypoints.size() - 1 && (position.closeTo(waypoints.get(target))
+                    || isClear(position, waypoints.get(target + 1)))){
+                target++;
+            }
+            if (movements.size() > maxMoves){
+                Metrics.greedyFallbacks.increment();
+                return greedy.plan(initialPos, finalPos);
+            }
+            LongLat nextPosition = position.nextPosition(greedy.goodAngle(position, waypoints.get(target)));
+            if (!greedy.isMoveGood(position, nextPosition)){
+                Metrics.greedyFallbacks.increment();
+                return greedy.plan(initialPos, finalPos);
+            }
+            movements.add(nextPosition);
+            position = nextPosition;
+        }
+        movements.add(position);
+        return movements;
+    }
+
+    /**
+     * Checks if a single move is legal, the same way the @GreedyPlanner does.
+     *
+     * @param initialPos the position the move starts from
+     * @param nextPos    the position the move ends at
+     * @return true if the move is legal and false if it is illegal
+     */
+    @Override
+    public boolean isMoveGood(LongLat initialPos, LongLat nextPos){
+        return greedy.isMoveGood(initialPos, nextPos);
+    }
+}
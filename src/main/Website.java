@@ -1,8 +1,16 @@
 package uk.ac.ed.inf;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -12,6 +20,7 @@ import com.mapbox.geojson.*;
 /**
  * The class website, which generates all the information needed to deliver each order, using the
  * methods from the @Http client class.\
+ * In local mode the same files are read from a copy of the 'website' folder by @LocalSite.
  * It produces the location where each item from the order must be collected, the location where
  * the order must be delivered, the price of the order, and the no-fly zone's perimeter.
  */
@@ -26,6 +35,44 @@ public class Website {
      * The website's port.
      */
     public final String port;
+    /**
+     * The maximum number of "ThreeWords" locations kept in @positionCache.
+     */
+    static final int positionCacheSize = 1024;
+    /**
+     * Every food item on the menus with the shop that sells it and its price. It is loaded
+     * the first time it is needed and then reused for every order.
+     */
+    private HashMap<String, menuItem> menuIndex;
+    /**
+     * The "ThreeWords" locations that have already been found.
+     */
+    private final LruCache<String, LongLat> positionCache = new LruCache<>(positionCacheSize);
+    /**
+     * The number of times menus.json has been downloaded and parsed.
+     */
+    private final AtomicLong menuLoads = new AtomicLong();
+    /**
+     * The number of "ThreeWords" locations found in @positionCache.
+     */
+    private final AtomicLong positionHits = new AtomicLong();
+    /**
+     * The number of "ThreeWords" locations that had to be requested from the webserver.
+     */
+    private final AtomicLong positionMisses = new AtomicLong();
+    /**
+     * The number of "ThreeWords" locations found in @geocodeStore.
+     */
+    private final AtomicLong storeHits = new AtomicLong();
+    /**
+     * The file where the "ThreeWords" locations are kept between runs, it can be null.
+     */
+    private final GeocodeStore geocodeStore;
+    /**
+     * The folder the files are read from (see @LocalSite), or null to request them from the
+     * webserver.
+     */
+    private final Path site;
 
     /**
      * Class constructor for the Website.
@@ -35,8 +82,36 @@ public class Website {
      */
 //class constructor
     public Website(String name, String por){
+        this(name, por, null);
+    }
+
+    /**
+     * Class constructor for the Website that keeps the "ThreeWords" locations in a @GeocodeStore.
+     *
+     * @param name         the machine name
+     * @param por          the website port
+     * @param geocodeStore the store of "ThreeWords" locations, or null to always use the webserver
+     */
+    public Website(String name, String por, GeocodeStore geocodeStore){
         this.machineName = name;
         this.port = por;
+        this.geocodeStore = geocodeStore;
+        this.site = null;
+    }
+
+    /**
+     * Class constructor for the Website in local mode: every file is read from a copy of the
+     * 'website' folder with @LocalSite instead of being requested from the webserver.
+     * @machineName and @port are null.
+     *
+     * @param site         the folder with the website's files
+     * @param geocodeStore the store of "ThreeWords" locations, or null to always read the files
+     */
+    public Website(Path site, GeocodeStore geocodeStore){
+        this.machineName = null;
+        this.port = null;
+        this.geocodeStore = geocodeStore;
+        this.site = site;
     }
 
     /**
@@ -66,14 +141,103 @@ public class Website {
         }
     }
 
+    /**
+     * The inner class menuItem, which stores the shop that sells a food item and its price.
+     */
+    public static class menuItem{
+        /**
+         * The "ThreeWords" location of the shop.
+         */
+        public final String location;
+        /**
+         * The price in pence.
+         */
+        public final int pence;
+
+        /**
+         * Class constructor of menuItem.
+         *
+         * @param location the shop's location
+         * @param pence    the price of the item
+         */
+        public menuItem(String location, int pence){
+            this.location = location;
+            this.pence = pence;
+        }
+    }
+
+    /**
+     * This method parses the menus.json file (using the @shop class) into an index of every
+     * food item. If two shops sell the same item, the first shop in the file is kept.
+     *
+     * @param menus the contents of menus.json
+     * @return the index from the food item's name to its shop and price
+     */
+    static HashMap<String, menuItem> parseMenus(String menus){
+        //creates a parser template
+        Type listType = new TypeToken<ArrayList<shop>>() {}.getType();
+        //parses the menu.json file into a list of shop class objects
+        ArrayList<shop> shopList = new Gson().fromJson(menus, listType);
+
+        HashMap<String, menuItem> index = new HashMap<>();
+        for (shop shop : shopList){
+            for (shop.food food : shop.getMenu()){
+                index.putIfAbsent(food.getItem(), new menuItem(shop.getLocation(), food.getPence()));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Getter that returns the index of every food item on the menus, downloading and parsing
+     * menus.json (using the @Http class' method @getMenus) only the first time.
+     *
+     * @return the index from the food item's name to its shop and price
+     */
+    public synchronized HashMap<String, menuItem> getMenuIndex(){
+        if (menuIndex == null){
+            menuIndex = parseMenus(site != null ? LocalSite.read(site, LocalSite.menus)
+                    : Http.getMenus(this.machineName, this.port));
+            menuLoads.incrementAndGet();
+            Metrics.menuLoads.increment();
+        }
+        return menuIndex;
+    }
+
+    /**
+     * This method loads the menu index without blocking, if it isn't loaded yet.
+     *
+     * @return the future menu index, which completes with null if the request fails
+     */
+    private CompletableFuture<HashMap<String, menuItem>> getMenuIndexAsync(){
+        synchronized (this){
+            if (menuIndex != null){
+                return CompletableFuture.completedFuture(menuIndex);
+            }
+        }
+        CompletableFuture<String> response = site != null ? LocalSite.readAsync(site, LocalSite.menus)
+                : Http.getResponseAsync(Http.menusUrl(this.machineName, this.port));
+        return response
+                .thenApply(menus -> {
+                    HashMap<String, menuItem> index = parseMenus(menus);
+                    synchronized (this){
+                        if (menuIndex == null){
+                            menuIndex = index;
+                            menuLoads.incrementAndGet();
+                            Metrics.menuLoads.increment();
+                        }
+                        return menuIndex;
+                    }
+                })
+                .exceptionally(error -> null);
+    }
+
     /**
      * Method that given a Delivery, returns an @info object with all the
      * delivery's pick-up and drop-off locations and the delivery's cost.
      *
-     * It does so by finding throughout all the menus ( gotten by parsing,
-     * using the @shop class, the menus.json file gotten from the web using
-     * the @Http class' method @getMenus) the items that match those in
-     * the order. Then it returns
+     * It does so by looking up every item of the order in the menu index given
+     * by @getMenuIndex, so after the first order no network calls are made.
      *
      * @param delivery a list of strings that compose the delivery order's items
      * @return the info object with all the delivery's pick-up and drop-off
@@ -81,35 +245,18 @@ public class Website {
      */
 //returns the cost and the pickup locations of a delivery
     public info getInfo(ArrayList<String> delivery){
-
-        //gets the menu.json file from the server
-        String menus = Http.getMenus(this.machineName, this.port);
-        //creates a parser template
-        Type listType = new TypeToken<ArrayList<shop>>() {}.getType();
-        //parses the menu.json file into a list of shop class objects
-        ArrayList<shop> shopList = new Gson().fromJson(menus, listType);
+        HashMap<String, menuItem> index = getMenuIndex();
 
         //Default cost of deliveries
         int cost = 50;
         ArrayList<String> locations = new ArrayList<>();
 
-        //for each item in delivery, it loops throughout all the shops and items in menus
         for (String deliver : delivery){
-            boolean Break = false;
-            for (shop shop : shopList){
-                ArrayList<shop.food> menu = shop.getMenu();
-                for (shop.food food : menu){
-                    if (food.getItem().equals(deliver)){
-                        //when item is found on menu, it adds the price to the delivery cost
-                        cost = cost + food.getPence();
-                        locations.add(shop.getLocation());
-                        Break = true;
-                        break;
-                    }
-                }
-                if (Break){
-                    break;
-                }
+            menuItem item = index.get(deliver);
+            if (item != null){
+                //when item is found on menu, it adds the price to the delivery cost
+                cost = cost + item.pence;
+                locations.add(item.location);
             }
         }
         return new info(cost, locations);
@@ -120,57 +267,307 @@ public class Website {
      * the coordinates that correspond to those "Three words", and parses (using
      * the @coordinates class) the document to find and return the @LongLat location.
      *
+     * Locations already found are kept in @positionCache, so every "ThreeWords" is only
+     * requested from the webserver once while it stays in the cache. If there is a @geocodeStore,
+     * it is checked before the webserver, and every location the webserver returns is written to it.
+     *
      * @param words the 3 words that compose a "ThreeWords" location
      * @return the @LongLat location that corresponds to those "ThreeWords"
      */
 //Gets the coordinates from the 3 words.
     public LongLat getPosition(String words){
+        LongLat position = findKnownPosition(words);
+        if (position != null){
+            return position;
+        }
+        positionMisses.incrementAndGet();
+        Metrics.positionMisses.increment();
         String[] wordsArray = words.split("\\.");
-        String coords = Http.getCoordinates(this.machineName, this.port, wordsArray[0], wordsArray[1], wordsArray[2]);
-        coordinates coordinat = new Gson().fromJson(coords, coordinates.class);
+        String coords = site != null ? LocalSite.read(site, LocalSite.coordinates(wordsArray[0], wordsArray[1], wordsArray[2]))
+                : Http.getCoordinates(this.machineName, this.port, wordsArray[0], wordsArray[1], wordsArray[2]);
+        position = parsePosition(coords);
+        rememberPosition(words, position);
+        return position;
+    }
 
+    /**
+     * This method looks for the location of a "ThreeWords" in @positionCache and then in the
+     * @geocodeStore, without making any network calls.
+     *
+     * @param words the 3 words that compose a "ThreeWords" location
+     * @return the @LongLat location, or null if it isn't known yet
+     */
+    private LongLat findKnownPosition(String words){
+        synchronized (positionCache){
+            LongLat cached = positionCache.get(words);
+            if (cached != null){
+                positionHits.incrementAndGet();
+                Metrics.positionHits.increment();
+                return cached;
+            }
+        }
+        LongLat stored = geocodeStore == null ? null : geocodeStore.get(words);
+        if (stored != null){
+            storeHits.incrementAndGet();
+            Metrics.storeHits.increment();
+            synchronized (positionCache){
+                positionCache.put(words, stored);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * This method keeps the location the webserver returned for a "ThreeWords" in @positionCache
+     * and in the @geocodeStore.
+     *
+     * @param words    the 3 words that compose a "ThreeWords" location
+     * @param position the @LongLat location
+     */
+    private void rememberPosition(String words, LongLat position){
+        if (geocodeStore != null){
+            try {
+                geocodeStore.put(words, position);
+            } catch (IOException e) {
+                System.err.println("Geocode store IO Exception Error: \n" + e);
+            }
+        }
+        synchronized (positionCache){
+            positionCache.put(words, position);
+        }
+    }
+
+    /**
+     * This method requests the location of a "ThreeWords" without blocking, using at most one
+     * of the permits so that only a limited number of requests are in flight at the same time.
+     *
+     * @param words   the 3 words that compose a "ThreeWords" location
+     * @param permits the permits that limit the requests in flight
+     * @return the future @LongLat location, which completes with null if the request fails
+     */
+    private CompletableFuture<LongLat> getPositionAsync(String words, Semaphore permits){
+        LongLat known = findKnownPosition(words);
+        if (known != null){
+            return CompletableFuture.completedFuture(known);
+        }
+        String[] wordsArray = words.split("\\.");
+        permits.acquireUninterruptibly();
+        positionMisses.incrementAndGet();
+        Metrics.positionMisses.increment();
+        CompletableFuture<String> response;
+        try {
+            response = site != null ? LocalSite.readAsync(site, LocalSite.coordinates(wordsArray[0], wordsArray[1], wordsArray[2]))
+                    : Http.getResponseAsync(Http.coordinatesUrl(this.machineName, this.port, wordsArray[0], wordsArray[1], wordsArray[2]));
+        } catch (RuntimeException e) {
+            permits.release();
+            return CompletableFuture.completedFuture(null);
+        }
+        return response
+                .whenComplete((body, error) -> permits.release())
+                .thenApply(body -> {
+                    LongLat position = parsePosition(body);
+                    rememberPosition(words, position);
+                    return position;
+                })
+                .exceptionally(error -> null);
+    }
+
+    /**
+     * This method loads the menu index and the locations of the given deliveries and of the
+     * shops that sell the given items, sending all the requests at once (at most
+     * @Http.maxConcurrentRequests at the same time) instead of one after the other. Afterwards
+     * @getInfo and @getPosition find everything in memory.
+     *
+     * If a request fails its location is simply not loaded, so it will be requested again (and the
+     * error reported) by @getPosition.
+     *
+     * @param deliveries the "ThreeWords" of the delivery locations
+     * @param items      the food items of the orders
+     */
+    public void prefetch(Collection<String> deliveries, Collection<String> items){
+        Semaphore permits = new Semaphore(Http.maxConcurrentRequests);
+        CompletableFuture<HashMap<String, menuItem>> menus = getMenuIndexAsync();
+        ArrayList<CompletableFuture<LongLat>> lookups = new ArrayList<>();
+        HashSet<String> requested = new HashSet<>();
+        for (String words : deliveries){
+            if (requested.add(words)){
+                lookups.add(getPositionAsync(words, permits));
+            }
+        }
+        HashMap<String, menuItem> index = menus.join();
+        if (index != null){
+            for (String item : items){
+                menuItem menuItem = index.get(item);
+                if (menuItem != null && requested.add(menuItem.location)){
+                    lookups.add(getPositionAsync(menuItem.location, permits));
+                }
+            }
+        }
+        CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * This method parses a "ThreeWords" details.json document into its @LongLat location.
+     *
+     * @param coords the contents of the details.json document
+     * @return the @LongLat location
+     */
+    static LongLat parsePosition(String coords){
+        coordinates coordinat = new Gson().fromJson(coords, coordinates.class);
         return new LongLat(coordinat.getCoordinates().getLng(), coordinat.getCoordinates().getLat());
     }
 
+    /**
+     * Getter that returns how many times menus.json has been downloaded and parsed.
+     *
+     * @return the number of loads
+     */
+    public long getMenuLoads() {
+        return menuLoads.get();
+    }
+
+    /**
+     * Getter that returns how many "ThreeWords" locations were found in the cache.
+     *
+     * @return the number of hits
+     */
+    public long getPositionHits() {
+        return positionHits.get();
+    }
+
+    /**
+     * Getter that returns how many "ThreeWords" locations were found in the @geocodeStore.
+     *
+     * @return the number of hits
+     */
+    public long getStoreHits() {
+        return storeHits.get();
+    }
+
+    /**
+     * This method forgets the location of a "ThreeWords", both in the cache and in the
+     * @geocodeStore, so that the next time it is needed it is requested from the webserver.
+     *
+     * @param words the 3 words that compose a "ThreeWords" location
+     */
+    public void invalidatePosition(String words){
+        synchronized (positionCache){
+            positionCache.remove(words);
+        }
+        if (geocodeStore != null){
+            try {
+                geocodeStore.invalidate(words);
+            } catch (IOException e) {
+                System.err.println("Geocode store IO Exception Error: \n" + e);
+            }
+        }
+    }
+
+    /**
+     * Getter that returns how many "ThreeWords" locations had to be requested from the webserver.
+     *
+     * @return the number of misses
+     */
+    public long getPositionMisses() {
+        return positionMisses.get();
+    }
+
     /**
      * This method, uses the @getBuildings method from the @Http class to get the
      * no-fly-zones.geojson document. It then uses the built-in methods in the geojson class
      * to parse out all the different no-fly areas.
      *
-     * It then will decompose every no-fly zone polygon into all the different lines that form it,
-     * returning them as @LongLat.line objects.
+     * @return the array list with every no-fly zone's polygon, as a list of @LongLat corners
+     */
+    public ArrayList<ArrayList<LongLat>> getNoFlyZones(){
+        return parseNoFlyZones(site != null ? LocalSite.read(site, LocalSite.buildings)
+                : Http.getBuildings(this.machineName, this.port));
+    }
+
+    /**
+     * This method parses a no-fly-zones.geojson document into the corners of every no-fly zone.
      *
-     * @return the array list with the @LongLat.line objects that represent the lines that form
-     * all the different no-fly-zone's polygons
+     * @param gsonArray the contents of the no-fly-zones.geojson document
+     * @return the array list with every no-fly zone's polygon, as a list of @LongLat corners
      */
-    public ArrayList<LongLat.line> getNoFlyPerimeter(){
-        String gsonArray = Http.getBuildings(this.machineName, this.port);
+    static ArrayList<ArrayList<LongLat>> parseNoFlyZones(String gsonArray){
         FeatureCollection fc = FeatureCollection.fromJson(gsonArray);
         List<Feature> buildings = fc.features();
-        ArrayList<List<Point>> polygons = new ArrayList<>();
+        ArrayList<ArrayList<LongLat>> zones = new ArrayList<>();
         assert buildings != null;
         for (Feature f : buildings){
             assert f.geometry() != null;
-            polygons.add(((Polygon)f.geometry()).coordinates().get(0));
+            ArrayList<LongLat> zone = new ArrayList<>();
+            for (Point corner : ((Polygon)f.geometry()).coordinates().get(0)){
+                zone.add(new LongLat(corner.longitude(),corner.latitude()));
+            }
+            zones.add(zone);
         }
+        return zones;
+    }
+
+    /**
+     * This method decomposes every no-fly zone polygon (given by @getNoFlyZones) into all the
+     * different lines that form it, returning them as @LongLat.line objects.
+     *
+     * @return the array list with the @LongLat.line objects that represent the lines that form
+     * all the different no-fly-zone's polygons
+     */
+    public ArrayList<LongLat.line> getNoFlyPerimeter(){
+        return getNoFlyPerimeter(getNoFlyZones());
+    }
+
+    /**
+     * This method decomposes every no-fly zone polygon into all the different lines that form it,
+     * returning them as @LongLat.line objects.
+     *
+     * @param zones the no-fly zone's polygons
+     * @return the array list with the @LongLat.line objects that represent the lines that form
+     * all the different no-fly-zone's polygons
+     */
+    public static ArrayList<LongLat.line> getNoFlyPerimeter(ArrayList<ArrayList<LongLat>> zones){
         ArrayList<LongLat.line> perimeter = new ArrayList<>();
 
-        for (List<Point> polygon :polygons){
-            Point initialPos = polygon.get(0);
-            Point previous = initialPos;
+        for (ArrayList<LongLat> polygon : zones){
+            LongLat initialPos = polygon.get(0);
+            LongLat previous = initialPos;
             for (int p = 1; p<polygon.size(); p++){
-                Point corner = polygon.get(p);
-                LongLat start = new LongLat(previous.longitude(),previous.latitude());
-                LongLat end = new LongLat(corner.longitude(),corner.latitude());
-                perimeter.add(new LongLat.line(start,end));
+                LongLat corner = polygon.get(p);
+                perimeter.add(new LongLat.line(previous,corner));
                 previous = corner;
             }
-            LongLat finalStart = new LongLat(previous.longitude(),previous.latitude());
-            LongLat finalEnd = new LongLat(initialPos.longitude(),initialPos.latitude());
-            perimeter.add(new LongLat.line(finalStart,finalEnd));
+            perimeter.add(new LongLat.line(previous,initialPos));
         }
         return perimeter;
     }
-}
 
+    /**
+     * This method, uses the @getLandmarks method from the @Http class to get the
+     * landmarks.geojson document, and parses the location of every landmark.
+     *
+     * @return the array list with the @LongLat location of every landmark
+     */
+    public ArrayList<LongLat> getLandmarks(){
+        return parseLandmarks(site != null ? LocalSite.read(site, LocalSite.landmarks)
+                : Http.getLandmarks(this.machineName, this.port));
+    }
 
+    /**
+     * This method parses a landmarks.geojson document into the location of every landmark.
+     *
+     * @param gsonArray the contents of the landmarks.geojson document
+     * @return the array list with the @LongLat location of every landmark
+     */
+    static ArrayList<LongLat> parseLandmarks(String gsonArray){
+        FeatureCollection fc = FeatureCollection.fromJson(gsonArray);
+        List<Feature> landmarks = fc.features();
+        ArrayList<LongLat> locations = new ArrayList<>();
+        assert landmarks != null;
+        for (Feature f : landmarks){
+            assert f.geometry() != null;
+            Point point = (Point)f.geometry();
+            locations.add(new LongLat(point.longitude(),point.latitude()));
+        }
+        return locations;
+    }
+}
@@ -3,8 +3,15 @@ package uk.ac.ed.inf;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Date;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -20,4 +27,67 @@ public class AppTest {
         trial.flightPlanner();
         trial.gsonDocGenerator();
     }
+
+    @Test
+    public void twoDaysSideBySide() {
+        PlanningContext context = PlanningContext.load(new Website("localhost", "80"));
+        List<LocalDate> days = Arrays.asList(LocalDate.of(2022, 11, 11), LocalDate.of(2022, 12, 12));
+        List<PlanState> states = new BatchPlanner(context, "localhost", "1527").planDays(days, 2);
+        List<PlanState> again = new BatchPlanner(context, "localhost", "1527").planDays(days.subList(1, 2), 1);
+        assertEquals(LocalDate.of(2022, 11, 11), states.get(0).getDate());
+        assertEquals(again.get(0).getMovesLeft(), states.get(1).getMovesLeft());
+        assertEquals(again.get(0).getDrone(0).getFlightpath().size(), states.get(1).getDrone(0).getFlightpath().size());
+    }
+
+    @Test
+    public void wayBackStartsAfterTheLastOrderDelivered() throws IOException {
+        Path home = BatchPlannerTest.copyDatabase();
+        ApacheDB apacheData = new ApacheDB(ApacheDB.embeddedUrl(home), true, false);
+        try {
+            PlanningContext context = PlanningContext.load(new Website(Paths.get("website"), null));
+            LocalDate date = LocalDate.of(2023, 12, 12);
+            //a route with every order of a busy day, so some are skipped
+            App probe = new App(context, apacheData, date);
+            Database theDatabase = probe.getState().getDatabase();
+            ArrayList<Database.row> all = new ArrayList<>();
+            for (int i = 0; i < theDatabase.getSize(); i++){
+                all.add(theDatabase.getDataTableRow(i));
+            }
+            probe.getState().getDrone(0).setRoute(all);
+            probe.flightPlanner();
+            HashSet<String> delivered = new HashSet<>();
+            for (int i = 0; i < probe.getState().getDelivered(); i++){
+                delivered.add(probe.getState().getDrone(0).getDeliveredOrder(i).getNo());
+            }
+            //the orders delivered, and last an order that was skipped
+            ArrayList<Database.row> route = new ArrayList<>();
+            Database.row skipped = null;
+            for (Database.row row : all){
+                if (delivered.contains(row.getNo())){
+                    route.add(row);
+                } else if (skipped == null){
+                    skipped = row;
+                }
+            }
+            assertNotNull(skipped);
+            route.add(skipped);
+            App day = new App(context, apacheData, date);
+            DroneState drone = day.getState().getDrone(0);
+            drone.setRoute(route);
+            day.flightPlanner();
+            assertEquals(delivered.size(), drone.getDelivered());
+            LongLat previous = null;
+            for (FlightPath.cursor point = drone.getFlightpath().cursor(); point.next(); ){
+                LongLat position = new LongLat(point.longitude, point.latitude);
+                if (previous != null){
+                    assertTrue(previous.distanceTo(position) <= LongLat.step + 1e-12);
+                }
+                previous = position;
+            }
+            assertTrue(previous.closeTo(drone.getHome()));
+        } finally {
+            apacheData.close();
+            BatchPlannerTest.deleteDatabase(home);
+        }
+    }
 }
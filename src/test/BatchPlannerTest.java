@@ -0,0 +1,103 @@
+package uk.ac.ed.inf;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class BatchPlannerTest {
+
+    private Path home;
+    private String url;
+
+    //copies the checked-in database, which only has the orders and none of the output tables,
+    //into a new temporary folder
+    static Path copyDatabase() throws IOException {
+        Path home = Files.createTempDirectory("ilp-batch");
+        Path source = Paths.get("database", "derbyDB");
+        try (Stream<Path> files = Files.walk(source)){
+            for (Path file : (Iterable<Path>) files::iterator){
+                Files.copy(file, home.resolve("derbyDB").resolve(source.relativize(file).toString()));
+            }
+        }
+        return home;
+    }
+
+    //shuts down a copy made by copyDatabase and deletes its folder
+    static void deleteDatabase(Path home) throws IOException {
+        try {
+            DriverManager.getConnection(ApacheDB.embeddedUrl(home) + ";shutdown=true");
+        } catch (SQLException e) {
+            //Derby reports a database that was shut down with the state 08006, and one that
+            //was never opened with XJ004
+            assertTrue(e.getSQLState(), e.getSQLState().equals("08006") || e.getSQLState().equals("XJ004"));
+        }
+        try (Stream<Path> files = Files.walk(home)){
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator){
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        home = copyDatabase();
+        url = ApacheDB.embeddedUrl(home);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        deleteDatabase(home);
+    }
+
+    private int count(Connection conn, String table, LocalDate date) throws SQLException {
+        try (PreparedStatement count = conn.prepareStatement("select count(*) from " + table + " where deliveryDate = (?)")){
+            count.setDate(1, java.sql.Date.valueOf(date));
+            ResultSet rs = count.executeQuery();
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void batchRunsOnAFreshDatabase() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url)){
+            assertFalse(conn.getMetaData().getTables(null, null, "DELIVERIES", null).next());
+            assertFalse(conn.getMetaData().getTables(null, null, "FLIGHTPATH", null).next());
+        }
+        PlanningContext context = PlanningContext.load(new Website(Paths.get("website"), null));
+        BatchPlanner batch = new BatchPlanner(context, url, home);
+        List<LocalDate> dates = List.of(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 2, 2));
+        List<PlanState> states = batch.planDays(dates, 2);
+        try (Connection conn = DriverManager.getConnection(url)){
+            for (int i = 0; i < dates.size(); i++){
+                PlanState state = states.get(i);
+                assertNotNull(state);
+                assertTrue(state.getDelivered() > 0);
+                assertEquals(state.getDelivered(), count(conn, ApacheDB.datedDeliveries, dates.get(i)));
+                assertEquals(state.getDrone(0).getDeliveredEnd(state.getDelivered() - 1), count(conn, ApacheDB.datedFlightpath, dates.get(i)));
+                assertTrue(Files.exists(home.resolve("drone-" + state.getFileDate() + ".geojson")));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingDatabaseIsReported() {
+        new ApacheDB(ApacheDB.embeddedUrl(home.resolve("missing")), false, false);
+    }
+}
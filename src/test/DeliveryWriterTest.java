@@ -0,0 +1,53 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class DeliveryWriterTest {
+
+    @Test(timeout = 20000)
+    public void uncheckedErrorsReachTheCaller() throws SQLException {
+        ApacheDB failing = new ApacheDB("jdbc:derby:memory:deliveryWriterTest;create=true", true, false){
+            @Override
+            void addFlightpath(String orderNo, FlightPath moves, LongLat initPos, int droneId) {
+                throw new IllegalStateException("Corrupt flightpath of order " + orderNo);
+            }
+        };
+        try {
+            Database database = new Database(new Website(Paths.get("website"), null));
+            Database.row row = database.new row("1a2b3c4d", "looks.clouds.daring", new ArrayList<>());
+            FlightPath moves = new FlightPath();
+            moves.add(row.getDeliverTo());
+            SQLException error = null;
+            //far more orders than the queue holds, so the writer would block if its thread had died
+            DeliveryWriter writer = new DeliveryWriter(failing, 2);
+            try {
+                for (int i = 0; i < 50; i++){
+                    writer.write(row, moves, PlanningContext.appletonTower);
+                }
+            } catch (SQLException e) {
+                error = e;
+            }
+            try {
+                writer.close();
+            } catch (SQLException e) {
+                error = error == null ? e : error;
+            }
+            assertNotNull(error);
+            assertTrue(error.getCause() instanceof IllegalStateException);
+            //the day was rolled back
+            try (ResultSet rows = failing.statement.executeQuery("select count(*) from deliveries")){
+                assertTrue(rows.next());
+                assertEquals(0, rows.getInt(1));
+            }
+        } finally {
+            failing.close();
+        }
+    }
+}
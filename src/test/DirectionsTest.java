@@ -0,0 +1,41 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DirectionsTest {
+
+    @Test
+    public void tableMatchesTrigonometry() {
+        for (int angle = -360; angle <= 720; angle += 10){
+            double radians = Math.toRadians(angle);
+            assertEquals(Math.cos(radians) * LongLat.step, Directions.dx(angle), 1e-15);
+            assertEquals(Math.sin(radians) * LongLat.step, Directions.dy(angle), 1e-15);
+        }
+    }
+
+    @Test
+    public void nearestIsTheClosestDirection() {
+        Random random = new Random(5);
+        for (int i = 0; i < 100000; i++){
+            double dx = random.nextGaussian();
+            double dy = random.nextGaussian();
+            double degrees = Math.toDegrees(Math.atan2(dy, dx));
+            int expected = Math.floorMod((int) Math.round(degrees / 10) * 10, 360);
+            if (Math.abs(Math.abs(degrees % 10) - 5) > 1e-6){
+                assertEquals(expected, Directions.nearest(dx, dy));
+            }
+        }
+    }
+
+    @Test
+    public void samePointHovers() {
+        LongLat point = new LongLat(-3.186874, 55.944494);
+        assertEquals(Directions.hover, point.getAngle(point));
+        assertEquals(90, point.getAngle(point.nextPosition(90)));
+        assertEquals(270, point.getAngle(point.nextPosition(-90)));
+    }
+}
@@ -0,0 +1,43 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FleetOptimizerTest {
+
+    @Test
+    public void routesAreDisjointAndFitEveryBattery() {
+        Random random = new Random(5);
+        for (int day = 0; day < 10; day++){
+            int orders = 30;
+            RouteOptimizer problem = RouteOptimizerTest.randomProblem(random, orders, 0);
+            int[] budgets = {200 + random.nextInt(200), 200 + random.nextInt(200), 100};
+            int[][] routes = new FleetOptimizer(problem, budgets).solve(200, 60_000);
+            int[] all = IntStream.range(0, orders).toArray();
+            boolean[] taken = new boolean[orders];
+            for (int drone = 0; drone < budgets.length; drone++){
+                assertTrue(problem.subset(all, budgets[drone]).cost(routes[drone]) >= 0);
+                for (int order : routes[drone]){
+                    assertFalse(taken[order]);
+                    taken[order] = true;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void moreDronesNeverCollectLess() {
+        Random random = new Random(6);
+        for (int day = 0; day < 10; day++){
+            RouteOptimizer problem = RouteOptimizerTest.randomProblem(random, 30, 300);
+            int single = problem.value(problem.solve(200, 60_000));
+            FleetOptimizer fleet = new FleetOptimizer(problem, new int[]{300, 300});
+            int pair = fleet.value(fleet.solve(200, 60_000));
+            assertTrue(pair >= single);
+        }
+    }
+}
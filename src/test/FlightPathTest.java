@@ -0,0 +1,67 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FlightPathTest {
+
+    @Test
+    public void positionsAreDecodedExactly() {
+        Random random = new Random(8);
+        ArrayList<LongLat> positions = new ArrayList<>();
+        LongLat position = new LongLat(-3.186874, 55.944494);
+        positions.add(position);
+        for (int i = 0; i < 2000; i++){
+            int choice = random.nextInt(20);
+            if (choice == 0){
+                position = new LongLat(-3.19 + random.nextDouble() * 0.006, 55.943 + random.nextDouble() * 0.003);
+            } else if (choice == 1){
+                position = position.nextPosition(Directions.hover);
+            } else {
+                position = position.nextPosition(10 * random.nextInt(36) - 180);
+            }
+            positions.add(position);
+        }
+
+        FlightPath path = new FlightPath(positions);
+        assertEquals(positions.size(), path.size());
+        int i = 0;
+        for (LongLat decoded : path){
+            assertEquals(positions.get(i).longitude, decoded.longitude, 0);
+            assertEquals(positions.get(i).latitude, decoded.latitude, 0);
+            i++;
+        }
+        for (int k = 1; k < positions.size(); k += 7){
+            assertEquals(positions.get(k).longitude, path.get(k).longitude, 0);
+            assertEquals(positions.get(k).latitude, path.get(k).latitude, 0);
+            assertEquals(positions.get(k - 1).getAngle(positions.get(k)), path.getAngle(k));
+        }
+    }
+
+    @Test
+    public void stepsAreStoredAsCodes() {
+        ArrayList<LongLat> positions = new ArrayList<>();
+        LongLat position = new LongLat(-3.186874, 55.944494);
+        positions.add(position);
+        for (int i = 0; i < 100; i++){
+            position = position.nextPosition(-10 * i);
+            positions.add(position);
+        }
+        positions.add(position);
+
+        FlightPath path = new FlightPath(positions);
+        assertEquals(1, path.getSegments());
+        assertEquals(Directions.hover, path.getAngle(path.size() - 1));
+        assertEquals(350, path.getAngle(2));
+
+        FlightPath copy = new FlightPath();
+        copy.addAll(path);
+        copy.add(new LongLat(-3.19, 55.945));
+        assertEquals(2, copy.getSegments());
+        assertEquals(-3.19, copy.getLast().longitude, 0);
+    }
+}
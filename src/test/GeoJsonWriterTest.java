@@ -0,0 +1,70 @@
+package uk.ac.ed.inf;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.LineString;
+import com.mapbox.geojson.Point;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GeoJsonWriterTest {
+
+    @Test
+    public void coordinatesAreWrittenLikeMapbox() throws IOException {
+        Random random = new Random(15);
+        ArrayList<Point> points = new ArrayList<>();
+        StringWriter text = new StringWriter();
+        try (GeoJsonWriter writer = new GeoJsonWriter(text)) {
+            writer.beginFeature();
+            for (int i = 0; i < 20000; i++){
+                double longitude;
+                double latitude;
+                if (i % 4 == 0){
+                    longitude = (random.nextDouble() - 0.5) * 360;
+                    latitude = (random.nextDouble() - 0.5) * 180;
+                } else if (i % 4 == 1){
+                    longitude = Math.round(-31900000 + random.nextInt(60000)) / 1e7;
+                    latitude = Math.round(559430000 + random.nextInt(30000)) / 1e7;
+                } else {
+                    longitude = -3.192473 + random.nextDouble() * 0.008;
+                    latitude = 55.942617 + random.nextDouble() * 0.004;
+                }
+                points.add(Point.fromLngLat(longitude, latitude));
+                writer.point(longitude, latitude);
+            }
+            points.add(Point.fromLngLat(0, -1));
+            writer.point(0, -1);
+            writer.endFeature();
+        }
+        String expected = FeatureCollection.fromFeature(Feature.fromGeometry(LineString.fromLngLats(points))).toJson();
+        assertEquals(expected, text.toString());
+    }
+
+    @Test
+    public void ordersAreWrittenAsFeatures() throws IOException {
+        FlightPath path = new FlightPath();
+        LongLat position = new LongLat(-3.186874, 55.944494);
+        path.add(position);
+        path.add(position.nextPosition(90));
+        StringWriter text = new StringWriter();
+        try (GeoJsonWriter writer = new GeoJsonWriter(text)) {
+            writer.beginFeature();
+            writer.points(path);
+            writer.endFeature("1ad5f1ff", 2400);
+            writer.beginFeature();
+            writer.point(-3.186874, 55.944494);
+        }
+        assertEquals("{\"type\":\"FeatureCollection\",\"features\":["
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":"
+                + "[[-3.186874,55.944494],[-3.186874,55.944644]]},"
+                + "\"properties\":{\"orderNo\":\"1ad5f1ff\",\"cost\":2400}},"
+                + "{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":"
+                + "[[-3.186874,55.944494]]},\"properties\":{}}]}", text.toString());
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class GeocodeStoreTest {
+
+    @Test
+    public void locationsSurviveReopeningAndInvalidation() throws IOException {
+        Path file = Files.createTempFile("geocodes", ".bin");
+        try {
+            GeocodeStore store = new GeocodeStore(file);
+            store.put("army.monks.grapes", new LongLat(-3.191594, 55.943658));
+            store.put("blocks.found.civic", new LongLat(-3.186199, 55.945734));
+            store.put("army.monks.grapes", new LongLat(-3.1916, 55.9437));
+            store.invalidate("blocks.found.civic");
+            store.close();
+
+            GeocodeStore reopened = new GeocodeStore(file);
+            assertEquals(1, reopened.getSize());
+            assertEquals(-3.1916, reopened.get("army.monks.grapes").longitude, 0);
+            assertEquals(55.9437, reopened.get("army.monks.grapes").latitude, 0);
+            assertNull(reopened.get("blocks.found.civic"));
+            reopened.clear();
+            reopened.close();
+
+            assertEquals(0, new GeocodeStore(file).getSize());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void invalidRecordsAreCompactedOnOpen() throws IOException {
+        Path file = Files.createTempFile("geocodes", ".bin");
+        try {
+            GeocodeStore store = new GeocodeStore(file);
+            for (int i = 0; i < 10; i++){
+                store.put("word" + i + ".monks.grapes", new LongLat(-3.19 + i * 1e-4, 55.94));
+            }
+            //three locations change, so their first records are left invalid
+            for (int i = 0; i < 3; i++){
+                store.put("word" + i + ".monks.grapes", new LongLat(-3.18, 55.95 + i * 1e-4));
+            }
+            store.close();
+
+            GeocodeStore kept = new GeocodeStore(file);
+            assertEquals(13, kept.getRecords());
+            for (int i = 3; i < 10; i++){
+                kept.invalidate("word" + i + ".monks.grapes");
+            }
+            kept.close();
+
+            //10 of the 13 records are invalid now
+            GeocodeStore compacted = new GeocodeStore(file);
+            assertEquals(3, compacted.getRecords());
+            assertEquals(3, compacted.getSize());
+            compacted.put("blocks.found.civic", new LongLat(-3.186199, 55.945734));
+            compacted.invalidate("word1.monks.grapes");
+            compacted.close();
+
+            GeocodeStore reopened = new GeocodeStore(file);
+            assertEquals(4, reopened.getRecords());
+            assertEquals(3, reopened.getSize());
+            assertEquals(55.95, reopened.get("word0.monks.grapes").latitude, 0);
+            assertEquals(55.9502, reopened.get("word2.monks.grapes").latitude, 0);
+            assertNull(reopened.get("word1.monks.grapes"));
+            assertEquals(-3.186199, reopened.get("blocks.found.civic").longitude, 0);
+            reopened.close();
+            assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
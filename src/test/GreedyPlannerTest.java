@@ -0,0 +1,81 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class GreedyPlannerTest {
+
+    private static ArrayList<LongLat.line> pocket(){
+        //a wall shaped like a 'C' open to the west, right between the drone and its destination
+        ArrayList<LongLat> wall = new ArrayList<>();
+        wall.add(new LongLat(-3.1870, 55.9448));
+        wall.add(new LongLat(-3.1855, 55.9448));
+        wall.add(new LongLat(-3.1855, 55.9438));
+        wall.add(new LongLat(-3.1870, 55.9438));
+        ArrayList<LongLat.line> perimeter = new ArrayList<>();
+        for (int i = 0; i + 1 < wall.size(); i++){
+            perimeter.add(new LongLat.line(wall.get(i), wall.get(i + 1)));
+        }
+        return perimeter;
+    }
+
+    private static void assertLegal(GreedyPlanner planner, ArrayList<LongLat> path, LongLat from, LongLat to){
+        assertSame(from, path.get(0));
+        for (int i = 1; i + 1 < path.size(); i++){
+            assertEquals(LongLat.step, path.get(i - 1).distanceTo(path.get(i)), 1e-12);
+            assertTrue(planner.isMoveGood(path.get(i - 1), path.get(i)));
+        }
+        assertSame(path.get(path.size() - 2), path.get(path.size() - 1));
+        assertTrue(path.get(path.size() - 1).closeTo(to));
+    }
+
+    @Test
+    public void straightLeg() {
+        GreedyPlanner planner = new GreedyPlanner(new ArrayList<>());
+        LongLat from = new LongLat(-3.1920, 55.9430);
+        LongLat to = new LongLat(-3.1850, 55.9460);
+        ArrayList<LongLat> path = planner.plan(from, to);
+        assertLegal(planner, path, from, to);
+        assertEquals((int) Math.ceil(from.distanceTo(to) / LongLat.step) + 1, path.size(), 2);
+    }
+
+    @Test
+    public void pocketIsLeftThroughADetour() {
+        GreedyPlanner planner = new GreedyPlanner(pocket());
+        LongLat from = new LongLat(-3.1890, 55.9443);
+        LongLat to = new LongLat(-3.1848, 55.9443);
+        ArrayList<LongLat> path = planner.plan(from, to);
+        assertLegal(planner, path, from, to);
+        boolean throughNorthEast = false;
+        for (LongLat position : path){
+            throughNorthEast |= position.closeTo(GreedyPlanner.northEast);
+        }
+        assertTrue(throughNorthEast);
+    }
+
+    @Test
+    public void constantStackDepth() throws InterruptedException {
+        GreedyPlanner planner = new GreedyPlanner(pocket());
+        LongLat from = new LongLat(-3.1890, 55.9443);
+        LongLat to = new LongLat(-3.1848, 55.9443);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        //a stack far too small for one frame per step
+        Thread thread = new Thread(null, () -> {
+            try {
+                for (int i = 0; i < 10; i++){
+                    planner.plan(from, to);
+                    planner.plan(to, from);
+                }
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        }, "small-stack", 64 * 1024);
+        thread.start();
+        thread.join();
+        assertNull(error.get());
+    }
+}
@@ -0,0 +1,91 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class LegCacheTest {
+
+    /**
+     * Flies straight to the end point, counting the legs it plans.
+     */
+    private static class straightPlanner implements PathPlanner {
+        private int planned;
+
+        @Override
+        public ArrayList<LongLat> plan(LongLat initialPos, LongLat finalPos) {
+            planned++;
+            ArrayList<LongLat> movements = new ArrayList<>();
+            movements.add(initialPos);
+            LongLat position = initialPos;
+            while (!position.closeTo(finalPos)){
+                position = position.nextPosition(position.getAngle(finalPos));
+                movements.add(position);
+            }
+            movements.add(position);
+            return movements;
+        }
+
+        @Override
+        public boolean isMoveGood(LongLat initialPos, LongLat nextPos) {
+            return true;
+        }
+    }
+
+    private static final LongLat tower = new LongLat(-3.186874, 55.944494);
+    private static final LongLat shop = new LongLat(-3.1912869215011597, 55.945535152517735);
+
+    @Test
+    public void exactLegsArePlannedOnce() {
+        straightPlanner planner = new straightPlanner();
+        LegCache cache = new LegCache(planner, 16);
+        long hits = Metrics.legHits.get();
+        long misses = Metrics.legMisses.get();
+        ArrayList<LongLat> first = cache.plan(tower, shop);
+        ArrayList<LongLat> second = cache.plan(tower, shop);
+        assertEquals(1, planner.planned);
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++){
+            assertEquals(first.get(i).longitude, second.get(i).longitude, 0);
+            assertEquals(first.get(i).latitude, second.get(i).latitude, 0);
+        }
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0);
+        if (Metrics.enabled){
+            assertEquals(hits + 1, Metrics.legHits.get());
+            assertEquals(misses + 1, Metrics.legMisses.get());
+        }
+    }
+
+    @Test
+    public void nearbyStartsReplayTheLeg() {
+        straightPlanner planner = new straightPlanner();
+        LegCache cache = new LegCache(planner, 16);
+        int moves = cache.plan(tower, shop).size();
+        LongLat nearby = new LongLat(tower.longitude + LongLat.step / 2, tower.latitude);
+        ArrayList<LongLat> replayed = cache.plan(nearby, shop);
+        assertEquals(1, planner.planned);
+        assertEquals(1, cache.getNearHits());
+        assertSame(nearby, replayed.get(0));
+        assertTrue(replayed.get(replayed.size() - 1).closeTo(shop));
+        assertTrue(replayed.size() <= moves);
+
+        LongLat far = new LongLat(tower.longitude + 2 * LongLat.step, tower.latitude);
+        cache.plan(far, shop);
+        assertEquals(2, planner.planned);
+    }
+
+    @Test
+    public void leastRecentlyUsedLegsAreEvicted() {
+        straightPlanner planner = new straightPlanner();
+        LegCache cache = new LegCache(planner, 1);
+        cache.plan(tower, shop);
+        cache.plan(shop, tower);
+        cache.plan(tower, shop);
+        assertEquals(3, planner.planned);
+        assertEquals(1, cache.getSize());
+    }
+}
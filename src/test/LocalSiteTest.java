@@ -0,0 +1,41 @@
+package uk.ac.ed.inf;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class LocalSiteTest {
+
+    private static final Path site = Paths.get("website");
+
+    @Test
+    public void localModeReadsWhatTheServerServes() throws IOException {
+        HttpServer server = LocalSite.serve(site, 0);
+        try {
+            Website served = new Website("localhost", String.valueOf(server.getAddress().getPort()));
+            Website local = new Website(site, null);
+            assertEquals(served.getMenuIndex().keySet(), local.getMenuIndex().keySet());
+            assertEquals(served.getNoFlyPerimeter().size(), local.getNoFlyPerimeter().size());
+            assertEquals(served.getLandmarks().size(), local.getLandmarks().size());
+            for (Website.menuItem item : local.getMenuIndex().values()){
+                LongLat expected = served.getPosition(item.location);
+                LongLat position = local.getPosition(item.location);
+                assertEquals(expected.longitude, position.longitude, 0);
+                assertEquals(expected.latitude, position.latitude, 0);
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void missingFilesFailWithoutStoppingTheApp() {
+        assertTrue(LocalSite.readAsync(site, LocalSite.coordinates("no", "such", "place")).isCompletedExceptionally());
+        assertTrue(LocalSite.readAsync(site, "../pom.xml").isCompletedExceptionally());
+    }
+}
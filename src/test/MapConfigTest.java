@@ -0,0 +1,83 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MapConfigTest {
+
+    private static final String confinement = "{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\","
+            + "\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[[10.0,50.01],[10.02,50.01],[10.02,50.0],[10.0,50.0],[10.0,50.01]]]},"
+            + "\"properties\":{\"home\":[10.01,50.005],\"maxMoves\":3000,\"detours\":[[10.005,50.0025],[10.015,50.0075]]}}]}";
+    private static final String empty = "{\"type\":\"FeatureCollection\",\"features\":[]}";
+
+    private static String read(String relative) throws IOException {
+        return Files.readString(Path.of(relative));
+    }
+
+    @Test
+    public void campusFilesMatchTheConstants() throws IOException {
+        MapConfig map = MapConfig.parse(read("testing/confinement-zone.geojson"),
+                read("website/buildings/no-fly-zones.geojson"), read("website/buildings/landmarks.geojson"));
+        assertEquals(LongLat.minLongitude, map.getMinLongitude(), 0);
+        assertEquals(LongLat.minLatitude, map.getMinLatitude(), 0);
+        assertEquals(LongLat.maxLongitude, map.getMaxLongitude(), 0);
+        assertEquals(LongLat.maxLatitude, map.getMaxLatitude(), 0);
+        assertSame(PlanningContext.appletonTower, map.getHome());
+        assertEquals(PlanningContext.maxMoves, map.getMaxMoves());
+        assertSame(GreedyPlanner.southWest, map.getSouthWest());
+        assertSame(GreedyPlanner.northEast, map.getNorthEast());
+        assertEquals(5, map.getNoFlyZones().size());
+        assertEquals(2, map.getLandmarks().size());
+    }
+
+    @Test
+    public void propertiesOverrideTheCampus() {
+        MapConfig map = MapConfig.parse(confinement, empty, empty);
+        assertEquals(10.0, map.getMinLongitude(), 0);
+        assertEquals(50.01, map.getMaxLatitude(), 0);
+        assertTrue(map.getHome().isEqual(new LongLat(10.01, 50.005)));
+        assertEquals(3000, map.getMaxMoves());
+        assertTrue(map.getSouthWest().isEqual(new LongLat(10.005, 50.0025)));
+        assertTrue(map.getNorthEast().isEqual(new LongLat(10.015, 50.0075)));
+        assertTrue(map.isConfined(10.0, 50.0));
+        assertTrue(map.isConfined(10.02, 50.01));
+        assertFalse(map.isConfined(10.0201, 50.005));
+        assertFalse(map.isConfined(PlanningContext.appletonTower));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void confinementZoneMustBeAPolygon() {
+        MapConfig.parse(empty, empty, empty);
+    }
+
+    @Test
+    public void plannersFlyInsideTheMap() {
+        ArrayList<LongLat> wall = new ArrayList<>();
+        wall.add(new LongLat(10.009, 50.002));
+        wall.add(new LongLat(10.011, 50.002));
+        wall.add(new LongLat(10.011, 50.008));
+        wall.add(new LongLat(10.009, 50.008));
+        wall.add(new LongLat(10.009, 50.002));
+        MapConfig parsed = MapConfig.parse(confinement, empty, empty);
+        MapConfig map = new MapConfig(parsed.getMinLongitude(), parsed.getMinLatitude(), parsed.getMaxLongitude(),
+                parsed.getMaxLatitude(), parsed.getHome(), parsed.getMaxMoves(), parsed.getSouthWest(),
+                parsed.getNorthEast(), List.of(wall), new ArrayList<>());
+        VisibilityGraphPlanner planner = new VisibilityGraphPlanner(map);
+        LongLat from = new LongLat(10.004, 50.005);
+        LongLat to = new LongLat(10.016, 50.005);
+        ArrayList<LongLat> path = planner.plan(from, to);
+        assertTrue(path.get(path.size() - 1).closeTo(to));
+        for (int i = 1; i < path.size(); i++){
+            assertTrue(map.isConfined(path.get(i)));
+            assertTrue(planner.isMoveGood(path.get(i - 1), path.get(i)));
+        }
+        assertFalse(planner.isMoveGood(new LongLat(10.0001, 50.005), new LongLat(9.9999, 50.005)));
+    }
+}
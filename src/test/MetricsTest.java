@@ -0,0 +1,53 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void bucketsKeepEveryValueWithinTheirPrecision() {
+        Random random = new Random(21);
+        for (int i = 0; i < 100000; i++){
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = Metrics.histogram.bucket(value);
+            long highest = Metrics.histogram.highest(bucket);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 16);
+            assertTrue(bucket == 0 || Metrics.histogram.highest(bucket - 1) < value);
+        }
+        assertEquals(Long.MAX_VALUE, Metrics.histogram.highest(Metrics.histogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentilesOfAKnownDistribution() {
+        Metrics.histogram histogram = new Metrics.histogram();
+        for (long value = 1; value <= 10000; value++){
+            histogram.add(value);
+        }
+        Metrics.summary summary = histogram.summarize();
+        assertEquals(10000, summary.count);
+        assertEquals(5000.5, summary.mean, 1e-9);
+        assertEquals(10000, summary.max);
+        assertEquals(5000, summary.p50, 5000 / 16.0);
+        assertEquals(9900, summary.p99, 9900 / 16.0);
+        assertTrue(summary.p999 <= summary.max);
+    }
+
+    @Test
+    public void snapshotIsValidJson() {
+        JsonObject json = JsonParser.parseString(Metrics.snapshot().toJson()).getAsJsonObject();
+        assertEquals(Metrics.enabled, json.get("enabled").getAsBoolean());
+        assertTrue(json.getAsJsonObject("counters").has("planner.intersectionTests"));
+        assertTrue(json.getAsJsonObject("counters").has("legs.misses"));
+        assertTrue(json.getAsJsonObject("counters").has("website.positionMisses"));
+        assertTrue(json.getAsJsonObject("rates").has("legs.hitRate"));
+        assertTrue(json.getAsJsonObject("rates").has("website.positionHitRate"));
+        assertTrue(json.getAsJsonObject("histograms").getAsJsonObject("planner.legPlanNanos").has("p99"));
+    }
+}
@@ -0,0 +1,122 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NoFlyZonesTest {
+
+    private static ArrayList<LongLat> square(double lng, double lat, double side){
+        ArrayList<LongLat> corners = new ArrayList<>();
+        corners.add(new LongLat(lng, lat));
+        corners.add(new LongLat(lng + side, lat));
+        corners.add(new LongLat(lng + side, lat + side));
+        corners.add(new LongLat(lng, lat + side));
+        corners.add(new LongLat(lng, lat));
+        return corners;
+    }
+
+    private static MapConfig campus(List<ArrayList<LongLat>> zones){
+        return MapConfig.campus(zones, new ArrayList<>());
+    }
+
+    @Test
+    public void inflatedZoneHoldsTheMargin() {
+        double margin = 0.5 * LongLat.step;
+        ArrayList<LongLat> zone = square(-3.19, 55.944, 0.0005);
+        ArrayList<LongLat> reversed = new ArrayList<>(zone);
+        Collections.reverse(reversed);
+        for (ArrayList<LongLat> corners : List.of(zone, reversed)){
+            NoFlyZones zones = new NoFlyZones(campus(List.of(corners)), margin);
+            //every corner becomes three, closed like a GeoJSON polygon
+            assertEquals(13, zones.getZones().get(0).size());
+            assertTrue(zones.contains(-3.19 - 0.99 * margin, 55.94425));
+            assertTrue(zones.contains(-3.18975, 55.9445 + 0.99 * margin));
+            assertTrue(zones.contains(-3.19 - 0.65 * margin, 55.944 - 0.65 * margin));
+            assertFalse(zones.contains(-3.19 - 1.01 * margin, 55.94425));
+            assertFalse(zones.contains(-3.19 - 0.71 * margin, 55.944 - 0.71 * margin));
+        }
+    }
+
+    @Test
+    public void mapsKeepTheirOwnMargin() {
+        MapConfig plain = campus(List.of(square(-3.19, 55.944, 0.0005)));
+        MapConfig wide = plain.withNoFlyMargin(0.5);
+        assertEquals(NoFlyZones.margin, plain.getNoFlyMargin(), 0);
+        assertEquals(0.5, wide.getNoFlyMargin(), 0);
+        assertEquals(plain.getNoFlyZones(), wide.getNoFlyZones());
+        double outside = 0.4 * LongLat.step;
+        assertFalse(new NoFlyZones(plain.withNoFlyMargin(0)).contains(-3.19 - outside, 55.94425));
+        assertTrue(new NoFlyZones(wide).contains(-3.19 - outside, 55.94425));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mapMarginCantBeNegative() {
+        campus(List.of(square(-3.19, 55.944, 0.0005))).withNoFlyMargin(-0.1);
+    }
+
+    @Test
+    public void noMarginJudgesMovesAsBefore() {
+        Random random = new Random(3);
+        ArrayList<ArrayList<LongLat>> polygons = new ArrayList<>();
+        for (int i = 0; i < 40; i++){
+            polygons.add(square(LongLat.minLongitude + random.nextDouble() * 0.008,
+                    LongLat.minLatitude + random.nextDouble() * 0.0035, random.nextDouble() * 0.0005));
+        }
+        NoFlyZones zones = new NoFlyZones(campus(polygons), 0);
+        ArrayList<LongLat.line> perimeter = Website.getNoFlyPerimeter(polygons);
+        for (int i = 0; i < 20000; i++){
+            LongLat start = new LongLat(LongLat.minLongitude + random.nextDouble() * 0.008,
+                    LongLat.minLatitude + random.nextDouble() * 0.0035);
+            LongLat end = start.nextPosition(10 * random.nextInt(36));
+            boolean linear = false;
+            for (LongLat.line l : perimeter){
+                linear |= LongLat.doesIntersect(start, end, l.getStartPoint(), l.getEndPoint());
+            }
+            assertEquals(linear, zones.crosses(start.longitude, start.latitude, end.longitude, end.latitude));
+            boolean inside = false;
+            for (ArrayList<LongLat> polygon : polygons){
+                inside |= VisibilityGraphPlanner.isInside(start, polygon);
+            }
+            assertEquals(inside, zones.contains(start));
+        }
+    }
+
+    @Test
+    public void droneFliesOutOfTheMargin() {
+        double margin = 0.5 * LongLat.step;
+        NoFlyZones zones = new NoFlyZones(campus(List.of(square(-3.19, 55.944, 0.0005))), margin);
+        LongLat close = new LongLat(-3.19 - 0.5 * margin, 55.94425);
+        assertTrue(zones.contains(close));
+        assertFalse(zones.crosses(close.longitude, close.latitude, close.longitude - LongLat.step, close.latitude));
+        assertTrue(zones.crosses(close.longitude, close.latitude, close.longitude + LongLat.step, close.latitude));
+        LongLat outside = new LongLat(-3.19 - 2 * margin, 55.94425);
+        assertTrue(zones.crosses(outside.longitude, outside.latitude, outside.longitude + 1.5 * margin, outside.latitude));
+    }
+
+    @Test
+    public void plannerKeepsClearOfTheWalls() {
+        double margin = 0.5 * LongLat.step;
+        ArrayList<LongLat> wall = square(-3.1890, 55.9435, 0.0004);
+        MapConfig map = campus(List.of(wall));
+        VisibilityGraphPlanner planner = new VisibilityGraphPlanner(map, new NoFlyZones(map, margin));
+        LongLat from = new LongLat(-3.1900, 55.9437);
+        LongLat to = new LongLat(-3.1878, 55.9437);
+        ArrayList<LongLat> path = planner.plan(from, to);
+        assertTrue(path.get(path.size() - 1).closeTo(to));
+        NoFlyZones inflated = new NoFlyZones(map, 0.99 * margin);
+        for (LongLat position : path){
+            assertFalse(inflated.contains(position));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void marginCantBeNegative() {
+        new NoFlyZones(campus(new ArrayList<>()), -LongLat.step);
+    }
+}
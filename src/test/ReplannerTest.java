@@ -0,0 +1,174 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplannerTest {
+
+    private static final Path site = Paths.get("website");
+    //a battery that holds about half of the orders
+    private static final int tight = PlanningContext.maxMoves / 6;
+
+    private PlanningContext context;
+    private ArrayList<Database.row> orders;
+
+    //an order for every "ThreeWords" location of the site, each with an item of another shop
+    @Before
+    public void loadOrders() throws IOException {
+        Website website = new Website(site, null);
+        context = PlanningContext.load(website);
+        ArrayList<shop> shops = new Gson().fromJson(LocalSite.read(site, LocalSite.menus),
+                new TypeToken<ArrayList<shop>>() {}.getType());
+        List<String> words = WebsiteTest.allWords();
+        Database database = new Database(website);
+        orders = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++){
+            shop shop = shops.get(i % shops.size());
+            ArrayList<String> items = new ArrayList<>(List.of(shop.getMenu().get(i % shop.getMenu().size()).getItem()));
+            orders.add(database.new row(String.format("%08x", i), words.get(i), items));
+        }
+    }
+
+    private DroneState drone(int budget) {
+        return new DroneState(1, budget, context.getMap().getHome(), new LegCache(context.getPlanner()));
+    }
+
+    private static boolean passesBy(FlightPath path, LongLat place) {
+        for (FlightPath.cursor point = path.cursor(); point.next(); ){
+            if (new LongLat(point.longitude, point.latitude).closeTo(place)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static HashSet<String> numbers(List<Database.row> rows) {
+        HashSet<String> numbers = new HashSet<>();
+        for (Database.row row : rows){
+            numbers.add(row.getNo());
+        }
+        return numbers;
+    }
+
+    private void assertFlyable(Replanner replanner, DroneState drone) {
+        FlightPath path = replanner.getPath();
+        assertTrue(path.size() <= drone.getMovesLeft());
+        assertTrue(path.getLast().closeTo(drone.getHome()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void orderCantBeAddedTwice() {
+        Replanner replanner = new Replanner(drone(PlanningContext.maxMoves), orders.subList(0, 4));
+        replanner.addOrder(orders.get(2));
+    }
+
+    @Test
+    public void onlyWaitingOrdersCanBeCancelled() {
+        DroneState drone = drone(PlanningContext.maxMoves);
+        drone.setRoute(orders.subList(0, 3));
+        Replanner replanner = new Replanner(drone, orders.subList(0, 3));
+        try {
+            replanner.cancelOrder("unknown");
+            fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        Database.row delivered = replanner.advance();
+        assertNotNull(delivered);
+        try {
+            replanner.cancelOrder(delivered.getNo());
+            fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void cancelledOrderLeavesTheRouteAndThePath() {
+        DroneState drone = drone(PlanningContext.maxMoves);
+        Replanner replanner = new Replanner(drone, new ArrayList<>());
+        for (Database.row row : orders.subList(0, 5)){
+            replanner.addOrder(row);
+        }
+        Database.row cancelled = replanner.getRoute().get(1);
+        assertTrue(passesBy(replanner.getPath(), cancelled.getDeliverTo()));
+        FlightPath path = replanner.cancelOrder(cancelled.getNo());
+        assertSame(replanner.getPath(), path);
+        assertFalse(numbers(replanner.getRoute()).contains(cancelled.getNo()));
+        assertFalse(numbers(replanner.getPending()).contains(cancelled.getNo()));
+        assertFalse(passesBy(path, cancelled.getDeliverTo()));
+        assertFlyable(replanner, drone);
+    }
+
+    @Test
+    public void pathAlwaysFitsTheBattery() {
+        DroneState drone = drone(tight);
+        Replanner replanner = new Replanner(drone, orders.subList(0, 4));
+        assertFlyable(replanner, drone);
+        for (Database.row row : orders.subList(4, orders.size())){
+            replanner.addOrder(row);
+            assertFlyable(replanner, drone);
+        }
+        //the battery doesn't hold every order, so some are waiting outside the route
+        assertTrue(replanner.getRoute().size() < replanner.getPending().size());
+        while (replanner.advance() != null){
+            assertFlyable(replanner, drone);
+            if (!replanner.getRoute().isEmpty()){
+                replanner.cancelOrder(replanner.getRoute().get(0).getNo());
+                assertFlyable(replanner, drone);
+            }
+        }
+        assertTrue(replanner.getRoute().isEmpty());
+        assertTrue(replanner.getPath().getLast().closeTo(drone.getHome()));
+    }
+
+    @Test
+    public void skippedOrderComesBackAfterACancellation() {
+        DroneState drone = drone(tight);
+        Replanner replanner = new Replanner(drone, new ArrayList<>());
+        for (Database.row row : orders){
+            replanner.addOrder(row);
+        }
+        assertNotNull(replanner.advance());
+        HashSet<String> skipped = numbers(replanner.getPending());
+        skipped.removeAll(numbers(replanner.getRoute()));
+        assertFalse(skipped.isEmpty());
+        //every order of the route is cancelled, which frees the moves for the ones left out
+        for (Database.row row : new ArrayList<>(replanner.getRoute())){
+            replanner.cancelOrder(row.getNo());
+        }
+        HashSet<String> back = numbers(replanner.getRoute());
+        back.retainAll(skipped);
+        assertFalse(back.isEmpty());
+        assertFlyable(replanner, drone);
+    }
+
+    @Test
+    public void advanceKeepsTheOrderItSkips() {
+        DroneState probe = drone(PlanningContext.maxMoves);
+        Database.row near = orders.get(0);
+        FlightPath flight = App.orderFlight(probe, probe.getHome(), near);
+        int back = probe.getLegCache().plan(flight.getLast(), probe.getHome()).size();
+        //a battery that only holds the first order of the route
+        DroneState drone = drone(flight.size() + back + 1);
+        ArrayList<Database.row> route = new ArrayList<>(orders.subList(0, 3));
+        drone.setRoute(route);
+        Replanner replanner = new Replanner(drone, route);
+        assertSame(near, replanner.advance());
+        assertNull(replanner.advance());
+        assertTrue(replanner.getRoute().isEmpty());
+        assertEquals(numbers(route.subList(1, 3)), numbers(replanner.getPending()));
+        assertFlyable(replanner, drone);
+    }
+}
@@ -0,0 +1,133 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class RouteOptimizerTest {
+
+    static RouteOptimizer randomProblem(Random random, int orders, int budget) {
+        double[][] places = new double[orders + 1][2];
+        for (double[] place : places){
+            place[0] = random.nextDouble() * 100;
+            place[1] = random.nextDouble() * 100;
+        }
+        int[] prize = new int[orders];
+        for (int order = 0; order < orders; order++){
+            prize[order] = 100 + random.nextInt(2000);
+        }
+        int[] arc = new int[(orders + 1) * orders];
+        int[] home = new int[orders + 1];
+        for (int from = 0; from <= orders; from++){
+            for (int to = 0; to < orders; to++){
+                arc[from * orders + to] = 2 + (int) Math.hypot(places[from][0] - places[to][0],
+                        places[from][1] - places[to][1]) + random.nextInt(5);
+            }
+            home[from] = 2 + (int) Math.hypot(places[from][0] - places[orders][0],
+                    places[from][1] - places[orders][1]);
+        }
+        return new RouteOptimizer(prize, arc, home, budget);
+    }
+
+    private static int bestValue(RouteOptimizer problem, int[] route, int length, boolean[] used) {
+        int best = problem.value(Arrays.copyOf(route, length));
+        for (int order = 0; order < used.length; order++){
+            if (!used[order]){
+                route[length] = order;
+                if (problem.cost(Arrays.copyOf(route, length + 1)) >= 0){
+                    used[order] = true;
+                    best = Math.max(best, bestValue(problem, route, length + 1, used));
+                    used[order] = false;
+                }
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void findsTheBestRouteOfSmallDays() {
+        Random random = new Random(3);
+        for (int day = 0; day < 20; day++){
+            int orders = 7;
+            RouteOptimizer problem = randomProblem(random, orders, 150 + random.nextInt(150));
+            int best = bestValue(problem, new int[orders], 0, new boolean[orders]);
+            int[] route = problem.solve(1000, 60_000);
+            assertTrue(problem.cost(route) >= 0);
+            assertEquals(best, problem.value(route));
+        }
+    }
+
+    @Test
+    public void neverWorseThanGreedy() {
+        Random random = new Random(4);
+        for (int day = 0; day < 20; day++){
+            RouteOptimizer problem = randomProblem(random, 25, 300 + random.nextInt(300));
+            int[] greedy = problem.greedy();
+            int[] route = problem.solve(200, 60_000);
+            assertTrue(problem.cost(greedy) >= 0);
+            assertTrue(problem.cost(route) >= 0);
+            assertTrue(problem.value(route) >= problem.value(greedy));
+        }
+    }
+
+    @Test
+    public void startsFromTheGivenRoute() {
+        Random random = new Random(5);
+        for (int day = 0; day < 20; day++){
+            RouteOptimizer problem = randomProblem(random, 25, 300 + random.nextInt(300));
+            int[] greedy = problem.greedy();
+            int[] route = problem.solve(greedy, 200, 60_000);
+            assertTrue(problem.cost(route) >= 0);
+            assertTrue(problem.value(route) >= problem.value(greedy));
+            //a route that no longer fits is cut short rather than flown
+            int[] all = new int[25];
+            for (int order = 0; order < all.length; order++){
+                all[order] = order;
+            }
+            assertTrue(problem.cost(problem.solve(all, 0, 60_000)) >= 0);
+        }
+    }
+
+    @Test
+    public void searchOnlyDependsOnTheProblem() {
+        for (int seed = 0; seed < 5; seed++){
+            int[] first = randomProblem(new Random(seed), 30, 400).solve(300, 60_000);
+            int[] second = randomProblem(new Random(seed), 30, 400).solve(300, 60_000);
+            assertArrayEquals(first, second);
+        }
+    }
+
+    @Test
+    public void unreachableOrderIsLeftOut() {
+        //a closed square of no-fly zone round the second order's drop-off
+        ArrayList<LongLat> box = new ArrayList<>(List.of(new LongLat(-3.1900, 55.9440), new LongLat(-3.1890, 55.9440),
+                new LongLat(-3.1890, 55.9450), new LongLat(-3.1900, 55.9450), new LongLat(-3.1900, 55.9440)));
+        PathPlanner planner = new VisibilityGraphPlanner(new ArrayList<>(List.of(box)), new ArrayList<>());
+        LongLat home = PlanningContext.appletonTower;
+        LongLat shop = new LongLat(-3.1910, 55.9455);
+        LongLat reachable = new LongLat(-3.1880, 55.9430);
+        LongLat boxed = new LongLat(-3.1895, 55.9445);
+        long unreachable = Metrics.unreachableLegs.get();
+        LegCostMatrix legs = new LegCostMatrix(planner, List.of(home, shop, reachable, boxed),
+                ForkJoinPool.commonPool(), true, false);
+        assertEquals(LegCostMatrix.unreachable, legs.getMoves(shop, boxed));
+        assertNull(legs.getPath(legs.indexOf(shop), legs.indexOf(boxed)));
+        assertTrue(legs.getMoves(shop, reachable) < LegCostMatrix.unreachable);
+        if (Metrics.enabled){
+            assertTrue(Metrics.unreachableLegs.get() > unreachable);
+        }
+        List<ArrayList<LongLat>> stops = List.of(new ArrayList<>(List.of(shop, reachable)),
+                new ArrayList<>(List.of(shop, boxed)));
+        RouteOptimizer problem = RouteOptimizer.forDay(legs, home, stops, new int[]{100, 5000}, PlanningContext.maxMoves);
+        assertEquals(-1, problem.cost(new int[]{1}));
+        assertEquals(-1, problem.cost(new int[]{0, 1}));
+        assertArrayEquals(new int[]{0}, problem.solve(100, 60_000));
+        assertArrayEquals(new int[]{0}, problem.greedy());
+    }
+}
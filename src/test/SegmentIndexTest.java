@@ -0,0 +1,85 @@
+package uk.ac.ed.inf;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SegmentIndexTest {
+
+    private static ArrayList<LongLat.line> square(double lng, double lat, double side){
+        ArrayList<LongLat> corners = new ArrayList<>();
+        corners.add(new LongLat(lng, lat));
+        corners.add(new LongLat(lng + side, lat));
+        corners.add(new LongLat(lng + side, lat + side));
+        corners.add(new LongLat(lng, lat + side));
+        ArrayList<ArrayList<LongLat>> zones = new ArrayList<>();
+        zones.add(corners);
+        return Website.getNoFlyPerimeter(zones);
+    }
+
+    @Test
+    public void matchesLinearScan() {
+        Random random = new Random(1);
+        ArrayList<LongLat.line> perimeter = new ArrayList<>();
+        for (int i = 0; i < 50; i++){
+            perimeter.addAll(square(LongLat.minLongitude + random.nextDouble() * 0.008,
+                    LongLat.minLatitude + random.nextDouble() * 0.0035, random.nextDouble() * 0.0005));
+        }
+        SegmentIndex index = new SegmentIndex(perimeter);
+        for (int i = 0; i < 20000; i++){
+            LongLat start = new LongLat(LongLat.minLongitude - 0.001 + random.nextDouble() * 0.01,
+                    LongLat.minLatitude - 0.001 + random.nextDouble() * 0.0055);
+            LongLat end = random.nextBoolean() ? start.nextPosition(10 * random.nextInt(36))
+                    : new LongLat(start.longitude + random.nextDouble() * 0.002, start.latitude - random.nextDouble() * 0.002);
+            boolean linear = false;
+            for (LongLat.line l : perimeter){
+                linear |= LongLat.doesIntersect(start, end, l.getStartPoint(), l.getEndPoint());
+            }
+            assertEquals(linear, index.intersects(start, end));
+        }
+    }
+
+    @Test
+    public void sharedCornerIsAnIntersection() {
+        ArrayList<LongLat.line> perimeter = square(-3.19, 55.944, 0.0003);
+        SegmentIndex index = new SegmentIndex(perimeter);
+        LongLat corner = new LongLat(-3.19, 55.944);
+        assertTrue(index.intersects(corner.nextPosition(180), corner));
+        assertFalse(index.intersects(corner.nextPosition(180), corner.nextPosition(180).nextPosition(180)));
+    }
+
+    @Test
+    public void longLinesMatchLinearScan() {
+        Random random = new Random(2);
+        ArrayList<LongLat.line> perimeter = new ArrayList<>();
+        for (int i = 0; i < 200; i++){
+            perimeter.addAll(square(LongLat.minLongitude + random.nextDouble() * 0.008,
+                    LongLat.minLatitude + random.nextDouble() * 0.0035, random.nextDouble() * 0.0008));
+        }
+        SegmentIndex index = new SegmentIndex(perimeter);
+        for (int i = 0; i < 20000; i++){
+            double x1 = LongLat.minLongitude - 0.001 + random.nextDouble() * 0.01;
+            double y1 = LongLat.minLatitude - 0.001 + random.nextDouble() * 0.0055;
+            double x2 = LongLat.minLongitude - 0.001 + random.nextDouble() * 0.01;
+            double y2 = LongLat.minLatitude - 0.001 + random.nextDouble() * 0.0055;
+            if (i % 4 == 0){
+                //through the corners of the cells
+                double d = SegmentIndex.defaultCellSize * random.nextInt(12);
+                x1 = LongLat.minLongitude + SegmentIndex.defaultCellSize * random.nextInt(10);
+                y1 = LongLat.minLatitude + SegmentIndex.defaultCellSize * random.nextInt(5);
+                x2 = x1 + d;
+                y2 = y1 + (random.nextBoolean() ? d : -d);
+            }
+            LongLat start = new LongLat(x1, y1);
+            LongLat end = new LongLat(x2, y2);
+            boolean linear = false;
+            for (LongLat.line l : perimeter){
+                linear |= LongLat.doesIntersect(start, end, l.getStartPoint(), l.getEndPoint());
+            }
+            assertEquals(linear, index.intersects(start, end));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class WebsiteTest {
+
+    private static final Path site = Paths.get("website");
+
+    //the cost and the shops of a delivery as getInfo found them before the menu index, by
+    //reading every shop's menu for every item
+    private static Website.info menuScan(ArrayList<shop> shops, ArrayList<String> delivery){
+        int cost = 50;
+        ArrayList<String> locations = new ArrayList<>();
+        for (String deliver : delivery){
+            found:
+            for (shop shop : shops){
+                for (shop.food food : shop.getMenu()){
+                    if (food.getItem().equals(deliver)){
+                        cost += food.getPence();
+                        locations.add(shop.getLocation());
+                        break found;
+                    }
+                }
+            }
+        }
+        return new Website.info(cost, locations);
+    }
+
+    //every "ThreeWords" location of the site, sorted
+    static List<String> allWords() throws IOException {
+        Path words = site.resolve("words");
+        try (Stream<Path> files = Files.walk(words)){
+            return files.filter(file -> file.endsWith("details.json"))
+                    .map(file -> words.relativize(file.getParent()).toString().replace(file.getFileSystem().getSeparator(), "."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void lruCacheEvictsTheLeastRecentlyUsed() {
+        LruCache<String, Integer> cache = new LruCache<>(3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        //reading 'a' makes 'b' the least recently used
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        cache.put("d", 4);
+        assertEquals(3, cache.size());
+        assertFalse(cache.containsKey("b"));
+        assertEquals(List.of("c", "a", "d"), new ArrayList<>(cache.keySet()));
+        cache.put("e", 5);
+        assertEquals(List.of("a", "d", "e"), new ArrayList<>(cache.keySet()));
+        assertEquals(3, cache.getCapacity());
+    }
+
+    @Test
+    public void menuIndexPricesOrdersLikeTheMenus() {
+        Website website = new Website(site, null);
+        ArrayList<shop> shops = new Gson().fromJson(LocalSite.read(site, LocalSite.menus),
+                new TypeToken<ArrayList<shop>>() {}.getType());
+        ArrayList<String> everything = new ArrayList<>();
+        for (shop shop : shops){
+            for (shop.food food : shop.getMenu()){
+                everything.add(food.getItem());
+                ArrayList<String> single = new ArrayList<>(List.of(food.getItem()));
+                Website.info expected = menuScan(shops, single);
+                Website.info info = website.getInfo(single);
+                assertEquals(expected.cost, info.cost);
+                assertEquals(expected.locations, info.locations);
+            }
+        }
+        everything.add("Not on any menu");
+        Website.info expected = menuScan(shops, everything);
+        Website.info info = website.getInfo(everything);
+        assertEquals(expected.cost, info.cost);
+        assertEquals(expected.locations, info.locations);
+        assertEquals(1, website.getMenuLoads());
+    }
+
+    @Test
+    public void positionCacheCountsHitsAndMisses() throws IOException {
+        Website website = new Website(site, null);
+        List<String> words = allWords();
+        assertFalse(words.isEmpty());
+        long hits = Metrics.positionHits.get();
+        long misses = Metrics.positionMisses.get();
+        for (String w : words){
+            website.getPosition(w);
+        }
+        assertEquals(words.size(), website.getPositionMisses());
+        assertEquals(0, website.getPositionHits());
+        for (String w : words){
+            String[] three = w.split("\\.");
+            LongLat cached = website.getPosition(w);
+            LongLat parsed = Website.parsePosition(LocalSite.read(site, LocalSite.coordinates(three[0], three[1], three[2])));
+            assertEquals(parsed.longitude, cached.longitude, 0);
+            assertEquals(parsed.latitude, cached.latitude, 0);
+        }
+        assertEquals(words.size(), website.getPositionMisses());
+        assertEquals(words.size(), website.getPositionHits());
+        website.invalidatePosition(words.get(0));
+        website.getPosition(words.get(0));
+        assertEquals(words.size() + 1, website.getPositionMisses());
+        assertEquals(0, website.getStoreHits());
+        if (Metrics.enabled){
+            assertEquals(hits + words.size(), Metrics.positionHits.get());
+            assertEquals(misses + words.size() + 1, Metrics.positionMisses.get());
+        }
+    }
+}